@@ -0,0 +1,98 @@
+#!/usr/bin/env python3
+"""
+Generate thread-scaling charts from CustomMapConcurrent_jmh_performance.csv, one PNG per benchmark, key range
+and mix, with one line per map. Uses the same dark, transparent style as chart.py.
+"""
+
+import matplotlib
+
+matplotlib.use('Agg')
+import matplotlib.pyplot as plt
+import matplotlib.ticker as mticker
+from matplotlib.lines import Line2D
+import pandas as pd
+import os
+import sys
+
+from chart import COLORS, DPI, FIGURE_SIZE, format_y_axis
+
+CONCURRENT_CSV_PATH = "CustomMapConcurrent_jmh_performance.csv"
+OUTPUT_DIR = "."
+
+MAP_COLORS = {
+    'SynchronizedCustomMap': COLORS['purple'],
+    'SynchronizedHashMap': COLORS['blue'],
+    'ConcurrentHashMap': '#4DFFB8',
+}
+
+
+def create_chart(title, frame, thread_counts, output_path):
+    fig, ax = plt.subplots(figsize=FIGURE_SIZE, dpi=DPI)
+    fig.patch.set_alpha(0)
+    ax.set_facecolor('none')
+
+    x_positions = list(range(len(thread_counts)))
+    legend_elements = []
+    for map_name, color in MAP_COLORS.items():
+        scores = frame[frame['Map'] == map_name].set_index('Threads')['Score (ops/us)']
+        values = [scores.get(t, float('nan')) for t in thread_counts]
+        ax.plot(x_positions, values, color=color, linewidth=1.5, zorder=2)
+        ax.scatter(x_positions, values, color=color, s=35, marker='o', edgecolors=color, linewidths=1.5, zorder=3)
+        legend_elements.append(Line2D([0], [0], marker='o', color='none', markerfacecolor=color, markeredgecolor=color,
+                                      markeredgewidth=1.5, markersize=8, label=map_name, linestyle='none'))
+
+    ax.grid(True, color=COLORS['grid'], linewidth=0.8, linestyle='-', zorder=0)
+    ax.set_axisbelow(True)
+
+    ax.set_xticks(x_positions)
+    ax.set_xticklabels([str(t) for t in thread_counts], color='white', fontsize=10)
+    ax.tick_params(axis='x', colors='white', length=0, pad=8)
+    ax.set_xlim(-0.4, len(thread_counts) - 0.6)
+
+    ax.yaxis.set_major_formatter(mticker.FuncFormatter(format_y_axis))
+    ax.tick_params(axis='y', colors='white', length=0, pad=8)
+    for label in ax.get_yticklabels():
+        label.set_color('white')
+        label.set_fontsize(10)
+
+    for spine in ax.spines.values():
+        spine.set_visible(False)
+
+    ax.set_xlabel('Threads', color='white', fontsize=12, labelpad=12)
+    ax.set_ylabel('Throughput (ops/us)', color='white', fontsize=11, labelpad=10)
+    ax.set_title(title, color='white', fontsize=15, fontweight='bold', pad=14)
+
+    leg = ax.legend(handles=legend_elements, loc='upper center', bbox_to_anchor=(0.5, -0.26), ncol=len(MAP_COLORS),
+                    frameon=False, fontsize=12, handlelength=1.5, handletextpad=0.6, columnspacing=2.0)
+    for text in leg.get_texts():
+        text.set_color('white')
+        text.set_fontsize(12)
+
+    plt.tight_layout(rect=[0, 0.18, 1, 1])
+    fig.savefig(output_path, dpi=DPI, transparent=True, bbox_inches='tight', facecolor='none', edgecolor='none')
+    plt.close(fig)
+
+
+def main():
+    if not os.path.exists(CONCURRENT_CSV_PATH):
+        print(f"Error: Required file '{CONCURRENT_CSV_PATH}' not found.")
+        sys.exit(1)
+
+    os.makedirs(OUTPUT_DIR, exist_ok=True)
+
+    df = pd.read_csv(CONCURRENT_CSV_PATH, sep=';')
+    # Group rows record the reader:writer thread split, which changes with the thread count
+    df['Mix'] = df['Mix'].where(df['Benchmark'] == 'benchmarkMixed', 'dedicated threads')
+    thread_counts = sorted(df['Threads'].unique())
+
+    for (benchmark, key_range, mix), frame in df.groupby(['Benchmark', 'KeyRange', 'Mix']):
+        title = f'{benchmark} {key_range} {mix}'
+        output_path = os.path.join(OUTPUT_DIR, f'scaling {benchmark} {key_range} {mix.replace(":", "-")}.png')
+        create_chart(title, frame, thread_counts, output_path)
+        print(f"  ✓ {os.path.basename(output_path)}")
+
+    print(f"\n✓ All scaling charts saved successfully.")
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,283 @@
+package custommap;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares {@link CustomMapPerformanceBenchmark} with {@link HashMapPerformanceBenchmark} and fails when
+ * {@code CustomMap} has regressed against a stored baseline. For every operation and size it computes the ratio of
+ * the {@code CustomMap} score to the {@code HashMap} score, so a ratio above one means {@code CustomMap} is slower,
+ * together with a conservative interval built from the 99.9% confidence intervals JMH reports for each score.
+ * Comparing ratios rather than raw times lets a baseline recorded on one machine be checked on another.
+ * <p>
+ * A comparison is a regression when the whole interval lies more than the threshold above the baseline ratio, so
+ * noise that JMH itself reports as uncertain does not fail a build. A baseline comparison that the run did not
+ * produce fails the build too, so a benchmark cannot escape the check by being renamed or removed. Usage:
+ * <pre>
+ * BenchmarkComparator [--custom custom-map-results.csv --hashmap hashmap-results.csv]
+ *                     [--baseline PerformanceTesting/Comparator_baseline.csv] [--threshold 0.10] [--write-baseline]
+ * </pre>
+ * Without {@code --custom} and {@code --hashmap} both suites are run; with them the CSV result files written by
+ * the suites' {@code main} methods are loaded instead. Every operation and size must have been measured for both
+ * maps. {@code --write-baseline} stores the current ratios as the new baseline and is required when no baseline
+ * exists yet. The exit status is 0 when there is no regression, 1 when a comparison regressed or is missing and 2
+ * on a usage or I/O error, including a missing baseline.
+ *
+ * @author Benjamin Kane
+ */
+public final class BenchmarkComparator {
+
+    static final double DEFAULT_THRESHOLD = 0.10;
+    static final String DEFAULT_BASELINE = "PerformanceTesting/Comparator_baseline.csv";
+    static final String REPORT = "Comparison_jmh_performance.csv";
+
+    private BenchmarkComparator() {
+    }
+
+    /**
+     * The score of one operation at one size, with the half-width of its confidence interval.
+     */
+    record Measurement(String operation, int size, double score, double error) {
+
+        String key() {
+            return operation + ";" + size;
+        }
+    }
+
+    /**
+     * The ratio of the {@code CustomMap} score to the {@code HashMap} score and its interval.
+     */
+    record Comparison(String operation, int size, double custom, double jdk, double ratio, double low,
+                      double high) {
+
+        static Comparison of(final Measurement custom, final Measurement jdk) {
+            double low = Math.max(0, custom.score - custom.error) / (jdk.score + jdk.error);
+            double jdkLow = jdk.score - jdk.error;
+            double high = jdkLow > 0 ? (custom.score + custom.error) / jdkLow : Double.POSITIVE_INFINITY;
+            return new Comparison(custom.operation, custom.size, custom.score, jdk.score, custom.score / jdk.score,
+                    low, high);
+        }
+
+        String key() {
+            return operation + ";" + size;
+        }
+
+        String status(final Double baseline, final double threshold) {
+            if (baseline == null)
+                return "NEW";
+            if (low > baseline * (1 + threshold))
+                return "REGRESSED";
+            if (high < baseline * (1 - threshold))
+                return "IMPROVED";
+            return "OK";
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new TreeMap<>();
+        boolean writeBaseline = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--write-baseline"))
+                writeBaseline = true;
+            else if (args[i].startsWith("--") && i + 1 < args.length)
+                options.put(args[i], args[++i]);
+            else
+                exit("Unrecognised argument: " + args[i]);
+        }
+
+        try {
+            double threshold = Double.parseDouble(options.getOrDefault("--threshold", String.valueOf(DEFAULT_THRESHOLD)));
+            Path baselinePath = Path.of(options.getOrDefault("--baseline", DEFAULT_BASELINE));
+            if (!writeBaseline && !Files.exists(baselinePath))
+                exit("Baseline not found: " + baselinePath + ". Run with --write-baseline to record one.");
+
+            List<Measurement> custom;
+            List<Measurement> jdk;
+            if (options.containsKey("--custom") && options.containsKey("--hashmap")) {
+                custom = loadJmhCsv(Path.of(options.get("--custom")));
+                jdk = loadJmhCsv(Path.of(options.get("--hashmap")));
+            } else {
+                Collection<RunResult> results = runSuites();
+                custom = measurements(results, CustomMapPerformanceBenchmark.class);
+                jdk = measurements(results, HashMapPerformanceBenchmark.class);
+            }
+
+            List<Comparison> comparisons = compare(custom, jdk);
+            Map<String, Double> baseline = Files.exists(baselinePath) ? loadBaseline(baselinePath) : Map.of();
+            int failures = writeReport(comparisons, baseline, threshold);
+            if (writeBaseline) {
+                writeBaseline(baselinePath, comparisons);
+                System.out.println("Baseline saved: " + baselinePath);
+                return;
+            }
+            if (failures > 0) {
+                System.err.println(failures + " comparison(s) regressed by more than " + threshold * 100
+                        + "% against, or are missing from, " + baselinePath);
+                System.exit(1);
+            }
+        } catch (IOException | RunnerException | RuntimeException e) {
+            exit(e.getMessage());
+        }
+    }
+
+    /**
+     * Pairs each {@code CustomMap} measurement with the {@code HashMap} measurement of the same operation and size.
+     *
+     * @throws IllegalArgumentException if a measurement of either map has no counterpart
+     */
+    static List<Comparison> compare(final List<Measurement> custom, final List<Measurement> jdk) {
+        Map<String, Measurement> jdkByKey = new TreeMap<>();
+        for (Measurement measurement : jdk)
+            jdkByKey.put(measurement.key(), measurement);
+        List<Comparison> comparisons = new ArrayList<>();
+        for (Measurement measurement : custom) {
+            Measurement other = jdkByKey.remove(measurement.key());
+            if (other == null)
+                throw new IllegalArgumentException("No HashMap measurement for " + measurement.key());
+            comparisons.add(Comparison.of(measurement, other));
+        }
+        if (!jdkByKey.isEmpty())
+            throw new IllegalArgumentException("No CustomMap measurement for " + jdkByKey.keySet());
+        return comparisons;
+    }
+
+    /**
+     * Loads a result file written by JMH in {@code ResultFormatType.CSV}, whose columns are the benchmark, mode,
+     * threads, samples, score, score error, unit and one {@code Param: } column per parameter.
+     */
+    static List<Measurement> loadJmhCsv(final Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path);
+        if (lines.isEmpty())
+            throw new IOException("Empty JMH result file: " + path);
+        List<String> header = splitCsv(lines.get(0));
+        int score = header.indexOf("Score");
+        int error = header.indexOf("Score Error (99.9%)");
+        int size = header.indexOf("Param: size");
+        if (score < 0 || error < 0 || size < 0)
+            throw new IOException("Not a JMH CSV result file with a size parameter: " + path);
+
+        List<Measurement> measurements = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank())
+                continue;
+            List<String> columns = splitCsv(line);
+            measurements.add(new Measurement(operation(columns.get(0)), Integer.parseInt(columns.get(size)),
+                    Double.parseDouble(columns.get(score)), errorOrZero(Double.parseDouble(columns.get(error)))));
+        }
+        return measurements;
+    }
+
+    private static double errorOrZero(final double error) {
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static void exit(final String message) {
+        System.err.println(message);
+        System.exit(2);
+    }
+
+    private static Map<String, Double> loadBaseline(final Path path) throws IOException {
+        Map<String, Double> baseline = new TreeMap<>();
+        List<String> lines = Files.readAllLines(path);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(";");
+            baseline.put(columns[0].replace("\"", "") + ";" + columns[1], Double.parseDouble(columns[2]));
+        }
+        return baseline;
+    }
+
+    private static List<Measurement> measurements(final Collection<RunResult> results, final Class<?> suite) {
+        List<Measurement> measurements = new ArrayList<>();
+        for (RunResult result : results) {
+            String benchmarkName = result.getParams().getBenchmark();
+            if (!benchmarkName.startsWith(suite.getName() + "."))
+                continue;
+            measurements.add(new Measurement(operation(benchmarkName),
+                    Integer.parseInt(result.getParams().getParam("size")), result.getPrimaryResult().getScore(),
+                    errorOrZero(result.getPrimaryResult().getScoreError())));
+        }
+        return measurements;
+    }
+
+    private static String operation(final String benchmarkName) {
+        return benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+    }
+
+    private static Collection<RunResult> runSuites() throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(CustomMapPerformanceBenchmark.class.getName())
+                .include(HashMapPerformanceBenchmark.class.getName())
+                .forks(3)
+                .build();
+        return new Runner(opt).run();
+    }
+
+    private static List<String> splitCsv(final String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"')
+                quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else
+                column.append(c);
+        }
+        columns.add(column.toString());
+        return columns;
+    }
+
+    private static void writeBaseline(final Path path, final List<Comparison> comparisons) throws IOException {
+        try (FileWriter writer = new FileWriter(path.toFile())) {
+            writer.write("Benchmark;Size;Ratio\n");
+            for (Comparison comparison : comparisons)
+                writer.write("\"" + comparison.operation() + "\";" + comparison.size() + ";" + comparison.ratio() + "\n");
+        }
+    }
+
+    private static int writeReport(final List<Comparison> comparisons, final Map<String, Double> baseline,
+                                   final double threshold) throws IOException {
+        int failures = 0;
+        Map<String, Double> unmeasured = new TreeMap<>(baseline);
+        try (FileWriter writer = new FileWriter(REPORT)) {
+            writer.write("Benchmark;Size;Custom (ns/op);JDK (ns/op);Ratio;Ratio Low;Ratio High;Baseline Ratio;Status\n");
+            for (Comparison comparison : comparisons) {
+                Double expected = unmeasured.remove(comparison.key());
+                String status = comparison.status(expected, threshold);
+                if (status.equals("REGRESSED")) {
+                    failures++;
+                    System.err.printf("REGRESSED %s size=%d ratio=%.3f [%.3f, %.3f] baseline=%.3f%n",
+                            comparison.operation(), comparison.size(), comparison.ratio(), comparison.low(),
+                            comparison.high(), expected);
+                }
+                writer.write("\"" + comparison.operation() + "\";" + comparison.size() + ";" + comparison.custom()
+                        + ";" + comparison.jdk() + ";" + comparison.ratio() + ";" + comparison.low() + ";"
+                        + comparison.high() + ";" + (expected != null ? expected : "N/A") + ";" + status + "\n");
+            }
+            for (Map.Entry<String, Double> missing : unmeasured.entrySet()) {
+                failures++;
+                String[] key = missing.getKey().split(";");
+                System.err.printf("MISSING %s size=%s baseline=%.3f%n", key[0], key[1], missing.getValue());
+                writer.write("\"" + key[0] + "\";" + key[1] + ";N/A;N/A;N/A;N/A;N/A;" + missing.getValue()
+                        + ";MISSING\n");
+            }
+        }
+        System.out.println("Comparison report saved: " + REPORT);
+        return failures;
+    }
+}
@@ -0,0 +1,148 @@
+package custommap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Precomputed keys and lookup sequences shared by the workload benchmarks. Everything is generated once per trial
+ * from a fixed seed, so the measured loop only indexes into arrays and never touches a random number generator.
+ * The class and its enums are public because JMH's generated code, in another package, converts {@code @Param}
+ * strings to them.
+ */
+public final class BenchmarkKeys {
+
+    /**
+     * The key types a workload can use.
+     */
+    public enum KeyType {
+        /** Sixteen-character alphanumeric strings, hashed with {@link String#hashCode()}. */
+        STRING,
+        /** Random boxed longs. */
+        LONG,
+        /** A tenant id and a record id, as used for multi-tenant caches. */
+        COMPOSITE
+    }
+
+    /**
+     * The order in which a workload visits keys.
+     */
+    public enum Distribution {
+        /** Every key is equally likely. */
+        UNIFORM,
+        /** Key popularity follows Zipf's law with exponent {@value BenchmarkKeys#ZIPF_EXPONENT}. */
+        ZIPFIAN,
+        /** Keys are visited in insertion order, wrapping around. */
+        SEQUENTIAL
+    }
+
+    static final double ZIPF_EXPONENT = 0.99;
+    static final int LOOKUP_COUNT = 1 << 16;
+
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+    private BenchmarkKeys() {
+    }
+
+    /**
+     * Returns {@code count} distinct keys of the specified type.
+     */
+    static Object[] distinctKeys(KeyType type, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Set<Object> seen = new HashSet<>(count * 2);
+        Object[] keys = new Object[count];
+        int filled = 0;
+        while (filled < count) {
+            Object key = switch (type) {
+                case STRING -> randomString(random, 16);
+                case LONG -> random.nextLong();
+                case COMPOSITE -> new CompositeKey(random.nextInt(1_000), random.nextLong());
+            };
+            if (seen.add(key))
+                keys[filled++] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Returns a lookup sequence of {@value #LOOKUP_COUNT} keys. A {@code hitRatio} share of the lookups draw from
+     * {@code present} in the order given by the distribution; the rest draw from {@code absent} the same way.
+     */
+    static Object[] lookups(Object[] present, Object[] absent, double hitRatio, Distribution distribution,
+                            long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] presentOrder = order(distribution, present.length, random);
+        int[] absentOrder = order(distribution, absent.length, random);
+        Object[] lookups = new Object[LOOKUP_COUNT];
+        int presentCursor = 0;
+        int absentCursor = 0;
+        for (int i = 0; i < LOOKUP_COUNT; i++)
+            lookups[i] = random.nextDouble() < hitRatio
+                    ? present[presentOrder[presentCursor++]]
+                    : absent[absentOrder[absentCursor++]];
+        return lookups;
+    }
+
+    /**
+     * Returns {@value #LOOKUP_COUNT} indexes into an array of {@code size} keys in the specified distribution.
+     */
+    private static int[] order(Distribution distribution, int size, SplittableRandom random) {
+        int[] order = new int[LOOKUP_COUNT];
+        switch (distribution) {
+            case UNIFORM -> {
+                for (int i = 0; i < order.length; i++)
+                    order[i] = random.nextInt(size);
+            }
+            case SEQUENTIAL -> {
+                for (int i = 0; i < order.length; i++)
+                    order[i] = i % size;
+            }
+            case ZIPFIAN -> {
+                double[] cumulative = new double[size];
+                double total = 0;
+                for (int rank = 0; rank < size; rank++) {
+                    total += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+                    cumulative[rank] = total;
+                }
+                for (int i = 0; i < order.length; i++) {
+                    int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                    order[i] = Math.min(rank < 0 ? -rank - 1 : rank, size - 1);
+                }
+            }
+        }
+        return order;
+    }
+
+    private static String randomString(SplittableRandom random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        return new String(chars);
+    }
+
+    /**
+     * A two-part key whose hash code combines both parts, as a typical hand-written composite key does.
+     */
+    static final class CompositeKey {
+        private final int tenant;
+        private final long id;
+
+        CompositeKey(final int tenant, final long id) {
+            this.tenant = tenant;
+            this.id = id;
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof CompositeKey other && tenant == other.tenant && id == other.id;
+        }
+
+        public int hashCode() {
+            return 31 * tenant + Long.hashCode(id);
+        }
+
+        public String toString() {
+            return tenant + ":" + id;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package custommap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how read/write throughput scales with thread count for the thread-safe maps. Two shapes of workload
+ * are run against a map pre-populated with {@value #KEY_COUNT} keys, whose size never changes because every write
+ * replaces an existing mapping:
+ * <ul>
+ *     <li>{@code benchmarkMixed} - every thread performs the same read:write mix, given by {@code readPercent}, from
+ *     a precomputed schedule, so the mix holds at any thread count including one.</li>
+ *     <li>the {@code readersWithWriters} group - dedicated reader and writer threads, so reader throughput can be
+ *     observed while writers hold the lock. {@link #main(String[])} scales the group to a 3:1 split.</li>
+ * </ul>
+ * With {@code CONTENDED} key ranges every thread works on the same {@value #RANGE_SIZE} hot keys; with
+ * {@code DISJOINT} each thread owns a separate slice of the same size, so the two differ only in sharing.
+ * {@link #main(String[])} repeats the run for each count in {@link #THREAD_COUNTS}, since JMH cannot take the
+ * thread count as a parameter.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class CustomMapConcurrentBenchmark {
+
+    static final int KEY_COUNT = 1 << 16;
+    static final int RANGE_SIZE = 1 << 10;
+    static final int SCHEDULE_LENGTH = 1 << 10;
+    static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    @Param({"SynchronizedCustomMap", "SynchronizedHashMap", "ConcurrentHashMap"})
+    public String mapType;
+
+    @Param({"CONTENDED", "DISJOINT"})
+    public String keyRange;
+
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private Map<Long, Long> map;
+    private Long[] keys;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        map = switch (mapType) {
+            case "SynchronizedCustomMap" -> Collections.synchronizedMap(new CustomMap<>());
+            case "SynchronizedHashMap" -> Collections.synchronizedMap(new HashMap<>());
+            case "ConcurrentHashMap" -> new ConcurrentHashMap<>();
+            default -> throw new IllegalArgumentException("Unknown map type: " + mapType);
+        };
+        keys = new Long[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = (long) i;
+            map.put(keys[i], keys[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        private Long[] keys;
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setupTrial(CustomMapConcurrentBenchmark benchmark) {
+            int thread = benchmark.threadIndex.getAndIncrement();
+            int offset = benchmark.keyRange.equals("DISJOINT") ? (thread * RANGE_SIZE) % KEY_COUNT : 0;
+            keys = new Long[RANGE_SIZE];
+            System.arraycopy(benchmark.keys, offset, keys, 0, RANGE_SIZE);
+            Collections.shuffle(Arrays.asList(keys), new Random(thread));
+        }
+
+        Long nextKey() {
+            index = (index + 1) & (RANGE_SIZE - 1);
+            return keys[index];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Mix {
+        @Param({"100", "95", "50"})
+        public int readPercent;
+
+        private boolean[] reads;
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setupTrial() {
+            reads = new boolean[SCHEDULE_LENGTH];
+            for (int i = 0; i < SCHEDULE_LENGTH * readPercent / 100; i++)
+                reads[i] = true;
+            Random random = new Random(readPercent);
+            for (int i = SCHEDULE_LENGTH - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                boolean swap = reads[i];
+                reads[i] = reads[j];
+                reads[j] = swap;
+            }
+        }
+
+        boolean nextIsRead() {
+            index = (index + 1) & (SCHEDULE_LENGTH - 1);
+            return reads[index];
+        }
+    }
+
+    @Benchmark
+    public Long benchmarkMixed(Worker worker, Mix mix) {
+        Long key = worker.nextKey();
+        return mix.nextIsRead() ? map.get(key) : map.put(key, key);
+    }
+
+    @Benchmark
+    @Group("readersWithWriters")
+    @GroupThreads(3)
+    public Long groupRead(Worker worker) {
+        return map.get(worker.nextKey());
+    }
+
+    @Benchmark
+    @Group("readersWithWriters")
+    @GroupThreads(1)
+    public Long groupWrite(Worker worker) {
+        Long key = worker.nextKey();
+        return map.put(key, key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options base = new OptionsBuilder()
+                .forks(1)
+                .build();
+
+        List<RunResult> results = new ArrayList<>();
+        for (int threads : THREAD_COUNTS) {
+            Options mixed = new OptionsBuilder()
+                    .parent(base)
+                    .include(CustomMapConcurrentBenchmark.class.getName() + ".benchmarkMixed")
+                    .threads(threads)
+                    .build();
+            results.addAll(new Runner(mixed).run());
+            if (threads == 1)
+                continue;
+            int writers = Math.max(1, threads / 4);
+            Options group = new OptionsBuilder()
+                    .parent(base)
+                    .include(CustomMapConcurrentBenchmark.class.getName() + ".readersWithWriters")
+                    .threadGroups(threads - writers, writers)
+                    .build();
+            results.addAll(new Runner(group).run());
+        }
+        writeCustomCsv(results);
+    }
+
+    private static void writeCustomCsv(Collection<RunResult> results) {
+        try (FileWriter writer = new FileWriter("CustomMapConcurrent_jmh_performance.csv")) {
+            writer.write("Benchmark;Map;KeyRange;Mix;Threads;Score (ops/us)\n");
+            for (RunResult result : results) {
+                String benchmarkName = result.getParams().getBenchmark();
+                String shortName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+                String readPercent = result.getParams().getParam("readPercent");
+                if (readPercent != null) {
+                    String mix = readPercent + ":" + (100 - Integer.parseInt(readPercent));
+                    writeRow(writer, shortName, result, mix, result.getPrimaryResult().getScore());
+                    continue;
+                }
+                int[] groups = result.getParams().getThreadGroups();
+                for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet())
+                    writeRow(writer, entry.getKey(), result, groups[0] + ":" + groups[1], entry.getValue().getScore());
+            }
+            System.out.println("JMH Performance report saved: CustomMapConcurrent_jmh_performance.csv");
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one row. For {@code benchmarkMixed} the mix is the read:write percentage of operations; for the
+     * group methods it is the reader:writer thread split.
+     */
+    private static void writeRow(FileWriter writer, String name, RunResult result, String mix, double score)
+            throws IOException {
+        writer.write("\"" + name + "\";" + result.getParams().getParam("mapType") + ";"
+                + result.getParams().getParam("keyRange") + ";" + mix + ";" + result.getParams().getThreads()
+                + ";" + score + "\n");
+    }
+}
@@ -205,7 +205,7 @@ public class CustomMapPerformanceBenchmark {
 
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
-                .include(CustomMapPerformanceBenchmark.class.getSimpleName())
+                .include(CustomMapPerformanceBenchmark.class.getName())
                 .forks(3)
                 .result("custom-map-results.csv")
                 .resultFormat(ResultFormatType.CSV)
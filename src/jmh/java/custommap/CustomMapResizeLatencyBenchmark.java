@@ -0,0 +1,159 @@
+package custommap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency distribution of {@code put} while a map grows from empty through every doubling of its
+ * table up to {@value #FILL_SIZE} entries, so the inserts that trigger {@code expand()} and a full transfer show up
+ * in the tail instead of being averaged away. Each invocation is a single insert of a new key; once the map is
+ * full the next invocation replaces it with an empty map, so that one sample also pays for the allocation.
+ * <p>
+ * {@link #main(String[])} writes the JMH p50/p99/p99.9/max per map to a CSV, and then repeats the fill outside JMH
+ * timing every insert into a {@link LatencyHistogram}, writing the full distribution to a second CSV. The second
+ * pass is what shows how rare and how large the resize spikes are; JMH's sampler only times a subset of calls.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(2)
+public class CustomMapResizeLatencyBenchmark {
+
+    static final int FILL_SIZE = 1 << 20;
+    static final int WARMUP_FILLS = 5;
+    static final int RECORDED_FILLS = 10;
+    static final double[] PERCENTILES = {50, 99, 99.9};
+
+    @Param({"CustomMap", "HashMap"})
+    public String mapType;
+
+    private Integer[] keys;
+    private Map<Integer, Integer> map;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        keys = keys();
+        map = newMap(mapType);
+    }
+
+    @Benchmark
+    public Integer benchmarkPut() {
+        if (next == FILL_SIZE) {
+            map = newMap(mapType);
+            next = 0;
+        }
+        Integer key = keys[next++];
+        return map.put(key, key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(CustomMapResizeLatencyBenchmark.class.getName())
+                .result("custom-map-resize-latency-results.csv")
+                .resultFormat(ResultFormatType.CSV)
+                .build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+        writeCustomCsv(results);
+        writeHistogramCsv();
+    }
+
+    private static Integer[] keys() {
+        Integer[] keys = new Integer[FILL_SIZE];
+        for (int i = 0; i < FILL_SIZE; i++)
+            keys[i] = i;
+        return keys;
+    }
+
+    private static Map<Integer, Integer> newMap(String mapType) {
+        return switch (mapType) {
+            case "CustomMap" -> new CustomMap<>();
+            case "HashMap" -> new HashMap<>();
+            default -> throw new IllegalArgumentException("Unknown map type: " + mapType);
+        };
+    }
+
+    /**
+     * Fills a new map of each type {@link #WARMUP_FILLS} times untimed and {@link #RECORDED_FILLS} times with every
+     * insert timed.
+     */
+    static LatencyHistogram recordFills(String mapType) {
+        Integer[] keys = keys();
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int fill = 0; fill < WARMUP_FILLS + RECORDED_FILLS; fill++) {
+            Map<Integer, Integer> map = newMap(mapType);
+            boolean recorded = fill >= WARMUP_FILLS;
+            for (Integer key : keys) {
+                long start = System.nanoTime();
+                map.put(key, key);
+                long elapsed = System.nanoTime() - start;
+                if (recorded)
+                    histogram.record(elapsed);
+            }
+        }
+        return histogram;
+    }
+
+    private static void writeCustomCsv(Collection<RunResult> results) {
+        try (FileWriter writer = new FileWriter("CustomMapResizeLatency_jmh_performance.csv")) {
+            writer.write("Benchmark;Map;p50 (ns);p99 (ns);p99.9 (ns);Max (ns)\n");
+            for (RunResult result : results) {
+                String benchmarkName = result.getParams().getBenchmark();
+                String shortName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+                Statistics statistics = result.getPrimaryResult().getStatistics();
+                StringBuilder row = new StringBuilder("\"" + shortName + "\";" + result.getParams().getParam("mapType"));
+                for (double percentile : PERCENTILES)
+                    row.append(';').append(statistics.getPercentile(percentile));
+                writer.write(row.append(';').append(statistics.getMax()).append('\n').toString());
+            }
+            System.out.println("JMH Performance report saved: CustomMapResizeLatency_jmh_performance.csv");
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    private static void writeHistogramCsv() {
+        try (FileWriter writer = new FileWriter("CustomMapResizeLatency_histogram.csv")) {
+            writer.write("Map;Latency (ns);Count;Percentile\n");
+            for (String mapType : new String[]{"CustomMap", "HashMap"}) {
+                LatencyHistogram histogram = recordFills(mapType);
+                histogram.writeCsv(writer, mapType);
+                System.out.printf("%s per-insert latency: p50=%d p99=%d p99.9=%d max=%d ns over %d inserts%n",
+                        mapType, histogram.percentile(50), histogram.percentile(99), histogram.percentile(99.9),
+                        histogram.max(), histogram.count());
+            }
+            System.out.println("Latency histogram saved: CustomMapResizeLatency_histogram.csv");
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package custommap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures steady-state operation throughput on realistic workloads. Unlike
+ * {@link CustomMapPerformanceBenchmark}, the map is built once per trial and never rebuilt between invocations,
+ * and every key the measured loop touches is precomputed by {@link BenchmarkKeys}, so the score reflects only the
+ * map operation. Workloads vary the map implementation, key type, access distribution, share of lookups that hit
+ * and map size; {@link #main(String[])} adds the GC profiler so allocation per operation is reported alongside
+ * throughput. Use {@code -p} to narrow the parameter grid, for example
+ * {@code -p mapType=CustomMap -p size=1000000}.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(2)
+public class CustomMapWorkloadBenchmark {
+
+    @Param({"CustomMap", "SwissCustomMap", "HashMap"})
+    public String mapType;
+
+    @Param({"STRING", "LONG", "COMPOSITE"})
+    public BenchmarkKeys.KeyType keyType;
+
+    @Param({"UNIFORM", "ZIPFIAN", "SEQUENTIAL"})
+    public BenchmarkKeys.Distribution distribution;
+
+    @Param({"1.0", "0.5"})
+    public double hitRatio;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private Map<Object, Object> map;
+    private Object[] lookups;
+    private Object[] updates;
+    private Object[] absent;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        Object[] keys = BenchmarkKeys.distinctKeys(keyType, size * 2, 42);
+        Object[] present = new Object[size];
+        absent = new Object[size];
+        System.arraycopy(keys, 0, present, 0, size);
+        System.arraycopy(keys, size, absent, 0, size);
+        map = switch (mapType) {
+            case "CustomMap" -> new CustomMap<>();
+            case "SwissCustomMap" -> new SwissCustomMap<>();
+            case "HashMap" -> new HashMap<>();
+            default -> throw new IllegalArgumentException("Unknown map type: " + mapType);
+        };
+        for (Object key : present)
+            map.put(key, key);
+        lookups = BenchmarkKeys.lookups(present, absent, hitRatio, distribution, 7);
+        updates = BenchmarkKeys.lookups(present, absent, 1.0, distribution, 11);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        int next() {
+            index = (index + 1) & (BenchmarkKeys.LOOKUP_COUNT - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    public Object benchmarkGet(Cursor cursor) {
+        return map.get(lookups[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean benchmarkContainsKey(Cursor cursor) {
+        return map.containsKey(lookups[cursor.next()]);
+    }
+
+    @Benchmark
+    public Object benchmarkPutExisting(Cursor cursor) {
+        Object key = updates[cursor.next()];
+        return map.put(key, key);
+    }
+
+    @Benchmark
+    public Object benchmarkPutThenRemove(Cursor cursor) {
+        Object key = absent[cursor.next() % size];
+        map.put(key, key);
+        return map.remove(key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(CustomMapWorkloadBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .result("custom-map-workload-results.csv")
+                .resultFormat(ResultFormatType.CSV)
+                .build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+        writeCustomCsv(results);
+    }
+
+    private static void writeCustomCsv(Collection<RunResult> results) {
+        try (FileWriter writer = new FileWriter("CustomMapWorkload_jmh_performance.csv")) {
+            writer.write("Benchmark;Map;KeyType;Distribution;HitRatio;Size;Score (ops/us);Allocated (B/op)\n");
+            for (RunResult result : results) {
+                String benchmarkName = result.getParams().getBenchmark();
+                String shortName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+                double score = result.getPrimaryResult().getScore();
+                writer.write("\"" + shortName + "\";" + result.getParams().getParam("mapType") + ";"
+                        + result.getParams().getParam("keyType") + ";" + result.getParams().getParam("distribution")
+                        + ";" + result.getParams().getParam("hitRatio") + ";" + result.getParams().getParam("size")
+                        + ";" + score + ";" + allocatedBytesPerOp(result) + "\n");
+            }
+            System.out.println("JMH Performance report saved: CustomMapWorkload_jmh_performance.csv");
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the normalized allocation rate reported by the GC profiler, or {@code NaN} if it did not run. The
+     * label carries a leading dot on older JMH versions.
+     */
+    static double allocatedBytesPerOp(RunResult result) {
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet())
+            if (entry.getKey().endsWith("gc.alloc.rate.norm"))
+                return entry.getValue().getScore();
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,117 @@
+package custommap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Measures write throughput of {@link DurableCustomMap} under each fsync policy with several writer threads, so
+ * the effect of group commit on {@link DurableCustomMap.FsyncPolicy#EVERY_OP} can be compared with the batched and
+ * periodic policies. The log directory is created in the default temporary directory, which should be on the
+ * device being evaluated.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Threads(8)
+@Fork(1)
+public class DurableCustomMapBenchmark {
+
+    @Param({"EVERY_OP", "BATCHED", "PERIODIC"})
+    public DurableCustomMap.FsyncPolicy policy;
+
+    private final AtomicInteger writers = new AtomicInteger();
+    private Path directory;
+    private DurableCustomMap<Long, Long> map;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        directory = Files.createTempDirectory("durable-custom-map");
+        map = DurableCustomMap.open(directory, CustomMapCodec.LONG, CustomMapCodec.LONG, policy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        map.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(file);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private long next;
+
+        @Setup(Level.Trial)
+        public void setupTrial(DurableCustomMapBenchmark benchmark) {
+            next = (long) benchmark.writers.getAndIncrement() << 32;
+        }
+    }
+
+    @Benchmark
+    public Long benchmarkPut(Writer writer) {
+        long key = writer.next++;
+        return map.put(key & 0xFFFFF, key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(DurableCustomMapBenchmark.class.getSimpleName())
+                .forks(1)
+                .result("durable-custom-map-results.csv")
+                .resultFormat(ResultFormatType.CSV)
+                .build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+        writeCustomCsv(results);
+    }
+
+    private static void writeCustomCsv(Collection<RunResult> results) {
+        try (FileWriter writer = new FileWriter("DurableCustomMap_jmh_performance.csv")) {
+            writer.write("Benchmark;Policy;Score (ops/s)\n");
+            for (RunResult result : results) {
+                String benchmarkName = result.getParams().getBenchmark();
+                String shortName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+                double score = result.getPrimaryResult().getScore();
+                String policyVal = result.getParams().getParam("policy");
+
+                writer.write("\"" + shortName + "\";" + (policyVal != null ? policyVal : "N/A") + ";" + score + "\n");
+            }
+            System.out.println("JMH Performance report saved: DurableCustomMap_jmh_performance.csv");
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package custommap;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures retained heap per entry for {@link CustomMap}, {@link SwissCustomMap} and {@link HashMap}, so changes to
+ * the table or {@code Node} layout can be judged on bytes as well as time. For every map, key type and size the
+ * keys and values are generated first and the heap is measured after a forced collection; the map is then built
+ * and measured again. The difference is the map's own structure, reported per entry next to the total including
+ * keys and values, and for {@code CustomMap} next to the {@link CustomMapStats#estimatedBytes()} estimate.
+ * <p>
+ * This is not a JMH benchmark: heap occupancy is a property of a built map, not of an operation. Run it with a
+ * heap large enough for ten million entries and a stop-the-world collector, for example
+ * {@code -Xmx8g -XX:+UseSerialGC}, so {@link MemoryMXBean#gc()} leaves only live objects behind. Sizes can be
+ * given as arguments; by default 10k, 100k, 1M and 10M entries are measured.
+ *
+ * @author Benjamin Kane
+ */
+public final class FootprintHarness {
+
+    static final String REPORT = "PerformanceTesting/Footprint_performance.csv";
+    static final int[] DEFAULT_SIZES = {10_000, 100_000, 1_000_000, 10_000_000};
+    static final String[] MAP_TYPES = {"CustomMap", "SwissCustomMap", "HashMap"};
+    static final int GC_ROUNDS = 4;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private FootprintHarness() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+                sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        // Loads every class the measurements touch, so the first row does not include them
+        for (String mapType : MAP_TYPES)
+            for (BenchmarkKeys.KeyType keyType : BenchmarkKeys.KeyType.values())
+                measure(mapType, keyType, 1_000);
+
+        try (FileWriter writer = new FileWriter(REPORT)) {
+            writer.write("Map;KeyType;Size;Map (B/entry);Total (B/entry);Estimated (B/entry)\n");
+            for (BenchmarkKeys.KeyType keyType : BenchmarkKeys.KeyType.values()) {
+                for (int size : sizes) {
+                    for (String mapType : MAP_TYPES) {
+                        String row = mapType + ";" + keyType + ";" + size + ";" + measure(mapType, keyType, size);
+                        writer.write(row + "\n");
+                        writer.flush();
+                        System.out.println(row);
+                    }
+                }
+            }
+            System.out.println("Footprint report saved: " + REPORT);
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the map, total and estimated bytes per entry as the last three columns of a row.
+     */
+    static String measure(String mapType, BenchmarkKeys.KeyType keyType, int size) throws InterruptedException {
+        long empty = usedAfterGc();
+        Object[] keys = BenchmarkKeys.distinctKeys(keyType, size, 42);
+        Object[] values = BenchmarkKeys.distinctKeys(keyType, size, 43);
+        long payload = usedAfterGc();
+
+        Map<Object, Object> map = switch (mapType) {
+            case "CustomMap" -> new CustomMap<>();
+            case "SwissCustomMap" -> new SwissCustomMap<>();
+            case "HashMap" -> new HashMap<>();
+            default -> throw new IllegalArgumentException("Unknown map type: " + mapType);
+        };
+        for (int i = 0; i < size; i++)
+            map.put(keys[i], values[i]);
+        long built = usedAfterGc();
+
+        // The two reference arrays belong to the harness, so their size is taken out of the total
+        long arrays = 2 * (16 + 4L * size);
+        String estimated = map instanceof CustomMap<Object, Object> customMap
+                ? String.valueOf((double) customMap.stats().estimatedBytes() / size)
+                : "N/A";
+        Reference.reachabilityFence(keys);
+        Reference.reachabilityFence(values);
+        Reference.reachabilityFence(map);
+        return (double) (built - payload) / size + ";" + (double) (built - empty - arrays) / size + ";" + estimated;
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        for (int round = 0; round < GC_ROUNDS; round++) {
+            MEMORY.gc();
+            Thread.sleep(50);
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
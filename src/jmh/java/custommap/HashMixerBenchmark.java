@@ -0,0 +1,137 @@
+package custommap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost and benefit of each {@link HashMixer} for three key distributions:
+ * <ul>
+ *     <li>{@code RANDOM} - uniformly random integers, where every mixer spreads well;</li>
+ *     <li>{@code CLUSTERED} - sequential ids multiplied by 1024, whose low bits are all zero;</li>
+ *     <li>{@code ADVERSARIAL} - keys whose high and low halves are equal, so {@link HashMixer#SPREAD} sends
+ *     every one of them to bucket 0.</li>
+ * </ul>
+ * Half of the looked-up keys are absent from the map.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(3)
+public class HashMixerBenchmark {
+
+    @Param({"SPREAD", "MURMUR3", "SEEDED"})
+    public HashMixer mixer;
+
+    @Param({"RANDOM", "CLUSTERED", "ADVERSARIAL"})
+    public String distribution;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private CustomMap<Integer, String> map;
+    private Integer[] keys;
+    private Integer[] lookups;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        Random random = new Random(42);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = key(i, random);
+        lookups = new Integer[size * 2];
+        for (int i = 0; i < lookups.length; i++)
+            lookups[i] = i % 2 == 0 ? keys[random.nextInt(size)] : key(size + random.nextInt(size), random);
+        map = new CustomMap<>(16, mixer);
+        for (int i = 0; i < size; i++)
+            map.put(keys[i], "Value" + i);
+    }
+
+    private Integer key(int i, Random random) {
+        switch (distribution) {
+            case "CLUSTERED":
+                return i * 1024;
+            case "ADVERSARIAL":
+                return (i << 16) | (i & 0xFFFF);
+            default:
+                return random.nextInt();
+        }
+    }
+
+    @Benchmark
+    public String benchmarkGet() {
+        Integer key = lookups[cursor];
+        cursor = cursor + 1 == lookups.length ? 0 : cursor + 1;
+        return map.get(key);
+    }
+
+    @Benchmark
+    public boolean benchmarkContainsKey() {
+        Integer key = lookups[cursor];
+        cursor = cursor + 1 == lookups.length ? 0 : cursor + 1;
+        return map.containsKey(key);
+    }
+
+    @Benchmark
+    public CustomMap<Integer, String> benchmarkPut() {
+        CustomMap<Integer, String> m = new CustomMap<>(16, mixer);
+        for (Integer key : keys)
+            m.put(key, "Value");
+        return m;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HashMixerBenchmark.class.getSimpleName())
+                .forks(3)
+                .result("hash-mixer-results.csv")
+                .resultFormat(ResultFormatType.CSV)
+                .build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+        writeCustomCsv(results);
+    }
+
+    private static void writeCustomCsv(Collection<RunResult> results) {
+        try (FileWriter writer = new FileWriter("HashMixer_jmh_performance.csv")) {
+            writer.write("Benchmark;Mixer;Distribution;Size;Score (ns/op)\n");
+            for (RunResult result : results) {
+                String benchmarkName = result.getParams().getBenchmark();
+                String shortName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+                double score = result.getPrimaryResult().getScore();
+                writer.write("\"" + shortName + "\";" + result.getParams().getParam("mixer") + ";"
+                        + result.getParams().getParam("distribution") + ";" + result.getParams().getParam("size")
+                        + ";" + score + "\n");
+            }
+            System.out.println("JMH Performance report saved: HashMixer_jmh_performance.csv");
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+}
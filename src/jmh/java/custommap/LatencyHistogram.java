@@ -0,0 +1,99 @@
+package custommap;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A fixed-size log-linear histogram of latencies in nanoseconds, in the style of HdrHistogram. Values below
+ * {@value #SUB_BUCKET_COUNT} are counted exactly; above that every power-of-two range is split into
+ * {@value #SUB_BUCKET_COUNT} / 2 linear buckets, so any recorded value is reported to within about 1.6% while the
+ * whole {@code long} range fits in a few thousand counters. Recording is a shift, an add and an array increment,
+ * cheap enough to run around every operation of a benchmark loop.
+ */
+final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >>> 1;
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKET_COUNT];
+    private long totalCount;
+    private long max;
+
+    /**
+     * Returns the number of recorded values.
+     */
+    long count() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the largest recorded value, exactly.
+     */
+    long max() {
+        return max;
+    }
+
+    /**
+     * Returns the value at or below which the given percentage of recorded values fall, as the highest value
+     * equivalent to the bucket that contains it, or 0 if nothing has been recorded.
+     *
+     * @param percentile the percentile, between 0 and 100
+     */
+    long percentile(final double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            seen += counts[index];
+            if (seen >= target)
+                return Math.min(max, highestEquivalentValue(index));
+        }
+        return 0;
+    }
+
+    /**
+     * Records a latency. Negative values, which {@link System#nanoTime()} can produce across a clock adjustment,
+     * are recorded as zero.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    void record(final long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        totalCount++;
+        if (value > max)
+            max = value;
+    }
+
+    /**
+     * Writes one semicolon-separated row per non-empty bucket with the bucket's upper value, its count and the
+     * cumulative percentile, prefixed by {@code label}.
+     */
+    void writeCsv(final Writer writer, final String label) throws IOException {
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            if (counts[index] == 0)
+                continue;
+            seen += counts[index];
+            writer.write(label + ";" + Math.min(max, highestEquivalentValue(index)) + ";" + counts[index] + ";"
+                    + (100.0 * seen / totalCount) + "\n");
+        }
+    }
+
+    static long highestEquivalentValue(final int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = (index >>> (SUB_BUCKET_BITS - 1)) - 1;
+        long lowest = (long) ((index & (HALF_SUB_BUCKET_COUNT - 1)) + HALF_SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+}
@@ -0,0 +1,137 @@
+package custommap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares publishing consistent views of a configuration map by copying a {@link CustomMap}
+ * ({@code new CustomMap<>(m)}) against taking a {@link PersistentCustomMap.Transient#snapshot()}, both on their
+ * own and followed by one update, plus the lookup cost on each published view.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(3)
+public class PersistentCustomMapBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private CustomMap<Integer, String> customMap;
+    private PersistentCustomMap.Transient<Integer, String> editor;
+    private Map<Integer, String> customSnapshot;
+    private Map<Integer, String> persistentSnapshot;
+    private int[] keys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        customMap = new CustomMap<>();
+        editor = PersistentCustomMap.<Integer, String>empty().asTransient();
+        for (int i = 0; i < size; i++) {
+            customMap.put(i, "Value" + i);
+            editor.put(i, "Value" + i);
+        }
+        customSnapshot = new CustomMap<>(customMap);
+        persistentSnapshot = editor.snapshot();
+        Random random = new Random(42);
+        keys = new int[1024];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = random.nextInt(size * 2);
+    }
+
+    private int nextKey() {
+        cursor = (cursor + 1) & (keys.length - 1);
+        return keys[cursor];
+    }
+
+    @Benchmark
+    public Map<Integer, String> benchmarkCopyOnWriteSnapshot() {
+        return new CustomMap<>(customMap);
+    }
+
+    @Benchmark
+    public Map<Integer, String> benchmarkPersistentSnapshot() {
+        return editor.snapshot();
+    }
+
+    @Benchmark
+    public Map<Integer, String> benchmarkCopyOnWriteUpdate() {
+        CustomMap<Integer, String> copy = new CustomMap<>(customMap);
+        copy.put(nextKey(), "Updated");
+        return copy;
+    }
+
+    @Benchmark
+    public Map<Integer, String> benchmarkPersistentUpdate() {
+        Map<Integer, String> snapshot = editor.snapshot();
+        editor.put(nextKey(), "Updated");
+        return snapshot;
+    }
+
+    @Benchmark
+    public String benchmarkCopyOnWriteGet() {
+        return customSnapshot.get(nextKey());
+    }
+
+    @Benchmark
+    public String benchmarkPersistentGet() {
+        return persistentSnapshot.get(nextKey());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(PersistentCustomMapBenchmark.class.getSimpleName())
+                .forks(3)
+                .result("persistent-custom-map-results.csv")
+                .resultFormat(ResultFormatType.CSV)
+                .build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+        writeCustomCsv(results);
+    }
+
+    private static void writeCustomCsv(Collection<RunResult> results) {
+        try (FileWriter writer = new FileWriter("PersistentCustomMap_jmh_performance.csv")) {
+            writer.write("Benchmark;Size;Score (ns/op)\n");
+            for (RunResult result : results) {
+                String benchmarkName = result.getParams().getBenchmark();
+                String shortName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+                double score = result.getPrimaryResult().getScore();
+                String sizeVal = result.getParams().getParam("size");
+
+                writer.write("\"" + shortName + "\";" + (sizeVal != null ? sizeVal : "N/A") + ";" + score + "\n");
+            }
+            System.out.println("JMH Performance report saved: PersistentCustomMap_jmh_performance.csv");
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+}
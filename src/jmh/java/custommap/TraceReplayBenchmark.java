@@ -0,0 +1,125 @@
+package custommap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays an {@link OperationTrace} recorded with {@link RecordingCustomMap} against each map implementation, so
+ * maps can be compared on a captured access pattern instead of a synthetic one. Every invocation replays the whole
+ * trace into an empty map, including the growth it causes.
+ * <p>
+ * Pass a trace file with {@code -p traceFile=path/to/workload.trace}. Without one, a synthetic trace is recorded at
+ * setup: 100k string keys are inserted, followed by 1M operations with Zipfian key popularity, 90% of them reads,
+ * 5% writes and 5% removals, so the suite runs out of the box.
+ */
+@SuppressWarnings("unused")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(2)
+public class TraceReplayBenchmark {
+
+    static final int SYNTHETIC_KEYS = 100_000;
+    static final int SYNTHETIC_OPERATIONS = 1_000_000;
+
+    @Param({""})
+    public String traceFile;
+
+    @Param({"CustomMap", "SwissCustomMap", "HashMap"})
+    public String mapType;
+
+    private OperationTrace trace;
+    private OperationTrace.TraceKey[] keys;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        trace = traceFile.isEmpty() ? syntheticTrace() : OperationTrace.read(Path.of(traceFile));
+        keys = trace.keys();
+    }
+
+    @Benchmark
+    public int benchmarkReplay() {
+        Map<Object, Object> map = switch (mapType) {
+            case "CustomMap" -> new CustomMap<>();
+            case "SwissCustomMap" -> new SwissCustomMap<>();
+            case "HashMap" -> new HashMap<>();
+            default -> throw new IllegalArgumentException("Unknown map type: " + mapType);
+        };
+        return trace.replay(map, keys);
+    }
+
+    /**
+     * Records the synthetic workload described in the class documentation.
+     */
+    static OperationTrace syntheticTrace() {
+        Object[] present = BenchmarkKeys.distinctKeys(BenchmarkKeys.KeyType.STRING, SYNTHETIC_KEYS, 42);
+        Object[] order = BenchmarkKeys.lookups(present, present, 1.0, BenchmarkKeys.Distribution.ZIPFIAN, 7);
+        RecordingCustomMap<Object, Object> map = new RecordingCustomMap<>();
+        for (Object key : present)
+            map.put(key, key);
+        for (int i = 0; i < SYNTHETIC_OPERATIONS; i++) {
+            Object key = order[i & (order.length - 1)];
+            switch (i % 20) {
+                case 0 -> map.remove(key);
+                case 1 -> map.put(key, key);
+                default -> map.get(key);
+            }
+        }
+        return map.trace();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TraceReplayBenchmark.class.getName())
+                .result("trace-replay-results.csv")
+                .resultFormat(ResultFormatType.CSV)
+                .build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+        writeCustomCsv(results);
+    }
+
+    private static void writeCustomCsv(Collection<RunResult> results) {
+        try (FileWriter writer = new FileWriter("TraceReplay_jmh_performance.csv")) {
+            writer.write("Benchmark;Trace;Map;Score (us/trace)\n");
+            for (RunResult result : results) {
+                String benchmarkName = result.getParams().getBenchmark();
+                String shortName = benchmarkName.substring(benchmarkName.lastIndexOf('.') + 1);
+
+                String traceVal = result.getParams().getParam("traceFile");
+                double score = result.getPrimaryResult().getScore();
+                writer.write("\"" + shortName + "\";" + (traceVal == null || traceVal.isEmpty() ? "synthetic" : traceVal)
+                        + ";" + result.getParams().getParam("mapType") + ";" + score + "\n");
+            }
+            System.out.println("JMH Performance report saved: TraceReplay_jmh_performance.csv");
+        } catch (IOException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+}
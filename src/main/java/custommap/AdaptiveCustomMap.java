@@ -0,0 +1,408 @@
+package custommap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Map} that moves its mappings between representations as its workload changes, so a map that is bulk
+ * loaded, then read for a long time, then churned gets a suitable layout in each phase without the application
+ * choosing one up front.
+ * <p>
+ * Three representations are available: {@link Representation#CHAINED chained buckets} in a {@link CustomMap},
+ * {@link Representation#OPEN_ADDRESSING open addressing} in a {@link SwissCustomMap}, and a
+ * {@link Representation#FROZEN frozen} {@link FrozenCustomMap}, which is the fastest to read but cannot be
+ * modified. Reads, writes and removals are counted as they happen. At the end of every epoch, which lasts as many
+ * operations as the map holds mappings and at least {@value #MINIMUM_EPOCH}, the counters and the current shape of
+ * the map are summarized in a {@link Workload} and handed to the {@link Policy}, which names the representation for
+ * the next epoch. Like a resize, a migration copies every mapping once, and because an epoch is at least as long as
+ * the map is large, the copying costs a constant amount per operation. A write to a frozen map cannot wait for the
+ * epoch to end: it first migrates the map back to the representation it had before it was frozen.
+ * <p>
+ * The current representation, the number of migrations and the last workload summary are exposed through
+ * {@link #representation()}, {@link #switchCount()} and {@link #lastWorkload()}; migrations are also recorded as
+ * JDK Flight Recorder events when {@link CustomMapEvents} are enabled. Iterating the map does not count as reads;
+ * removals through an iterator count as removals, but an epoch they complete only ends when the iteration does.
+ * Null keys are not permitted; null values are. Like {@link CustomMap}, this class is not thread-safe.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class AdaptiveCustomMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * The layouts an {@code AdaptiveCustomMap} can hold its mappings in.
+     */
+    public enum Representation {
+        /** Separate chaining in a {@link CustomMap}. Shrinks after removals and tolerates heavy churn. */
+        CHAINED,
+        /** Open addressing in a {@link SwissCustomMap}. No per-entry objects and fast lookups. */
+        OPEN_ADDRESSING,
+        /** A read-only {@link FrozenCustomMap}. The fastest lookups, but every write migrates the map. */
+        FROZEN
+    }
+
+    /**
+     * Chooses the representation of an {@code AdaptiveCustomMap} for its next epoch.
+     */
+    @FunctionalInterface
+    public interface Policy {
+
+        /**
+         * Returns the representation the map should use for the next epoch. Returning
+         * {@link Workload#current()} keeps the current one.
+         *
+         * @param workload the operations counted during the epoch that just ended and the shape of the map
+         * @return the representation for the next epoch, not null
+         */
+        Representation choose(Workload workload);
+    }
+
+    /**
+     * The operations counted during one epoch of an {@code AdaptiveCustomMap}, and its shape at the end of it.
+     *
+     * @param current the representation during the epoch
+     * @param size the number of mappings
+     * @param reads the number of {@code get}, {@code getOrDefault} and {@code containsKey} calls
+     * @param writes the number of {@code put} and {@code clear} calls
+     * @param removes the number of {@code remove} calls
+     * @param averageChain the mean length of the non-empty bucket chains, or {@code NaN} unless the map is
+     *                     {@link Representation#CHAINED chained}
+     */
+    public record Workload(Representation current, int size, long reads, long writes, long removes,
+                           double averageChain) {
+
+        /**
+         * Returns the number of operations counted during the epoch.
+         *
+         * @return the sum of reads, writes and removes
+         */
+        public long operations() {
+            return reads + writes + removes;
+        }
+    }
+
+    static final int MINIMUM_EPOCH = 1024;
+    static final int FREEZE_MINIMUM_SIZE = 64;
+    static final double LONG_CHAIN = 2.0;
+
+    private static final Policy DEFAULT_POLICY = workload -> {
+        if (workload.writes() == 0 && workload.removes() == 0 && workload.size() >= FREEZE_MINIMUM_SIZE)
+            return Representation.FROZEN;
+        if (workload.removes() * 4 >= workload.operations())
+            return Representation.CHAINED;
+        if (workload.reads() * 10 >= workload.operations() * 9 || workload.averageChain() >= LONG_CHAIN)
+            return Representation.OPEN_ADDRESSING;
+        return workload.current() == Representation.FROZEN ? Representation.CHAINED : workload.current();
+    };
+
+    private final Policy policy;
+    private Map<K, V> delegate = new CustomMap<>();
+    private Representation representation = Representation.CHAINED;
+    private Representation thawTo = Representation.CHAINED;
+    private Workload lastWorkload;
+    private long reads;
+    private long writes;
+    private long removes;
+    private int countdown = MINIMUM_EPOCH;
+    private long switchCount;
+
+    /**
+     * Constructs an empty, chained {@code AdaptiveCustomMap} governed by the {@link #defaultPolicy()}.
+     */
+    public AdaptiveCustomMap() {
+        this(DEFAULT_POLICY);
+    }
+
+    /**
+     * Constructs an empty, chained {@code AdaptiveCustomMap} governed by the specified policy.
+     *
+     * @param policy the policy that chooses the representation at the end of each epoch
+     * @throws NullPointerException if the policy is null
+     */
+    public AdaptiveCustomMap(final Policy policy) {
+        this.policy = requireNonNull(policy, "Policy must not be null.");
+    }
+
+    /**
+     * Returns the policy used by {@link #AdaptiveCustomMap()}. It freezes a map of at least
+     * {@value #FREEZE_MINIMUM_SIZE} mappings after an epoch without writes or removals, chooses chained buckets
+     * when removals make up a quarter or more of an epoch, since open addressing leaves tombstones and never
+     * shrinks, and chooses open addressing when nine in ten operations are reads or the average chain reaches
+     * {@value #LONG_CHAIN}. Otherwise the current representation is kept, and a thawed map stays chained.
+     *
+     * @return the default policy
+     */
+    public static Policy defaultPolicy() {
+        return DEFAULT_POLICY;
+    }
+
+    /**
+     * Removes all mappings from this map. A frozen map is replaced by an empty map of the representation it had
+     * before it was frozen.
+     */
+    public void clear() {
+        if (representation == Representation.FROZEN) {
+            representation = thawTo;
+            delegate = create(thawTo);
+            switchCount++;
+        } else
+            delegate.clear();
+        writes++;
+        tick();
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     * @throws NullPointerException if the key is null
+     */
+    public boolean containsKey(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        boolean contains = delegate.containsKey(key);
+        reads++;
+        tick();
+        return contains;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings in this map. The view supports removal through its iterator,
+     * and {@link Map.Entry#setValue(Object)} writes through to this map.
+     *
+     * @return a set view of the mappings
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if there is none.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V get(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        V value = delegate.get(key);
+        reads++;
+        tick();
+        return value;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code defaultValue} if there is none.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key is not mapped
+     * @return the value mapped to the key, or {@code defaultValue}
+     * @throws NullPointerException if the key is null
+     */
+    public V getOrDefault(final Object key, final V defaultValue) {
+        requireNonNull(key, "Key value must not be null.");
+        V value = delegate.getOrDefault(key, defaultValue);
+        reads++;
+        tick();
+        return value;
+    }
+
+    /**
+     * Returns the workload summary passed to the policy at the end of the last epoch.
+     *
+     * @return the last workload, or {@code null} if no epoch has ended yet
+     */
+    public Workload lastWorkload() {
+        return lastWorkload;
+    }
+
+    /**
+     * Associates the specified value with the specified key, thawing the map first if it is frozen.
+     *
+     * @param key the key with which the value is to be associated
+     * @param value the value to be associated with the key
+     * @return the previous value mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V put(final K key, final V value) {
+        requireNonNull(key, "Key value must not be null.");
+        if (representation == Representation.FROZEN)
+            migrate(thawTo);
+        V previous = delegate.put(key, value);
+        writes++;
+        tick();
+        return previous;
+    }
+
+    /**
+     * Removes the mapping for the specified key if it is present, thawing the map first if it is frozen and
+     * holds the key.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return the value that was mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V remove(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        if (representation == Representation.FROZEN && delegate.containsKey(key))
+            migrate(thawTo);
+        V value = representation == Representation.FROZEN ? null : delegate.remove(key);
+        removes++;
+        tick();
+        return value;
+    }
+
+    /**
+     * Returns the representation that currently holds the mappings.
+     *
+     * @return the current representation
+     */
+    public Representation representation() {
+        return representation;
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return delegate.size();
+    }
+
+    /**
+     * Returns the number of times this map has migrated between representations, including thaws forced by
+     * writes to a frozen map.
+     *
+     * @return the cumulative switch count
+     */
+    public long switchCount() {
+        return switchCount;
+    }
+
+    private double averageChain() {
+        if (!(delegate instanceof CustomMap<K, V> chained))
+            return Double.NaN;
+        CustomMapStats stats = chained.stats();
+        double occupied = stats.capacity() * (1 - stats.emptyBucketRatio());
+        return occupied == 0 ? 0 : stats.size() / occupied;
+    }
+
+    private static <K, V> Map<K, V> create(final Representation representation) {
+        return representation == Representation.OPEN_ADDRESSING ? new SwissCustomMap<>() : new CustomMap<>();
+    }
+
+    /**
+     * Ends the epoch: summarizes it for the policy, migrates if the policy asks for another representation, and
+     * starts an epoch as long as the map is large.
+     */
+    private void endEpoch() {
+        lastWorkload = new Workload(representation, delegate.size(), reads, writes, removes, averageChain());
+        Representation next = requireNonNull(policy.choose(lastWorkload), "Policy must not choose null.");
+        if (next != representation)
+            migrate(next);
+        reads = 0;
+        writes = 0;
+        removes = 0;
+        countdown = Math.max(MINIMUM_EPOCH, delegate.size());
+    }
+
+    private void migrate(final Representation next) {
+        RepresentationSwitchEvent event = CustomMapEvents.beginSwitch(representation.name(), next.name(),
+                delegate.size());
+        Map<K, V> source = delegate;
+        delegate = switch (next) {
+            case CHAINED -> new CustomMap<>(source);
+            case OPEN_ADDRESSING -> new SwissCustomMap<>(source);
+            case FROZEN -> (source instanceof CustomMap<K, V> chained ? chained : new CustomMap<>(source)).freeze();
+        };
+        if (next == Representation.FROZEN)
+            thawTo = representation;
+        representation = next;
+        switchCount++;
+        CustomMapEvents.endSwitch(event);
+    }
+
+    private void tick() {
+        if (--countdown <= 0)
+            endEpoch();
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, V>> {
+        public int size() {
+            return delegate.size();
+        }
+
+        public void clear() {
+            AdaptiveCustomMap.this.clear();
+        }
+
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator(delegate);
+        }
+    }
+
+    /**
+     * Iterates the representation that was current when iteration began. While it is still current, removals go
+     * through its own iterator, which never rehashes the table being walked; after a migration they go through
+     * the new representation, and a frozen one is thawed first. Value updates go through the map. Removals are
+     * counted, but an epoch they complete only ends once the iteration does, or at the next counted operation, so
+     * the map does not migrate because of the iteration itself.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Map<K, V> source;
+        private final Iterator<Map.Entry<K, V>> iterator;
+        private K lastReturned;
+        private boolean canRemove;
+
+        EntryIterator(final Map<K, V> source) {
+            this.source = source;
+            this.iterator = source.entrySet().iterator();
+        }
+
+        public boolean hasNext() {
+            boolean hasNext = iterator.hasNext();
+            if (!hasNext && countdown <= 0)
+                endEpoch();
+            return hasNext;
+        }
+
+        public Map.Entry<K, V> next() {
+            Map.Entry<K, V> entry = iterator.next();
+            lastReturned = entry.getKey();
+            canRemove = true;
+            return new WriteThroughEntry(lastReturned, entry.getValue());
+        }
+
+        public void remove() {
+            if (!canRemove)
+                throw new IllegalStateException();
+            if (representation == Representation.FROZEN)
+                migrate(thawTo);
+            if (delegate == source)
+                iterator.remove();
+            else
+                delegate.remove(lastReturned);
+            removes++;
+            countdown--;
+            canRemove = false;
+        }
+    }
+
+    private final class WriteThroughEntry extends SimpleEntry<K, V> {
+        WriteThroughEntry(final K key, final V value) {
+            super(key, value);
+        }
+
+        public V setValue(final V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
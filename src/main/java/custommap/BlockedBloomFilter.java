@@ -0,0 +1,124 @@
+package custommap;
+
+/**
+ * A split-block Bloom filter over the mixed hashes of a {@link CustomMap}'s keys, used to answer most lookups for
+ * absent keys without loading a bucket or walking its chain.
+ * <p>
+ * The bits are grouped into 512-bit blocks of eight {@code long} words, the size of a cache line. A hash selects one
+ * block and sets or tests one bit in each of its eight words, so every operation touches a single cache line and
+ * never branches on the individual bits. The bit within each word is taken from the product of the hash and a
+ * per-word odd constant, as in the split-block filters of Apache Parquet and Impala.
+ * <p>
+ * Bits cannot be cleared, so removed keys keep answering "maybe" until the owning map rebuilds the filter. The
+ * filter counts its insertions so the map can rebuild it before stale bits inflate the false-positive rate.
+ *
+ * @author Benjamin Kane
+ */
+final class BlockedBloomFilter {
+
+    static final int WORDS_PER_BLOCK = 8;
+    static final int BLOCK_BITS = WORDS_PER_BLOCK * Long.SIZE;
+
+    private static final int[] SALT = {
+            0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d, 0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31};
+
+    private final long[] words;
+    private final int blocks;
+    private final int expectedKeys;
+    private final double falsePositiveRate;
+    private int insertions;
+
+    /**
+     * Constructs an empty filter with enough blocks to hold {@code expectedKeys} hashes at the specified
+     * false-positive rate.
+     *
+     * @param expectedKeys the number of hashes the filter is sized for
+     * @param falsePositiveRate the target probability that an absent hash is reported as present
+     */
+    BlockedBloomFilter(final int expectedKeys, final double falsePositiveRate) {
+        this.expectedKeys = Math.max(1, expectedKeys);
+        this.falsePositiveRate = falsePositiveRate;
+        long bits = (long) Math.ceil(this.expectedKeys * bitsPerKey(falsePositiveRate));
+        this.blocks = (int) Math.min(Integer.MAX_VALUE / WORDS_PER_BLOCK,
+                Math.max(1, (bits + BLOCK_BITS - 1) / BLOCK_BITS));
+        this.words = new long[blocks * WORDS_PER_BLOCK];
+    }
+
+    /**
+     * Returns the bits per key a split-block filter needs for the specified false-positive rate. With one bit set
+     * in each of eight words the rate is about {@code (1 - e^(-8 / bitsPerKey))^8}, which is solved for
+     * {@code bitsPerKey}; 1% takes about 9.7 bits per key and 0.1% about 14.6.
+     *
+     * @param falsePositiveRate the target false-positive rate, between 0 and 1 exclusive
+     * @return the number of bits per key
+     */
+    static double bitsPerKey(final double falsePositiveRate) {
+        return -WORDS_PER_BLOCK / Math.log1p(-Math.pow(falsePositiveRate, 1.0 / WORDS_PER_BLOCK));
+    }
+
+    /**
+     * Adds a hash to the filter.
+     *
+     * @param hash the mixed hash of a key
+     * @return {@code false} once the filter has absorbed half again as many insertions as it was sized for, so
+     *         the caller should rebuild it from the live keys
+     */
+    boolean add(final int hash) {
+        int base = block(hash) * WORDS_PER_BLOCK;
+        long[] w = words;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++)
+            w[base + i] |= 1L << ((hash * SALT[i]) >>> 26);
+        return ++insertions <= expectedKeys + (expectedKeys >>> 1);
+    }
+
+    /**
+     * Returns the number of bytes used by the filter's bit array, excluding the array header.
+     *
+     * @return the size of the filter in bytes
+     */
+    long bytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    /**
+     * Returns the number of hashes this filter is sized for.
+     *
+     * @return the expected number of keys
+     */
+    int expectedKeys() {
+        return expectedKeys;
+    }
+
+    /**
+     * Returns the false-positive rate this filter was sized for.
+     *
+     * @return the target false-positive rate
+     */
+    double falsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Returns {@code false} if the hash was definitely never added, and {@code true} if it may have been.
+     *
+     * @param hash the mixed hash of a key
+     * @return whether a key with this hash may be present
+     */
+    boolean mightContain(final int hash) {
+        int base = block(hash) * WORDS_PER_BLOCK;
+        long[] w = words;
+        long missing = 0;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++)
+            missing |= ~w[base + i] & (1L << ((hash * SALT[i]) >>> 26));
+        return missing == 0;
+    }
+
+    /**
+     * Selects a block from the hash's bits after a multiplicative remix, so maps whose mixer leaves the low bits
+     * weak still spread over all blocks. The multiply-shift reduction avoids requiring a power-of-two block count.
+     */
+    private int block(final int hash) {
+        long mixed = (hash * 0x9E3779B97F4A7C15L) >>> 32;
+        return (int) ((mixed * blocks) >>> 32);
+    }
+}
@@ -0,0 +1,29 @@
+package custommap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records an operation that walks every bucket of a {@link CustomMap}, such as {@code containsValue},
+ * {@code equals}, {@code hashCode} or {@code toString}.
+ *
+ * @author Benjamin Kane
+ */
+@Name("custommap.BulkScan")
+@Label("CustomMap Bulk Scan")
+@Category("CustomMap")
+@Description("Operation that walks every bucket of a CustomMap table")
+final class BulkScanEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Size")
+    int size;
+}
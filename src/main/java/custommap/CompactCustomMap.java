@@ -0,0 +1,369 @@
+package custommap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Map} for the common case of a handful of entries, such as per-request attributes, that allocates
+ * nothing until the first insertion and no per-entry objects while it is small.
+ * <p>
+ * Up to {@value #COMPACT_THRESHOLD} mappings are stored in a single {@code Object[]} of interleaved keys and values
+ * and found by a linear scan, which for so few keys is as fast as hashing and avoids a table and a {@code Node} per
+ * entry. The array starts with room for {@value #INITIAL_ENTRIES} mappings and doubles as needed. Adding one more
+ * mapping promotes the map to a {@link CustomMap}; removing mappings until no more than {@value #DEMOTE_THRESHOLD}
+ * remain, through {@link #remove(Object)} or an iterator of one of the map's views, demotes it back to the array.
+ * The gap between the two thresholds keeps a map whose size hovers around the limit from converting on every
+ * operation.
+ * <p>
+ * Iteration order is unspecified and removals may reorder the remaining mappings. Null keys are not permitted;
+ * null values are. Like {@link CustomMap}, this class is not thread-safe.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class CompactCustomMap<K, V> extends AbstractMap<K, V> {
+
+    static final int COMPACT_THRESHOLD = 8;
+    static final int DEMOTE_THRESHOLD = COMPACT_THRESHOLD / 2;
+    static final int INITIAL_ENTRIES = 2;
+
+    private Object[] entries;
+    private int size;
+    private CustomMap<K, V> table;
+
+    /**
+     * Constructs an empty {@code CompactCustomMap}. No storage is allocated until the first insertion.
+     */
+    public CompactCustomMap() {
+    }
+
+    /**
+     * Removes all mappings from this map. A map that holds its mappings in the array keeps the array for reuse;
+     * a promoted map releases its table and starts again unallocated.
+     */
+    public void clear() {
+        if (table != null) {
+            table = null;
+            entries = null;
+        } else if (entries != null)
+            Arrays.fill(entries, 0, size << 1, null);
+        size = 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     * @throws NullPointerException if the key is null
+     */
+    public boolean containsKey(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        return table != null ? table.containsKey(key) : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the specified value.
+     *
+     * @param value the value whose presence is to be tested
+     * @return {@code true} if a mapping to the value exists
+     */
+    public boolean containsValue(final Object value) {
+        if (table != null)
+            return table.containsValue(value);
+        for (int i = 0; i < size; i++)
+            if (Objects.equals(entries[(i << 1) + 1], value))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings in this map. The view supports removal through its iterator,
+     * and {@link Map.Entry#setValue(Object)} writes through to this map.
+     *
+     * @return a set view of the mappings
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView();
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @param action the action to perform
+     * @throws NullPointerException if the action is null
+     */
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        requireNonNull(action, "BiConsumer must not be null.");
+        if (table != null)
+            table.forEach(action);
+        else
+            for (int i = 0; i < size; i++)
+                action.accept(keyAt(i), valueAt(i));
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if there is none.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V get(final Object key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code defaultValue} if there is none.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key is not mapped
+     * @return the value mapped to the key, or {@code defaultValue}
+     * @throws NullPointerException if the key is null
+     */
+    public V getOrDefault(final Object key, final V defaultValue) {
+        requireNonNull(key, "Key value must not be null.");
+        if (table != null)
+            return table.getOrDefault(key, defaultValue);
+        int index = indexOf(key);
+        return index >= 0 ? valueAt(index) : defaultValue;
+    }
+
+    /**
+     * Associates the specified value with the specified key, promoting this map to a {@link CustomMap} if the
+     * key is new and the array is full.
+     *
+     * @param key the key with which the value is to be associated
+     * @param value the value to be associated with the key
+     * @return the previous value mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V put(final K key, final V value) {
+        requireNonNull(key, "Key value must not be null.");
+        if (table != null)
+            return table.put(key, value);
+        int index = indexOf(key);
+        if (index >= 0) {
+            V previous = valueAt(index);
+            entries[(index << 1) + 1] = value;
+            return previous;
+        }
+        if (size == COMPACT_THRESHOLD) {
+            promote();
+            return table.put(key, value);
+        }
+        if (entries == null)
+            entries = new Object[INITIAL_ENTRIES << 1];
+        else if (size << 1 == entries.length)
+            entries = Arrays.copyOf(entries, entries.length << 1);
+        entries[size << 1] = key;
+        entries[(size << 1) + 1] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the specified key if it is present, demoting this map to the array if it was
+     * promoted and no more than {@value #DEMOTE_THRESHOLD} mappings remain.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return the value that was mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V remove(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        if (table != null) {
+            V value = table.remove(key);
+            if (table.size() <= DEMOTE_THRESHOLD)
+                demote();
+            return value;
+        }
+        int index = indexOf(key);
+        if (index < 0)
+            return null;
+        V value = valueAt(index);
+        removeAt(index);
+        return value;
+    }
+
+    /**
+     * Replaces each value with the result of applying the function to its mapping.
+     *
+     * @param function the function that computes new values
+     * @throws NullPointerException if the function is null
+     */
+    public void replaceAll(final BiFunction<? super K, ? super V, ? extends V> function) {
+        requireNonNull(function, "BiFunction must not be null.");
+        if (table != null)
+            table.replaceAll(function);
+        else
+            for (int i = 0; i < size; i++)
+                entries[(i << 1) + 1] = function.apply(keyAt(i), valueAt(i));
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return table != null ? table.size() : size;
+    }
+
+    /**
+     * Returns {@code true} if the mappings are held in the array rather than a promoted {@link CustomMap}.
+     */
+    boolean isCompact() {
+        return table == null;
+    }
+
+    private void demote() {
+        Object[] demoted = new Object[COMPACT_THRESHOLD << 1];
+        int count = 0;
+        for (Map.Entry<K, V> entry : table.entrySet()) {
+            demoted[count << 1] = entry.getKey();
+            demoted[(count << 1) + 1] = entry.getValue();
+            count++;
+        }
+        entries = demoted;
+        size = count;
+        table = null;
+    }
+
+    private int indexOf(final Object key) {
+        Object[] tab = entries;
+        for (int i = 0; i < size; i++) {
+            Object candidate = tab[i << 1];
+            if (candidate == key || key.equals(candidate))
+                return i;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K keyAt(final int index) {
+        return (K) entries[index << 1];
+    }
+
+    private void promote() {
+        CustomMap<K, V> promoted = new CustomMap<>();
+        for (int i = 0; i < size; i++)
+            promoted.put(keyAt(i), valueAt(i));
+        table = promoted;
+        entries = null;
+        size = 0;
+    }
+
+    /**
+     * Moves the last mapping into the slot of the removed one, so the array stays dense.
+     */
+    private void removeAt(final int index) {
+        int last = --size;
+        entries[index << 1] = entries[last << 1];
+        entries[(index << 1) + 1] = entries[(last << 1) + 1];
+        entries[last << 1] = null;
+        entries[(last << 1) + 1] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(final int index) {
+        return (V) entries[(index << 1) + 1];
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, V>> {
+        public int size() {
+            return CompactCustomMap.this.size();
+        }
+
+        public void clear() {
+            CompactCustomMap.this.clear();
+        }
+
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return table != null ? new PromotedIterator() : new EntryIterator(0);
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int next;
+        private int lastReturned = -1;
+
+        EntryIterator(final int next) {
+            this.next = next;
+        }
+
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        public Map.Entry<K, V> next() {
+            if (next >= size)
+                throw new NoSuchElementException();
+            lastReturned = next++;
+            return new WriteThroughEntry(keyAt(lastReturned), valueAt(lastReturned));
+        }
+
+        public void remove() {
+            if (lastReturned < 0)
+                throw new IllegalStateException();
+            removeAt(lastReturned);
+            next = lastReturned;
+            lastReturned = -1;
+        }
+    }
+
+    /**
+     * Iterates the promoted table, and demotes the map when a removal leaves no more than
+     * {@value #DEMOTE_THRESHOLD} mappings. The array is filled in the table's iteration order, so the entries not
+     * yet returned are its last ones, and the iteration continues over them.
+     */
+    private final class PromotedIterator implements Iterator<Map.Entry<K, V>> {
+        private final Iterator<Map.Entry<K, V>> delegate = table.entrySet().iterator();
+        private EntryIterator compact;
+
+        public boolean hasNext() {
+            return compact != null ? compact.hasNext() : delegate.hasNext();
+        }
+
+        public Map.Entry<K, V> next() {
+            return compact != null ? compact.next() : delegate.next();
+        }
+
+        public void remove() {
+            if (compact != null) {
+                compact.remove();
+                return;
+            }
+            delegate.remove();
+            if (table.size() > DEMOTE_THRESHOLD)
+                return;
+            int remaining = 0;
+            for (; delegate.hasNext(); delegate.next())
+                remaining++;
+            demote();
+            compact = new EntryIterator(size - remaining);
+        }
+    }
+
+    private final class WriteThroughEntry extends SimpleEntry<K, V> {
+        WriteThroughEntry(final K key, final V value) {
+            super(key, value);
+        }
+
+        public V setValue(final V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -1,16 +1,38 @@
 package custommap;
 
 import java.util.AbstractCollection;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 import static java.util.Objects.requireNonNull;
 
@@ -20,6 +42,7 @@ import static java.util.Objects.requireNonNull;
  * on keys and values using the provided {@code Class<K>} and {@code Class<V>}. Null values are permitted
  * in some operations (e.g., {@code put}) but not others (e.g., {@code replace}). The map resizes
  * automatically based on a load factor of 0.75, using power-of-two capacity sizing and bitwise masking.
+ * Key hash codes are spread across buckets by a configurable {@link HashMixer}.
  * <p>
  * This implementation is not synchronized and does not guarantee detection of concurrent modifications.
  * Methods like {@code compute} and {@code forEach} may produce undefined behavior if the map is modified
@@ -38,11 +61,30 @@ public class CustomMap<K, V> implements Map<K, V> {
 
     private int mapSize;
     private int size = 0;
+    private final HashMixer hashMixer;
+    private final int hashSeed;
+    private long expandCount;
+    private long reduceCount;
+    private Metrics metrics;
+    private BlockedBloomFilter bloomFilter;
+    private ValueInterner<V> interner;
     private static final double LOAD_FACTOR = 0.75f;
     private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int MAXIMUM_INITIAL_CAPACITY = 1 << 24;
+    private static final int FORMAT_MAGIC = 0x434D4150;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int PARALLEL_CHUNK = 1 << 12;
+    /**
+     * The table of every map that has not stored a mapping yet. It has a single bucket that is never written,
+     * so lookups mask to bucket 0 and miss without a separate check, and a new map allocates nothing.
+     */
+    private static final Node<?, ?>[] EMPTY_TABLE = new Node<?, ?>[1];
 
     /**
-     * Constructs an empty {@code CustomMap} with an initial capacity of 16 buckets.
+     * Constructs an empty {@code CustomMap} with an initial capacity of 16 buckets. The table is allocated
+     * by the first insertion.
      */
     public CustomMap() {
         this(16);
@@ -56,6 +98,21 @@ public class CustomMap<K, V> implements Map<K, V> {
      * @throws IllegalArgumentException if the initial capacity is negative
      */
     public CustomMap(int initialCapacity) {
+        this(initialCapacity, HashMixer.SPREAD);
+    }
+
+    /**
+     * Constructs an empty {@code CustomMap} with the specified initial capacity and hash mixing function.
+     * The capacity is automatically rounded up to the nearest power of two, and a capacity above 2^24 starts
+     * at 2^24 and grows as mappings are added. A {@link HashMixer#SEEDED} map draws its own random seed.
+     *
+     * @param initialCapacity the initial capacity
+     * @param hashMixer the function used to spread key hash codes across buckets
+     * @throws IllegalArgumentException if the initial capacity is negative
+     * @throws NullPointerException if the hash mixer is null
+     */
+    public CustomMap(int initialCapacity, final HashMixer hashMixer) {
+        requireNonNull(hashMixer, "Hash mixer must not be null.");
         if (initialCapacity < 0)
             throw new IllegalArgumentException("Initial capacity must not be negative: " + initialCapacity);
         if (initialCapacity > MAXIMUM_CAPACITY)
@@ -65,8 +122,10 @@ public class CustomMap<K, V> implements Map<K, V> {
             capacity <<= 1;
         if (capacity > MAXIMUM_CAPACITY)
             capacity = MAXIMUM_CAPACITY;
-        this.mapSize = capacity;
-        this.map = new Node[Math.min(capacity, 1 << 24)];
+        this.mapSize = Math.min(capacity, MAXIMUM_INITIAL_CAPACITY);
+        this.map = (Node<K, V>[]) EMPTY_TABLE;
+        this.hashMixer = hashMixer;
+        this.hashSeed = hashMixer.newSeed();
     }
 
     /**
@@ -79,12 +138,24 @@ public class CustomMap<K, V> implements Map<K, V> {
         putAll(m);
     }
 
+    /**
+     * Constructs an empty {@code CustomMap} that hashes keys exactly as another map does, so nodes can be copied
+     * between the two with their stored hashes.
+     */
+    private CustomMap(final HashMixer hashMixer, final int hashSeed) {
+        this.mapSize = 16;
+        this.map = (Node<K, V>[]) EMPTY_TABLE;
+        this.hashMixer = hashMixer;
+        this.hashSeed = hashSeed;
+    }
+
     /**
      * Removes all mappings from this map (optional operation). The map will be empty after this call,
      * with its internal array reset to the initial capacity (16 buckets).
      *
      * @implSpec
-     * This implementation creates a new array of size equal to the initial capacity (16), and resets the size to 0.
+     * This implementation clears a table of at most 16 buckets in place. A larger table is released, and a new
+     * one of 16 buckets is allocated by the next insertion.
      * (<a href="{@docRoot}/java.base/java/util/Map.html#optional-restrictions">optional</a>)
      */
     public void clear() {
@@ -94,9 +165,11 @@ public class CustomMap<K, V> implements Map<K, V> {
             Arrays.fill(tab, null);
         }
         if (mapSize > 16) {
-            this.map = (Node<K, V>[]) new Node[16];
+            this.map = (Node<K, V>[]) EMPTY_TABLE;
             this.mapSize = 16;
         }
+        if (bloomFilter != null)
+            rebuildBloomFilter();
     }
 
     /**
@@ -129,7 +202,7 @@ public class CustomMap<K, V> implements Map<K, V> {
             previous = current;
             current = current.next;
         }
-        V newValue = remappingFunction.apply(key, (current == null) ? null : current.value);
+        V newValue = intern(remappingFunction.apply(key, (current == null) ? null : current.value));
         if (newValue == null) {
             if (current != null)
                 remove(previous, index, current);
@@ -138,8 +211,14 @@ public class CustomMap<K, V> implements Map<K, V> {
         if (current != null)
             current.value = newValue;
         else {
+            if (tab == EMPTY_TABLE)
+                index = hash & ((tab = table()).length - 1);
             map[index] = new Node<>(hash, key, newValue, tab[index]);
             size++;
+            if (bloomFilter != null)
+                addToBloomFilter(hash);
+            if (CustomMapEvents.ENABLED)
+                checkChainLength(index);
             if (size > (mapSize - (mapSize >>> 2)))
                 expand();
         }
@@ -168,10 +247,16 @@ public class CustomMap<K, V> implements Map<K, V> {
         for (Node<K, V> e = tab[index]; e != null; e = e.next)
             if (e.key.equals(key))
                 return e.value;
-        V newValue = mappingFunction.apply(key);
+        V newValue = intern(mappingFunction.apply(key));
         if (newValue != null) {
+            if (tab == EMPTY_TABLE)
+                index = hash & ((tab = table()).length - 1);
             tab[index] = new Node<>(hash, key, newValue, tab[index]);
             size++;
+            if (bloomFilter != null)
+                addToBloomFilter(hash);
+            if (CustomMapEvents.ENABLED)
+                checkChainLength(index);
             if (size > (mapSize - (mapSize >>> 2)))
                 expand();
         }
@@ -199,7 +284,7 @@ public class CustomMap<K, V> implements Map<K, V> {
         while (current != null) {
             if (current.key.equals(key)) {
                 V oldValue = current.value;
-                V newValue = remappingFunction.apply(key, oldValue);
+                V newValue = intern(remappingFunction.apply(key, oldValue));
                 if (newValue == null) {
                     remove(previous, index, current);
                     return null;
@@ -225,10 +310,17 @@ public class CustomMap<K, V> implements Map<K, V> {
     public boolean containsKey(final Object key) {
         requireNonNull(key, "Key value must not be null.");
         Node<K, V>[] tab = map;
-        int index = hash(key) & (tab.length - 1);
-        for (Node<K, V> node = tab[index]; node != null; node = node.next)
-            if (node.key.equals(key))
-                return true;
+        int hash = hash(key);
+        BlockedBloomFilter filter = bloomFilter;
+        if (filter == null || filter.mightContain(hash))
+            for (Node<K, V> node = tab[hash & (tab.length - 1)]; node != null; node = node.next)
+                if (node.key.equals(key)) {
+                    if (metrics != null)
+                        metrics.hits.increment();
+                    return true;
+                }
+        if (metrics != null)
+            metrics.misses.increment();
         return false;
     }
 
@@ -242,11 +334,142 @@ public class CustomMap<K, V> implements Map<K, V> {
      */
     public boolean containsValue(final Object value) {
         Node<K, V>[] tab = map;
-        for (int i = 0; i < tab.length; i++)
-            for (Node<K, V> node = tab[i]; node != null; node = node.next)
-                if (Objects.equals(node.value, value))
-                    return true;
-        return false;
+        BulkScanEvent event = CustomMapEvents.beginScan("containsValue", tab.length, size);
+        try {
+            for (int i = 0; i < tab.length; i++)
+                for (Node<K, V> node = tab[i]; node != null; node = node.next)
+                    if (Objects.equals(node.value, value))
+                        return true;
+            return false;
+        } finally {
+            CustomMapEvents.endScan(event);
+        }
+    }
+
+    /**
+     * Returns a new map holding the mappings of this map whose keys are not in the specified map. This map and
+     * the other map are not modified.
+     * <p>
+     * When both maps use the same {@link HashMixer} and seed, every key is looked up in the other map by the
+     * hash stored in its node, so no {@code hashCode} is computed, and the result reuses the stored hashes and
+     * bucket layout of this map. Maps of at least 65,536 mappings are processed by bucket range in parallel on
+     * the common fork-join pool. Neither map may be modified concurrently.
+     *
+     * @param other the map whose keys are excluded
+     * @return a new map with the same hash mixer and seed as this map
+     * @throws NullPointerException if the other map is null
+     */
+    public CustomMap<K, V> difference(final CustomMap<?, ?> other) {
+        return filterKeys(other, false);
+    }
+
+    /**
+     * Discards this map's Bloom filter, so lookups go straight to the table again. Does nothing if the filter is
+     * not enabled.
+     */
+    public void disableBloomFilter() {
+        bloomFilter = null;
+    }
+
+    /**
+     * Stops canonicalizing values and discards the interning pool. Values already stored keep sharing instances,
+     * but {@link #stats()} no longer reports them. Does nothing if value interning is not enabled.
+     */
+    public void disableValueInterning() {
+        interner = null;
+    }
+
+    /**
+     * Unregisters this map's MXBean and stops counting operations. Does nothing if metrics are not enabled.
+     *
+     * @throws IllegalStateException if the MXBean cannot be unregistered
+     */
+    public void disableMetrics() {
+        Metrics current = metrics;
+        if (current == null)
+            return;
+        metrics = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(current.objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister CustomMap MXBean " + current.objectName, e);
+        }
+    }
+
+    /**
+     * Puts a cache-line-blocked Bloom filter in front of the table, so {@link #get(Object)},
+     * {@link #getOrDefault(Object, Object)} and {@link #containsKey(Object)} answer most lookups for absent keys
+     * without loading a bucket or walking its chain. This pays off when misses are common and chains are long or
+     * keys are expensive to compare; when nearly every lookup hits, the filter only adds work.
+     * <p>
+     * The filter is sized for the table's resize threshold and rebuilt from the live keys whenever the table is
+     * resized or cleared. Removed keys are not cleared from it, so it is also rebuilt once insertions exceed its
+     * size by half. Its memory cost follows from the false-positive rate: about 9.7 bits per key at 1% and 14.6
+     * bits per key at 0.1%, rounded up to 64-byte blocks. Enabling the filter again replaces it.
+     *
+     * @param falsePositiveRate the target probability that a lookup for an absent key still searches the table
+     * @throws IllegalArgumentException if the rate is not between 0 and 1 exclusive
+     */
+    public void enableBloomFilter(final double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1 exclusive: "
+                    + falsePositiveRate);
+        bloomFilter = new BlockedBloomFilter(mapSize - (mapSize >>> 2), falsePositiveRate);
+        rebuildBloomFilter();
+    }
+
+    /**
+     * Canonicalizes stored values through a weak interning pool, so equal values share one instance. This saves
+     * heap when many mappings hold equal but separately created values, such as strings decoded from the same few
+     * thousand attribute values. The values already in the map are interned immediately; afterwards every value
+     * stored by {@code put}, {@code putIfAbsent}, {@code putAll}, {@code merge}, {@code compute},
+     * {@code computeIfAbsent}, {@code computeIfPresent}, {@code replace} and {@code replaceAll} is. Values set
+     * through {@link Map.Entry#setValue(Object)} are not.
+     * <p>
+     * The pool holds values weakly and is keyed by {@code equals}, so values must be immutable, or at least not
+     * modified while they are shared. Each interned value costs a hash lookup in the pool. {@link #stats()}
+     * reports the share of stored values that are deduplicated and an estimate of the bytes saved. Does nothing if
+     * interning is already enabled.
+     */
+    public void enableValueInterning() {
+        if (interner != null)
+            return;
+        interner = new ValueInterner<>();
+        for (Node<K, V> head : map)
+            for (Node<K, V> node = head; node != null; node = node.next)
+                node.value = interner.intern(node.value);
+    }
+
+    /**
+     * Starts counting hits, misses, puts and removes and registers a {@link CustomMapMXBean} for this map with
+     * the platform MBean server as {@code custommap:type=CustomMap,name=<name>}. While metrics are disabled,
+     * which is the default, each instrumented operation pays only a null check. The MBean server holds a
+     * reference to this map until {@link #disableMetrics()} is called.
+     *
+     * @param name the name property of the MXBean's object name
+     * @return the registered MXBean
+     * @throws NullPointerException if the name is null
+     * @throws IllegalArgumentException if the name is not a valid object name value
+     * @throws IllegalStateException if metrics are already enabled or the name is already registered
+     */
+    public CustomMapMXBean enableMetrics(final String name) {
+        requireNonNull(name, "Metrics name must not be null.");
+        if (metrics != null)
+            throw new IllegalStateException("Metrics are already enabled as " + metrics.objectName);
+        ObjectName objectName;
+        try {
+            objectName = new ObjectName("custommap:type=CustomMap,name=" + name);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid metrics name: " + name, e);
+        }
+        Metrics created = new Metrics(name, objectName);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(created, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register CustomMap MXBean " + objectName, e);
+        }
+        metrics = created;
+        return created;
     }
 
     /**
@@ -285,23 +508,28 @@ public class CustomMap<K, V> implements Map<K, V> {
         if (size() != otherMap.size())
             return false;
         Node<K, V>[] tab = map;
-        for (Node<K, V> head : tab) {
-            for (Node<K, V> node = head; node != null; node = node.next) {
-                K key = node.key;
-                V value = node.value;
-                try {
-                    Object otherValue = otherMap.get(key);
-                    if (value == null) {
-                        if (otherValue != null || !otherMap.containsKey(key))
+        BulkScanEvent event = CustomMapEvents.beginScan("equals", tab.length, size);
+        try {
+            for (Node<K, V> head : tab) {
+                for (Node<K, V> node = head; node != null; node = node.next) {
+                    K key = node.key;
+                    V value = node.value;
+                    try {
+                        Object otherValue = otherMap.get(key);
+                        if (value == null) {
+                            if (otherValue != null || !otherMap.containsKey(key))
+                                return false;
+                        } else if (!value.equals(otherValue))
                             return false;
-                    } else if (!value.equals(otherValue))
+                    } catch (ClassCastException | NullPointerException e) {
                         return false;
-                } catch (ClassCastException | NullPointerException e) {
-                    return false;
+                    }
                 }
             }
+            return true;
+        } finally {
+            CustomMapEvents.endScan(event);
         }
-        return true;
     }
 
     /**
@@ -320,6 +548,18 @@ public class CustomMap<K, V> implements Map<K, V> {
                 action.accept(n.key, n.value);
     }
 
+    /**
+     * Returns an immutable, read-optimized copy of this map. The copy is indexed by a minimal perfect hash
+     * function, so each lookup is one probe and one {@code equals}, and it stores keys and values in flat
+     * arrays instead of {@code Node} objects, using well under half the memory of this map. Later changes to
+     * this map are not reflected in the copy.
+     *
+     * @return an immutable copy of the mappings in this map
+     */
+    public FrozenCustomMap<K, V> freeze() {
+        return new FrozenCustomMap<>(this);
+    }
+
     /**
      * Returns the value to which the specified key is mapped,
      * or {@code null} if this map contains no mapping for the key.
@@ -340,6 +580,80 @@ public class CustomMap<K, V> implements Map<K, V> {
         return getOrDefault(key, null);
     }
 
+    /**
+     * Returns the value mapped to the {@link String} key whose characters equal the specified slice of
+     * bytes decoded as ISO-8859-1 (of which US-ASCII is a subset), or {@code null} if there is none.
+     * The hash is computed directly over the bytes and the buffer's position and limit are left untouched,
+     * so a key can be looked up straight out of a network or file buffer without copying it.
+     *
+     * @param source the buffer holding the key bytes
+     * @param offset the absolute index of the first key byte in the buffer
+     * @param length the number of key bytes
+     * @return the value of the matching mapping, or {@code null} if none
+     * @throws NullPointerException if the buffer is null
+     * @throws IndexOutOfBoundsException if the slice does not lie within the buffer's limit
+     */
+    public V getByBytes(final ByteBuffer source, final int offset, final int length) {
+        requireNonNull(source, "Source buffer must not be null.");
+        Objects.checkFromIndexSize(offset, length, source.limit());
+        int h = 0;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + (source.get(offset + i) & 0xff);
+        Node<K, V>[] tab = map;
+        int hash = spread(h);
+        for (Node<K, V> entry = tab[hash & (tab.length - 1)]; entry != null; entry = entry.next)
+            if (entry.hash == hash && entry.key instanceof String key && matches(key, source, offset, length))
+                return entry.value;
+        return null;
+    }
+
+    /**
+     * Returns the value mapped to the {@link String} key whose characters equal the specified character
+     * sequence, or {@code null} if there is none. The lookup computes {@code String.hashCode()} directly
+     * over the sequence, so no {@code String} is created to perform it. Keys that are not strings never match.
+     *
+     * @param chars the characters of the key being looked up
+     * @return the value of the matching mapping, or {@code null} if none
+     * @throws NullPointerException if the character sequence is null
+     */
+    public V getByCharSequence(final CharSequence chars) {
+        requireNonNull(chars, "Character sequence must not be null.");
+        int length = chars.length();
+        int h = 0;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + chars.charAt(i);
+        Node<K, V>[] tab = map;
+        int hash = spread(h);
+        for (Node<K, V> entry = tab[hash & (tab.length - 1)]; entry != null; entry = entry.next)
+            if (entry.hash == hash && entry.key instanceof String key && key.contentEquals(chars))
+                return entry.value;
+        return null;
+    }
+
+    /**
+     * Returns the value of the first mapping whose key has the specified raw hash code and is accepted by
+     * the given matcher, or {@code null} if there is none. The hash is the value that {@code key.hashCode()}
+     * would return; it is spread internally exactly as {@link #get(Object)} does, so callers can probe the
+     * map for keys they have not materialized (for example keys still held in a parse buffer).
+     * <p>
+     * Only entries in the bucket selected by {@code keyHash} whose stored hash matches are offered to the
+     * matcher, so the matcher is typically invoked at most once.
+     *
+     * @param keyHash the {@code hashCode()} of the key being looked up
+     * @param matcher the predicate deciding whether a stored key is the one being looked up
+     * @return the value of the matching mapping, or {@code null} if none
+     * @throws NullPointerException if the matcher is null
+     */
+    public V getByHash(final int keyHash, final Predicate<? super K> matcher) {
+        requireNonNull(matcher, "Matcher must not be null.");
+        Node<K, V>[] tab = map;
+        int hash = spread(keyHash);
+        for (Node<K, V> entry = tab[hash & (tab.length - 1)]; entry != null; entry = entry.next)
+            if (entry.hash == hash && matcher.test(entry.key))
+                return entry.value;
+        return null;
+    }
+
     /**
      * Returns the value to which the specified key is mapped, or the specified default value if
      * no mapping exists for the key.
@@ -353,10 +667,17 @@ public class CustomMap<K, V> implements Map<K, V> {
     public V getOrDefault(final Object key, final V defaultValue) {
         requireNonNull(key, "Key value must not be null.");
         Node<K, V>[] tab = map;
-        int index = hash(key) & (tab.length - 1);
-        for (Node<K, V> entry = tab[index]; entry != null; entry = entry.next)
-            if (entry.key.equals(key))
-                return entry.value;
+        int hash = hash(key);
+        BlockedBloomFilter filter = bloomFilter;
+        if (filter == null || filter.mightContain(hash))
+            for (Node<K, V> entry = tab[hash & (tab.length - 1)]; entry != null; entry = entry.next)
+                if (entry.key.equals(key)) {
+                    if (metrics != null)
+                        metrics.hits.increment();
+                    return entry.value;
+                }
+        if (metrics != null)
+            metrics.misses.increment();
         return defaultValue;
     }
 
@@ -376,12 +697,27 @@ public class CustomMap<K, V> implements Map<K, V> {
     public int hashCode() {
         int result = 0;
         Node<K, V>[] tab = map;
+        BulkScanEvent event = CustomMapEvents.beginScan("hashCode", tab.length, size);
         for (Node<K, V> node : tab)
             for (Node<K, V> e = node; e != null; e = e.next)
                 result += Objects.hashCode(e.key) ^ Objects.hashCode(e.value);
+        CustomMapEvents.endScan(event);
         return result;
     }
 
+    /**
+     * Returns a new map holding the mappings of this map whose keys are also in the specified map. This map and
+     * the other map are not modified. Values are taken from this map. Lookups use the same stored-hash fast path
+     * and parallel execution as {@link #difference(CustomMap)}.
+     *
+     * @param other the map whose keys are retained
+     * @return a new map with the same hash mixer and seed as this map
+     * @throws NullPointerException if the other map is null
+     */
+    public CustomMap<K, V> intersectKeys(final CustomMap<?, ?> other) {
+        return filterKeys(other, true);
+    }
+
     /**
      * Returns {@code true} if this map contains no key-value mappings.
      *
@@ -436,14 +772,20 @@ public class CustomMap<K, V> implements Map<K, V> {
             current = current.next;
         }
         if (current == null) {
-            tab[index] = new Node<>(hash, key, value, tab[index]);
+            if (tab == EMPTY_TABLE)
+                index = hash & ((tab = table()).length - 1);
+            tab[index] = new Node<>(hash, key, intern(value), tab[index]);
             size++;
+            if (bloomFilter != null)
+                addToBloomFilter(hash);
+            if (CustomMapEvents.ENABLED)
+                checkChainLength(index);
             if (size > (mapSize - (mapSize >>> 2)))
                 expand();
             return value;
         }
 
-        V newValue = remappingFunction.apply(current.value, value);
+        V newValue = intern(remappingFunction.apply(current.value, value));
         if (newValue == null) {
             remove(previous, index, current);
             return null;
@@ -452,6 +794,31 @@ public class CustomMap<K, V> implements Map<K, V> {
         return newValue;
     }
 
+    /**
+     * Merges every mapping of the specified map into this map. A key absent from this map is added with the other
+     * map's value; for a key present in both, the value becomes the result of the remapping function applied to
+     * this map's value and the other map's value, and a {@code null} result removes the mapping. The other map is
+     * not modified.
+     * <p>
+     * The table is grown once, to the size the merged map needs, before any mapping is added. When both maps use
+     * the same {@link HashMixer} and seed, keys are placed by the hash stored in the other map's nodes, so no
+     * {@code hashCode} is computed, and when this map's table is at least as large as the other's, each bucket
+     * range of the other map feeds a disjoint set of this map's buckets. Merges of at least 65,536 mappings are
+     * then processed by bucket range in parallel on the common fork-join pool, unless value interning is enabled;
+     * the remapping function must then be safe to call from several threads. Neither map may be modified
+     * concurrently.
+     *
+     * @param other the map whose mappings are merged into this map
+     * @param remappingFunction the function combining this map's value with the other map's value
+     * @throws NullPointerException if the other map or the remapping function is null
+     */
+    public void mergeAll(final CustomMap<? extends K, ? extends V> other,
+                         final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        requireNonNull(other, "Other map must not be null.");
+        requireNonNull(remappingFunction, "Remapping BiFunction must not be null.");
+        mergeNodes(other == this ? new CustomMap<>(this) : other, remappingFunction);
+    }
+
     /**
      * Associates the specified value with the specified key in this map (optional operation). If the map
      * previously contained a mapping for the key, the old value is replaced. The map may resize if the
@@ -465,14 +832,22 @@ public class CustomMap<K, V> implements Map<K, V> {
      */
     public V put(final K key, final V value) {
         requireNonNull(key, "Key value must not be null.");
+        if (metrics != null)
+            metrics.puts.increment();
         Node<K, V>[] tab = map;
         int hash = hash(key);
         int index = hash & (tab.length - 1);
         for (Node<K, V> e = tab[index]; e != null; e = e.next)
             if (e.key.equals(key))
-                return e.setValue(value);
-        tab[index] = new Node<>(hash, key, value, tab[index]);
+                return e.setValue(intern(value));
+        if (tab == EMPTY_TABLE)
+            index = hash & ((tab = table()).length - 1);
+        tab[index] = new Node<>(hash, key, intern(value), tab[index]);
         size++;
+        if (bloomFilter != null)
+            addToBloomFilter(hash);
+        if (CustomMapEvents.ENABLED)
+            checkChainLength(index);
         if (size > (mapSize - (mapSize >>> 2)))
             expand();
         return null;
@@ -497,22 +872,14 @@ public class CustomMap<K, V> implements Map<K, V> {
         for (Map.Entry<? extends K, ? extends V> entry : m.entrySet())
             requireNonNull(entry.getKey(), "Key value must not be null.");
         int targetSize = size + mSize;
-        if (targetSize > (mapSize - (mapSize >>> 2))) {
-            int targetCapacity = mapSize;
-            while (targetSize > (targetCapacity - (targetCapacity >>> 2)) && targetCapacity < MAXIMUM_CAPACITY)
-                targetCapacity <<= 1;
-            if (targetCapacity > mapSize) {
-                mapSize = targetCapacity;
-                Node<K, V>[] newMap = new Node[mapSize];
-                transfer(this.map, newMap, mapSize);
-                this.map = newMap;
-            }
-        }
-        Node<K, V>[] tab = map;
-        int mask = mapSize - 1;
+        ensureCapacity(targetSize);
+        Node<K, V>[] tab = table();
+        if (bloomFilter != null && bloomFilter.expectedKeys() < targetSize)
+            rebuildBloomFilter();
+        int mask = tab.length - 1;
         for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
             K key = entry.getKey();
-            V value = entry.getValue();
+            V value = intern(entry.getValue());
             int hash = hash(key);
             int index = hash & mask;
             boolean updated = false;
@@ -525,6 +892,10 @@ public class CustomMap<K, V> implements Map<K, V> {
             if (!updated) {
                 tab[index] = new Node<>(hash, key, value, tab[index]);
                 size++;
+                if (bloomFilter != null)
+                    addToBloomFilter(hash);
+                if (CustomMapEvents.ENABLED)
+                    checkChainLength(index);
             }
         }
     }
@@ -551,13 +922,83 @@ public class CustomMap<K, V> implements Map<K, V> {
         for (Node<K, V> e = tab[index]; e != null; e = e.next)
             if (e.key.equals(key))
                 return e.value;
-        tab[index] = new Node<>(hash, key, value, tab[index]);
+        if (tab == EMPTY_TABLE)
+            index = hash & ((tab = table()).length - 1);
+        tab[index] = new Node<>(hash, key, intern(value), tab[index]);
         size++;
+        if (bloomFilter != null)
+            addToBloomFilter(hash);
+        if (CustomMapEvents.ENABLED)
+            checkChainLength(index);
         if (size > (mapSize - (mapSize >>> 2)))
             expand();
         return null;
     }
 
+    /**
+     * Reads a map previously written by {@link #writeTo(OutputStream, CustomMapCodec, CustomMapCodec)}. The
+     * table is sized once from the entry count in the header, so no resizing happens while entries are read.
+     * The stream is read through an internal buffer and may be consumed past the end of the map data; it is
+     * not closed.
+     *
+     * @param in the stream to read from
+     * @param keyCodec the codec that wrote the keys
+     * @param valueCodec the codec that wrote the non-null values
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a new map holding the decoded mappings
+     * @throws IOException if the stream cannot be read
+     * @throws StreamCorruptedException if the data is not in a supported version of the format
+     * @throws NullPointerException if the stream or either codec is null
+     */
+    public static <K, V> CustomMap<K, V> readFrom(final InputStream in, final CustomMapCodec<? extends K> keyCodec,
+                                                  final CustomMapCodec<? extends V> valueCodec) throws IOException {
+        requireNonNull(in, "Input stream must not be null.");
+        requireNonNull(keyCodec, "Key codec must not be null.");
+        requireNonNull(valueCodec, "Value codec must not be null.");
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, STREAM_BUFFER_SIZE));
+        if (data.readInt() != FORMAT_MAGIC)
+            throw new StreamCorruptedException("Not a CustomMap stream.");
+        byte version = data.readByte();
+        if (version != FORMAT_VERSION)
+            throw new StreamCorruptedException("Unsupported CustomMap format version: " + version);
+        int count = data.readInt();
+        if (count < 0)
+            throw new StreamCorruptedException("Negative entry count: " + count);
+        CustomMap<K, V> result = new CustomMap<>();
+        result.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            K key = keyCodec.read(data);
+            V value = data.readBoolean() ? valueCodec.read(data) : null;
+            result.put(key, value);
+        }
+        if (data.readInt() != count)
+            throw new StreamCorruptedException("Entry count trailer does not match header.");
+        return result;
+    }
+
+    /**
+     * Reads a map previously written by {@link #writeTo(WritableByteChannel, CustomMapCodec, CustomMapCodec)}.
+     * The channel is not closed.
+     *
+     * @param channel the channel to read from
+     * @param keyCodec the codec that wrote the keys
+     * @param valueCodec the codec that wrote the non-null values
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a new map holding the decoded mappings
+     * @throws IOException if the channel cannot be read
+     * @throws StreamCorruptedException if the data is not in a supported version of the format
+     * @throws NullPointerException if the channel or either codec is null
+     * @see #readFrom(InputStream, CustomMapCodec, CustomMapCodec)
+     */
+    public static <K, V> CustomMap<K, V> readFrom(final ReadableByteChannel channel,
+                                                  final CustomMapCodec<? extends K> keyCodec,
+                                                  final CustomMapCodec<? extends V> valueCodec) throws IOException {
+        requireNonNull(channel, "Channel must not be null.");
+        return readFrom(Channels.newInputStream(channel), keyCodec, valueCodec);
+    }
+
     /**
      * Removes the mapping for the specified key from this map if present (optional operation). More formally,
      * removes the mapping for a key {@code k} such that {@code Objects.equals(key, k)}. The map may shrink
@@ -579,6 +1020,8 @@ public class CustomMap<K, V> implements Map<K, V> {
             if (current.key.equals(key)) {
                 V oldValue = current.value;
                 remove(previous, index, current);
+                if (metrics != null)
+                    metrics.removes.increment();
                 return oldValue;
             }
             previous = current;
@@ -610,8 +1053,11 @@ public class CustomMap<K, V> implements Map<K, V> {
         Node<K, V> previous = null;
         Node<K, V> current = tab[index];
         while (current != null) {
-            if (current.key.equals(key) && Objects.equals(current.value, value))
+            if (current.key.equals(key) && Objects.equals(current.value, value)) {
+                if (metrics != null)
+                    metrics.removes.increment();
                 return remove(previous, index, current);
+            }
             previous = current;
             current = current.next;
         }
@@ -637,7 +1083,7 @@ public class CustomMap<K, V> implements Map<K, V> {
         int index = hash(key) & (tab.length - 1);
         for (Node<K, V> e = tab[index]; e != null; e = e.next)
             if (e.key.equals(key))
-                return e.setValue(value);
+                return e.setValue(intern(value));
         return null;
     }
 
@@ -661,7 +1107,7 @@ public class CustomMap<K, V> implements Map<K, V> {
         int index = hash(key) & (tab.length - 1);
         for (Node<K, V> node = tab[index]; node != null; node = node.next)
             if (node.key.equals(key) && Objects.equals(node.value, oldValue)) {
-                node.value = newValue;
+                node.value = intern(newValue);
                 return true;
             }
         return false;
@@ -683,7 +1129,7 @@ public class CustomMap<K, V> implements Map<K, V> {
         Node<K, V>[] tab = map;
         for (Node<K, V> node : tab)
             for (Node<K, V> nodeInner = node; nodeInner != null; nodeInner = nodeInner.next)
-                nodeInner.value = function.apply(nodeInner.key, nodeInner.value);
+                nodeInner.value = intern(function.apply(nodeInner.key, nodeInner.value));
     }
 
     /**
@@ -695,6 +1141,47 @@ public class CustomMap<K, V> implements Map<K, V> {
         return this.size;
     }
 
+    /**
+     * Returns a snapshot of the table's health and estimated memory footprint, computed in a single pass over
+     * the buckets: capacity, size, load, a histogram of chain lengths, the longest chain, the share of empty
+     * buckets, the estimated bytes retained by the table and its {@code Node} objects, and the number of times
+     * the table has grown or shrunk since construction. Keys and values themselves are not counted. When value
+     * interning is enabled, the snapshot also carries how many of the stored values share an instance with another
+     * mapping and the bytes that sharing saves now; mappings since removed or overwritten no longer count.
+     *
+     * @return the current statistics of this map
+     */
+    public CustomMapStats stats() {
+        Node<K, V>[] tab = map;
+        if (tab == EMPTY_TABLE)
+            return new CustomMapStats(0, 0, new int[1], expandCount, reduceCount, 0, 0, 0);
+        Set<Object> instances = interner == null ? null : Collections.newSetFromMap(new IdentityHashMap<>());
+        long values = 0;
+        long shared = 0;
+        long bytesSaved = 0;
+        int[] histogram = new int[8];
+        int maxChain = 0;
+        for (Node<K, V> head : tab) {
+            int length = 0;
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                length++;
+                if (instances == null || node.value == null)
+                    continue;
+                values++;
+                if (!instances.add(node.value)) {
+                    shared++;
+                    bytesSaved += ValueInterner.estimateBytes(node.value);
+                }
+            }
+            if (length >= histogram.length)
+                histogram = Arrays.copyOf(histogram, Math.max(histogram.length * 2, length + 1));
+            histogram[length]++;
+            maxChain = Math.max(maxChain, length);
+        }
+        return new CustomMapStats(tab.length, size, Arrays.copyOf(histogram, maxChain + 1), expandCount,
+                reduceCount, values, shared, bytesSaved);
+    }
+
     /**
      * Returns a string representation of this map, in the format <code>{key1=value1, key2=value2, ...}</code>.
      * The string contains all key-value mappings, with each pair separated by a comma and a space, enclosed
@@ -708,6 +1195,7 @@ public class CustomMap<K, V> implements Map<K, V> {
         StringBuilder stringBuilder = new StringBuilder("{");
         boolean first = true;
         Node<K, V>[] tab = map;
+        BulkScanEvent event = CustomMapEvents.beginScan("toString", tab.length, size);
         for (Node<K, V> entry : tab)
             for (Node<K, V> node = entry; node != null; node = node.next) {
                 if (!first)
@@ -715,9 +1203,44 @@ public class CustomMap<K, V> implements Map<K, V> {
                 stringBuilder.append(node);
                 first = false;
             }
+        CustomMapEvents.endScan(event);
         return stringBuilder.append("}").toString();
     }
 
+    /**
+     * Returns a new map holding every mapping of this map and the mappings of the specified map whose keys are
+     * not in this map. This map and the other map are not modified. The result is sized once for both maps, and
+     * the mappings of the other map are added as by {@link #mergeAll(CustomMap, BiFunction)}, so the same
+     * stored-hash fast path and parallel execution apply.
+     *
+     * @param other the map whose mappings are added where this map has none
+     * @return a new map with the same hash mixer and seed as this map
+     * @throws NullPointerException if the other map is null
+     */
+    public CustomMap<K, V> unionWith(final CustomMap<? extends K, ? extends V> other) {
+        requireNonNull(other, "Other map must not be null.");
+        CustomMap<K, V> result = new CustomMap<>(hashMixer, hashSeed);
+        result.ensureCapacity((long) size + other.size);
+        if (size > 0) {
+            Node<K, V>[] source = map;
+            Node<K, V>[] copy = result.table();
+            int mask = copy.length - 1;
+            result.size = sumRanges(source.length, size >= PARALLEL_THRESHOLD && copy.length >= source.length,
+                    (from, to) -> {
+                        int copied = 0;
+                        for (int i = from; i < to; i++)
+                            for (Node<K, V> node = source[i]; node != null; node = node.next) {
+                                copy[node.hash & mask] = new Node<>(node.hash, node.key, node.value,
+                                        copy[node.hash & mask]);
+                                copied++;
+                            }
+                        return copied;
+                    });
+        }
+        result.mergeNodes(other, null);
+        return result;
+    }
+
     /**
      * Returns a new {@link Collection} containing all values in this map. The collection is not backed
      * by the map, so changes to the collection do not affect the map, and vice versa. The collection
@@ -729,6 +1252,97 @@ public class CustomMap<K, V> implements Map<K, V> {
         return new ValuesView();
     }
 
+    /**
+     * Writes this map to the specified stream in a compact, versioned binary format. The stream is written
+     * bucket by bucket through a fixed-size buffer, so no copy of the map is made. The format is a header
+     * (magic number, format version and entry count), then each key followed by a presence flag and, for
+     * non-null values, the value, and finally the entry count again as a trailer. The stream is flushed but not
+     * closed.
+     *
+     * @param out the stream to write to
+     * @param keyCodec the codec used to encode keys
+     * @param valueCodec the codec used to encode non-null values
+     * @throws IOException if the stream cannot be written
+     * @throws NullPointerException if the stream or either codec is null
+     */
+    public void writeTo(final OutputStream out, final CustomMapCodec<? super K> keyCodec,
+                        final CustomMapCodec<? super V> valueCodec) throws IOException {
+        requireNonNull(out, "Output stream must not be null.");
+        requireNonNull(keyCodec, "Key codec must not be null.");
+        requireNonNull(valueCodec, "Value codec must not be null.");
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, STREAM_BUFFER_SIZE));
+        data.writeInt(FORMAT_MAGIC);
+        data.writeByte(FORMAT_VERSION);
+        data.writeInt(size);
+        Node<K, V>[] tab = map;
+        for (Node<K, V> head : tab)
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                keyCodec.write(data, node.key);
+                data.writeBoolean(node.value != null);
+                if (node.value != null)
+                    valueCodec.write(data, node.value);
+            }
+        data.writeInt(size);
+        data.flush();
+    }
+
+    /**
+     * Writes this map to the specified channel in the format described by
+     * {@link #writeTo(OutputStream, CustomMapCodec, CustomMapCodec)}. The channel is not closed.
+     *
+     * @param channel the channel to write to
+     * @param keyCodec the codec used to encode keys
+     * @param valueCodec the codec used to encode non-null values
+     * @throws IOException if the channel cannot be written
+     * @throws NullPointerException if the channel or either codec is null
+     */
+    public void writeTo(final WritableByteChannel channel, final CustomMapCodec<? super K> keyCodec,
+                        final CustomMapCodec<? super V> valueCodec) throws IOException {
+        requireNonNull(channel, "Channel must not be null.");
+        writeTo(Channels.newOutputStream(channel), keyCodec, valueCodec);
+    }
+
+    private void addToBloomFilter(int hash) {
+        if (!bloomFilter.add(hash))
+            rebuildBloomFilter();
+    }
+
+    /**
+     * Emits a {@link LongChainEvent} if the chain at the specified bucket has reached the configured threshold.
+     * Called after an insert, and only when events are enabled.
+     *
+     * @param index the bucket that received the new node
+     */
+    private void checkChainLength(int index) {
+        int length = 0;
+        for (Node<K, V> node = map[index]; node != null; node = node.next)
+            length++;
+        if (length >= CustomMapEvents.CHAIN_THRESHOLD)
+            CustomMapEvents.longChain(length, map.length, size);
+    }
+
+    /**
+     * Grows the table in one step to the smallest capacity that holds the specified number of mappings within
+     * the load factor. A table that has not been allocated yet only records the capacity; a live table counts
+     * each doubling it skips in {@code expandCount}, as {@link #expand()} would have.
+     */
+    private void ensureCapacity(final long targetSize) {
+        int targetCapacity = mapSize;
+        while (targetSize > (targetCapacity - (targetCapacity >>> 2)) && targetCapacity < MAXIMUM_CAPACITY)
+            targetCapacity <<= 1;
+        if (targetCapacity == mapSize)
+            return;
+        mapSize = targetCapacity;
+        if (map == EMPTY_TABLE)
+            return;
+        Node<K, V>[] newMap = new Node[mapSize];
+        ResizeEvent event = CustomMapEvents.beginResize(this.map.length, mapSize);
+        transfer(this.map, newMap, mapSize);
+        CustomMapEvents.endResize(event, size);
+        expandCount += Integer.numberOfTrailingZeros(mapSize) - Integer.numberOfTrailingZeros(this.map.length);
+        this.map = newMap;
+    }
+
     private void expand() {
         Node<K, V>[] tab = map;
         int oldCapacity = tab.length;
@@ -736,22 +1350,172 @@ public class CustomMap<K, V> implements Map<K, V> {
             return;
         int newCapacity = oldCapacity << 1;
         Node<K, V>[] newMap = new Node[newCapacity];
+        ResizeEvent event = CustomMapEvents.beginResize(tab.length, newCapacity);
         transfer(tab, newMap, newCapacity);
+        CustomMapEvents.endResize(event, size);
         this.map = newMap;
         this.mapSize = newCapacity;
+        expandCount++;
+        if (bloomFilter != null)
+            rebuildBloomFilter();
     }
 
     /**
-     * Computes a bucket index for the specified key by hashing its value and mapping it to a non-negative
-     * index in the map's internal array.
+     * Returns a new map holding the mappings of this map whose keys are, or are not, in the other map, placed in
+     * a table of this map's capacity by their stored hashes and then shrunk to fit.
+     */
+    private CustomMap<K, V> filterKeys(final CustomMap<?, ?> other, final boolean keepShared) {
+        requireNonNull(other, "Other map must not be null.");
+        CustomMap<K, V> result = new CustomMap<>(hashMixer, hashSeed);
+        if (size == 0)
+            return result;
+        Node<K, V>[] tab = map;
+        Node<K, V>[] filtered = (Node<K, V>[]) new Node[tab.length];
+        boolean sameHashing = sameHashing(other);
+        int count = sumRanges(tab.length, size >= PARALLEL_THRESHOLD, (from, to) -> {
+            int kept = 0;
+            for (int i = from; i < to; i++)
+                for (Node<K, V> node = tab[i]; node != null; node = node.next) {
+                    int hash = sameHashing ? node.hash : other.hash(node.key);
+                    if ((find(other.map, hash, node.key) != null) == keepShared) {
+                        filtered[i] = new Node<>(node.hash, node.key, node.value, filtered[i]);
+                        kept++;
+                    }
+                }
+            return kept;
+        });
+        if (count == 0)
+            return result;
+        int capacity = 16;
+        while (count > (capacity - (capacity >>> 2)) && capacity < filtered.length)
+            capacity <<= 1;
+        Node<K, V>[] fitted = filtered;
+        if (capacity < filtered.length) {
+            fitted = (Node<K, V>[]) new Node[capacity];
+            transfer(filtered, fitted, capacity);
+        }
+        result.map = fitted;
+        result.mapSize = fitted.length;
+        result.size = count;
+        return result;
+    }
+
+    /**
+     * Returns the node in the table whose stored hash and key match, or {@code null}.
+     */
+    private static Node<?, ?> find(final Node<?, ?>[] tab, final int hash, final Object key) {
+        for (Node<?, ?> node = tab[hash & (tab.length - 1)]; node != null; node = node.next)
+            if (node.hash == hash && node.key.equals(key))
+                return node;
+        return null;
+    }
+
+    /**
+     * Computes the stored hash for the specified key by mixing its hash code with this map's
+     * {@link HashMixer}. The bucket index is the hash masked by the table length.
      *
      * @param key the key to hash
-     * @return the computed bucket index
-     * @throws NullPointerException if the key is null
+     * @return the mixed hash of the key, or {@code 0} for a null key
+     */
+    private int hash(Object key) {
+        return (key == null) ? 0 : spread(key.hashCode());
+    }
+
+    private V intern(V value) {
+        ValueInterner<V> pool = interner;
+        return pool == null ? value : pool.intern(value);
+    }
+
+    private static boolean matches(String key, ByteBuffer source, int offset, int length) {
+        if (key.length() != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (key.charAt(i) != (source.get(offset + i) & 0xff))
+                return false;
+        return true;
+    }
+
+    /**
+     * Merges the other map's nodes into this map as described by {@link #mergeAll(CustomMap, BiFunction)}. A
+     * {@code null} remapping function keeps this map's value for shared keys. The keys the other map would add
+     * are counted first, in a read-only pass, so the table is grown once and never during the merge.
      */
-    private static int hash(Object key) {
-        int h;
-        return (key == null) ? 0 : (h = key.hashCode()) ^ (h >>> 16);
+    private void mergeNodes(final CustomMap<? extends K, ? extends V> other,
+                            final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (other.size == 0)
+            return;
+        Node<? extends K, ? extends V>[] source = other.map;
+        boolean sameHashing = sameHashing(other);
+        boolean large = other.size >= PARALLEL_THRESHOLD;
+        Node<K, V>[] current = map;
+        int absent = sumRanges(source.length, large, (from, to) -> {
+            int missing = 0;
+            for (int i = from; i < to; i++)
+                for (Node<? extends K, ? extends V> node = source[i]; node != null; node = node.next)
+                    if (find(current, sameHashing ? node.hash : hash(node.key), node.key) == null)
+                        missing++;
+            return missing;
+        });
+        ensureCapacity((long) size + absent);
+        Node<K, V>[] tab = table();
+        boolean parallel = large && sameHashing && tab.length >= source.length && interner == null;
+        size += sumRanges(source.length, parallel,
+                (from, to) -> mergeRange(tab, source, from, to, sameHashing, remappingFunction));
+        while (mapSize > 16 && size <= mapSize / 4)
+            reduce();
+        if (bloomFilter != null)
+            rebuildBloomFilter();
+    }
+
+    /**
+     * Merges the nodes of one bucket range of another map into the table and returns the change in size.
+     */
+    private int mergeRange(final Node<K, V>[] tab, final Node<? extends K, ? extends V>[] source, final int from,
+                           final int to, final boolean sameHashing,
+                           final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int mask = tab.length - 1;
+        int delta = 0;
+        for (int i = from; i < to; i++)
+            for (Node<? extends K, ? extends V> node = source[i]; node != null; node = node.next) {
+                K key = node.key;
+                int hash = sameHashing ? node.hash : hash(key);
+                int index = hash & mask;
+                Node<K, V> previous = null;
+                Node<K, V> current = tab[index];
+                while (current != null && !(current.hash == hash && current.key.equals(key))) {
+                    previous = current;
+                    current = current.next;
+                }
+                if (current == null) {
+                    tab[index] = new Node<>(hash, key, intern(node.value), tab[index]);
+                    delta++;
+                } else if (remappingFunction != null) {
+                    V merged = intern(remappingFunction.apply(current.value, node.value));
+                    if (merged != null)
+                        current.value = merged;
+                    else {
+                        if (previous == null)
+                            tab[index] = current.next;
+                        else
+                            previous.next = current.next;
+                        delta--;
+                    }
+                }
+            }
+        return delta;
+    }
+
+    /**
+     * Replaces the Bloom filter with one sized for the current resize threshold, or for the current size if that
+     * is larger, holding the hashes of the live keys only.
+     */
+    private void rebuildBloomFilter() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(Math.max(size, mapSize - (mapSize >>> 2)),
+                bloomFilter.falsePositiveRate());
+        for (Node<K, V> head : map)
+            for (Node<K, V> node = head; node != null; node = node.next)
+                filter.add(node.hash);
+        bloomFilter = filter;
     }
 
     private void reduce() {
@@ -765,9 +1529,14 @@ public class CustomMap<K, V> implements Map<K, V> {
         if (newCapacity >= mapSize)
             return;
         Node<K, V>[] newMap = new Node[newCapacity];
+        ResizeEvent event = CustomMapEvents.beginResize(tab.length, newCapacity);
         transfer(tab, newMap, newCapacity);
+        CustomMapEvents.endResize(event, size);
         this.map = newMap;
         this.mapSize = newCapacity;
+        reduceCount++;
+        if (bloomFilter != null)
+            rebuildBloomFilter();
     }
 
     /**
@@ -801,10 +1570,101 @@ public class CustomMap<K, V> implements Map<K, V> {
         return true;
     }
 
+    /**
+     * Unlinks a node returned by one of the view iterators. Unlike {@link #remove(Object)} this never shrinks the
+     * table, because shrinking relinks the chains the iterator is still walking and would make it skip or repeat
+     * entries; the table shrinks at the next removal through the map instead.
+     */
+    private void removeIterated(final Node<K, V> node) {
+        Node<K, V>[] tab = map;
+        int index = node.hash & (tab.length - 1);
+        Node<K, V> previous = null;
+        for (Node<K, V> current = tab[index]; current != null; previous = current, current = current.next)
+            if (current == node) {
+                if (previous == null)
+                    tab[index] = current.next;
+                else
+                    previous.next = current.next;
+                size--;
+                if (metrics != null)
+                    metrics.removes.increment();
+                return;
+            }
+    }
+
+    /**
+     * Returns {@code true} if the other map mixes hash codes exactly as this map does, so the hashes stored in its
+     * nodes are the ones this map would compute.
+     */
+    private boolean sameHashing(final CustomMap<?, ?> other) {
+        return hashMixer == other.hashMixer && hashSeed == other.hashSeed;
+    }
+
+    private int spread(int h) {
+        return hashMixer.mix(h, hashSeed);
+    }
+
+    /**
+     * Returns the table, first allocating it at the current capacity if this map has not stored a mapping
+     * since it was constructed or cleared.
+     */
+    private Node<K, V>[] table() {
+        Node<K, V>[] tab = map;
+        if (tab == EMPTY_TABLE)
+            map = tab = (Node<K, V>[]) new Node[mapSize];
+        return tab;
+    }
+
+    /**
+     * Applies the task to consecutive bucket ranges covering {@code buckets} and returns the sum of its results.
+     * In parallel, the ranges are {@value #PARALLEL_CHUNK} buckets long and run on the common fork-join pool.
+     */
+    private static int sumRanges(final int buckets, final boolean parallel, final IntBinaryOperator task) {
+        if (!parallel || buckets <= PARALLEL_CHUNK)
+            return task.applyAsInt(0, buckets);
+        return IntStream.range(0, (buckets + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK).parallel()
+                .map(chunk -> task.applyAsInt(chunk * PARALLEL_CHUNK, Math.min(buckets, (chunk + 1) * PARALLEL_CHUNK)))
+                .sum();
+    }
+
+    /**
+     * Relinks every node of {@code oldMap} into {@code newMap} and clears {@code oldMap}. A shrink folds whole
+     * chains together and a single doubling splits each chain in two by the hash bit that becomes significant;
+     * growth by several doublings at once, as a presize does, places each node by its stored hash.
+     */
     private void transfer(Node<K, V>[] oldMap, Node<K, V>[] newMap, int newCapacity) {
         int oldCapacity = oldMap.length;
-        boolean expanding = newCapacity > oldCapacity;
-        int testMask = expanding ? oldCapacity : newCapacity;
+        if (newCapacity > oldCapacity << 1) {
+            int mask = newCapacity - 1;
+            for (int i = 0; i < oldCapacity; ++i) {
+                Node<K, V> node = oldMap[i];
+                oldMap[i] = null;
+                while (node != null) {
+                    Node<K, V> next = node.next;
+                    int index = node.hash & mask;
+                    node.next = newMap[index];
+                    newMap[index] = node;
+                    node = next;
+                }
+            }
+            return;
+        }
+        if (newCapacity < oldCapacity) {
+            int mask = newCapacity - 1;
+            for (int i = 0; i < oldCapacity; ++i) {
+                Node<K, V> head = oldMap[i];
+                if (head != null) {
+                    oldMap[i] = null;
+                    Node<K, V> tail = head;
+                    while (tail.next != null)
+                        tail = tail.next;
+                    tail.next = newMap[i & mask];
+                    newMap[i & mask] = head;
+                }
+            }
+            return;
+        }
+        int testMask = oldCapacity;
         for (int i = 0; i < oldCapacity; ++i) {
             Node<K, V> head = oldMap[i];
             if (head != null) {
@@ -880,7 +1740,7 @@ public class CustomMap<K, V> implements Map<K, V> {
                 return;
             }
             nextNode = null;
-            while (bucketIndex < mapSize) {
+            while (bucketIndex < map.length) {
                 Node<K, V> head = map[bucketIndex++];
                 if (head != null) {
                     nextNode = head;
@@ -905,11 +1765,243 @@ public class CustomMap<K, V> implements Map<K, V> {
         public void remove() {
             if (lastReturned == null)
                 throw new IllegalStateException();
-            CustomMap.this.remove(lastReturned.key);
+            removeIterated(lastReturned);
             lastReturned = null;
         }
     }
 
+    /**
+     * Operation counters of a map with metrics enabled, exposed through {@link CustomMapMXBean}.
+     */
+    private final class Metrics implements CustomMapMXBean {
+        final String name;
+        final ObjectName objectName;
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder puts = new LongAdder();
+        final LongAdder removes = new LongAdder();
+
+        Metrics(final String name, final ObjectName objectName) {
+            this.name = name;
+            this.objectName = objectName;
+        }
+
+        public int getCapacity() {
+            return map == EMPTY_TABLE ? 0 : map.length;
+        }
+
+        public long getExpandCount() {
+            return expandCount;
+        }
+
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        public double getHitRatio() {
+            long hitCount = hits.sum();
+            long lookups = hitCount + misses.sum();
+            return lookups == 0 ? 0 : (double) hitCount / lookups;
+        }
+
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getPutCount() {
+            return puts.sum();
+        }
+
+        public long getReduceCount() {
+            return reduceCount;
+        }
+
+        public long getRemoveCount() {
+            return removes.sum();
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void resetCounters() {
+            hits.reset();
+            misses.reset();
+            puts.reset();
+            removes.reset();
+        }
+    }
+
+    /**
+     * Collects mappings on one thread for {@link CustomMapCollectors} and stitches the collected mappings of all
+     * threads into one table. Each mapping goes to one of {@value #PARTITIONS} partitions chosen by the low bits of
+     * the key's mixed hash. Because every table of at least {@value #PARTITIONS} buckets sends a hash to a bucket
+     * with the same low bits, each partition owns a fixed, disjoint set of buckets in the final table: the
+     * partitions are stitched in parallel, each relinking its nodes by their stored hash without rehashing the keys
+     * or locking, and the table is allocated once at its final size.
+     * <p>
+     * A partition is a small chained table of its own, indexed by the hash bits above the partition bits, so a key
+     * collected again is merged as it arrives and the builder holds one node per distinct key. Combining two
+     * builders merges the other builder's nodes into this one's, passing this builder's value to the merge function
+     * first, which keeps the encounter order.
+     */
+    static final class PartitionedBuilder<K, V> {
+        static final int PARTITION_BITS = 6;
+        static final int PARTITIONS = 1 << PARTITION_BITS;
+        static final int FIRST_PARTITION_CAPACITY = 16;
+
+        private final BinaryOperator<V> mergeFunction;
+        private final Node<K, V>[][] partitions = new Node[PARTITIONS][];
+        private final int[] sizes = new int[PARTITIONS];
+
+        /**
+         * Constructs an empty builder.
+         *
+         * @param mergeFunction the function resolving duplicate keys, or {@code null} to reject them
+         */
+        PartitionedBuilder(final BinaryOperator<V> mergeFunction) {
+            this.mergeFunction = mergeFunction;
+        }
+
+        void add(final K key, final V value) {
+            requireNonNull(key, "Key value must not be null.");
+            requireNonNull(value, "Value must not be null.");
+            int hash = HashMixer.SPREAD.mix(key.hashCode(), 0);
+            merge(hash & (PARTITIONS - 1), hash, key, value, null);
+        }
+
+        /**
+         * Returns a map holding the collected mappings, with a table sized for the distinct keys that remain.
+         *
+         * @return the built map
+         */
+        CustomMap<K, V> build() {
+            long count = 0;
+            for (int partitionSize : sizes)
+                count += partitionSize;
+            int capacity = 16;
+            while (count > (capacity - (capacity >>> 2)) && capacity < MAXIMUM_CAPACITY)
+                capacity <<= 1;
+            CustomMap<K, V> result = new CustomMap<>(capacity);
+            if (count == 0)
+                return result;
+            Node<K, V>[] tab = (Node<K, V>[]) new Node[capacity];
+            if (capacity < PARTITIONS)
+                for (int p = 0; p < PARTITIONS; p++)
+                    stitch(tab, partitions[p]);
+            else
+                IntStream.range(0, PARTITIONS).parallel().forEach(p -> stitch(tab, partitions[p]));
+            result.map = tab;
+            result.mapSize = capacity;
+            result.size = (int) count;
+            return result;
+        }
+
+        /**
+         * Merges the other builder's mappings into this one, which holds the earlier elements.
+         *
+         * @param other the builder holding the later elements
+         * @return this builder
+         * @throws IllegalStateException if both builders collected a key and there is no merge function
+         */
+        PartitionedBuilder<K, V> combine(final PartitionedBuilder<K, V> other) {
+            for (int p = 0; p < PARTITIONS; p++) {
+                Node<K, V>[] theirs = other.partitions[p];
+                if (theirs == null)
+                    continue;
+                if (partitions[p] == null) {
+                    partitions[p] = theirs;
+                    sizes[p] = other.sizes[p];
+                    continue;
+                }
+                for (Node<K, V> node : theirs)
+                    while (node != null) {
+                        Node<K, V> next = node.next;
+                        merge(p, node.hash, node.key, node.value, node);
+                        node = next;
+                    }
+            }
+            return this;
+        }
+
+        /**
+         * Doubles a partition's table, relinking its nodes.
+         */
+        private static <K, V> Node<K, V>[] grow(final Node<K, V>[] tab) {
+            Node<K, V>[] grown = (Node<K, V>[]) new Node[tab.length << 1];
+            int mask = grown.length - 1;
+            for (Node<K, V> node : tab)
+                while (node != null) {
+                    Node<K, V> next = node.next;
+                    int index = (node.hash >>> PARTITION_BITS) & mask;
+                    node.next = grown[index];
+                    grown[index] = node;
+                    node = next;
+                }
+            return grown;
+        }
+
+        /**
+         * Adds a mapping to a partition, or merges its value into the mapping already there. A new mapping reuses
+         * the given node if there is one.
+         */
+        private void merge(final int partition, final int hash, final K key, final V value, final Node<K, V> node) {
+            Node<K, V>[] tab = partitions[partition];
+            if (tab == null)
+                partitions[partition] = tab = (Node<K, V>[]) new Node[FIRST_PARTITION_CAPACITY];
+            int index = (hash >>> PARTITION_BITS) & (tab.length - 1);
+            Node<K, V> previous = null;
+            Node<K, V> current = tab[index];
+            while (current != null && !(current.hash == hash && current.key.equals(key))) {
+                previous = current;
+                current = current.next;
+            }
+            if (current == null) {
+                Node<K, V> added = node != null ? node : new Node<>(hash, key, value, null);
+                added.next = tab[index];
+                tab[index] = added;
+                if (++sizes[partition] > tab.length - (tab.length >>> 2)
+                        && tab.length < MAXIMUM_CAPACITY >>> PARTITION_BITS)
+                    partitions[partition] = grow(tab);
+                return;
+            }
+            if (mergeFunction == null)
+                throw new IllegalStateException("Duplicate key " + key + " (attempted merging values "
+                        + current.value + " and " + value + ")");
+            V merged = mergeFunction.apply(current.value, value);
+            if (merged != null)
+                current.value = merged;
+            else {
+                if (previous == null)
+                    tab[index] = current.next;
+                else
+                    previous.next = current.next;
+                sizes[partition]--;
+            }
+        }
+
+        /**
+         * Relinks the nodes of one partition into the final table by their stored hash.
+         */
+        private static <K, V> void stitch(final Node<K, V>[] tab, final Node<K, V>[] partition) {
+            if (partition == null)
+                return;
+            int mask = tab.length - 1;
+            for (Node<K, V> node : partition)
+                while (node != null) {
+                    Node<K, V> next = node.next;
+                    int index = node.hash & mask;
+                    node.next = tab[index];
+                    tab[index] = node;
+                    node = next;
+                }
+        }
+    }
+
     /**
      * A key-value pair representing a map entry, used internally to store mappings in the hash table.
      * Implements {@link Map.Entry} implicitly through {@link SimpleEntry} in {@code entrySet}.
@@ -1000,7 +2092,7 @@ public class CustomMap<K, V> implements Map<K, V> {
                 return;
             }
             nextNode = null;
-            while (bucketIndex < mapSize) {
+            while (bucketIndex < map.length) {
                 Node<K, V> head = map[bucketIndex++];
                 if (head != null) {
                     nextNode = head;
@@ -1030,7 +2122,7 @@ public class CustomMap<K, V> implements Map<K, V> {
         public void remove() {
             if (lastReturned == null)
                 throw new IllegalStateException();
-            CustomMap.this.remove(lastReturned.key);
+            removeIterated(lastReturned);
             lastReturned = null;
         }
     }
@@ -1050,7 +2142,7 @@ public class CustomMap<K, V> implements Map<K, V> {
                 return;
             }
             nextNode = null;
-            while (bucketIndex < mapSize) {
+            while (bucketIndex < map.length) {
                 Node<K, V> head = map[bucketIndex++];
                 if (head != null) {
                     nextNode = head;
@@ -1075,7 +2167,7 @@ public class CustomMap<K, V> implements Map<K, V> {
         public void remove() {
             if (lastReturned == null)
                 throw new IllegalStateException();
-            CustomMap.this.remove(lastReturned.key);
+            removeIterated(lastReturned);
             lastReturned = null;
         }
     }
@@ -0,0 +1,109 @@
+package custommap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes keys or values of a {@link CustomMap} in its binary formats. A codec must read back
+ * exactly the bytes it wrote, so variable-length data has to carry its own length prefix; the built-in codecs
+ * below do.
+ *
+ * @author Benjamin Kane
+ * @param <T> the type of the encoded objects
+ * @see CustomMap#writeTo(java.io.OutputStream, CustomMapCodec, CustomMapCodec)
+ * @see CustomMap#readFrom(java.io.InputStream, CustomMapCodec, CustomMapCodec)
+ */
+public interface CustomMapCodec<T> {
+
+    /**
+     * Encodes {@link String}s as a length-prefixed UTF-8 byte sequence.
+     */
+    CustomMapCodec<String> STRING = new CustomMapCodec<>() {
+        public void write(DataOutput out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        public String read(DataInput in) throws IOException {
+            byte[] bytes = new byte[readLength(in)];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Encodes {@link Integer}s as four big-endian bytes.
+     */
+    CustomMapCodec<Integer> INTEGER = new CustomMapCodec<>() {
+        public void write(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    /**
+     * Encodes {@link Long}s as eight big-endian bytes.
+     */
+    CustomMapCodec<Long> LONG = new CustomMapCodec<>() {
+        public void write(DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    /**
+     * Encodes byte arrays as a length-prefixed byte sequence.
+     */
+    CustomMapCodec<byte[]> BYTES = new CustomMapCodec<>() {
+        public void write(DataOutput out, byte[] value) throws IOException {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+
+        public byte[] read(DataInput in) throws IOException {
+            byte[] bytes = new byte[readLength(in)];
+            in.readFully(bytes);
+            return bytes;
+        }
+    };
+
+    /**
+     * Writes the specified non-null object to the output.
+     *
+     * @param out the output to write to
+     * @param value the object to encode
+     * @throws IOException if the output cannot be written
+     */
+    void write(DataOutput out, T value) throws IOException;
+
+    /**
+     * Reads one object previously written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in the input to read from
+     * @return the decoded object
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Reads the length prefix of a variable-length encoding.
+     *
+     * @throws StreamCorruptedException if the length is negative
+     */
+    private static int readLength(final DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            throw new StreamCorruptedException("Negative length prefix: " + length);
+        return length;
+    }
+}
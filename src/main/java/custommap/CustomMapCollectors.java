@@ -0,0 +1,120 @@
+package custommap;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builds {@link CustomMap}s from streams and spliterators on many threads at once. {@code put} is not thread-safe,
+ * so a parallel stream collected with {@code Collectors.toMap(..., CustomMap::new)} would fill a separate map per
+ * thread and then re-insert every mapping while merging them. The collectors here instead give each thread
+ * private partitions, chosen by the low bits of the key's hash, in which repeated keys are merged as they arrive,
+ * so memory stays proportional to the number of distinct keys. When collection ends the table is allocated once
+ * at the size the distinct keys need, and each partition links its nodes into the buckets it owns, in parallel and
+ * without rehashing or resizing.
+ * <p>
+ * As with {@link java.util.stream.Collectors#toMap(Function, Function)}, null keys and null values are rejected,
+ * a key collected twice is an error unless a merge function is given, and a merge function sees the values in
+ * encounter order and removes the mapping by returning {@code null}. The maps built use the default
+ * {@link HashMixer#SPREAD} mixer.
+ *
+ * @author Benjamin Kane
+ */
+public final class CustomMapCollectors {
+
+    private CustomMapCollectors() {
+    }
+
+    /**
+     * Builds a map from the entries of the specified spliterator, splitting it across the common fork-join pool.
+     *
+     * @param source the entries to collect
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a new map holding the entries
+     * @throws IllegalStateException if two entries have equal keys
+     * @throws NullPointerException if the spliterator, or any key or value, is null
+     */
+    public static <K, V> CustomMap<K, V> parallelBuild(
+            final Spliterator<? extends Map.Entry<? extends K, ? extends V>> source) {
+        requireNonNull(source, "Spliterator must not be null.");
+        return StreamSupport.stream(source, true).collect(collector(Map.Entry::getKey, Map.Entry::getValue, null));
+    }
+
+    /**
+     * Builds a map from the entries of the specified spliterator, splitting it across the common fork-join pool
+     * and resolving equal keys with the merge function.
+     *
+     * @param source the entries to collect
+     * @param mergeFunction the function combining the value already collected for a key with a later one
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a new map holding the entries
+     * @throws NullPointerException if the spliterator, the merge function, or any key or value is null
+     */
+    public static <K, V> CustomMap<K, V> parallelBuild(
+            final Spliterator<? extends Map.Entry<? extends K, ? extends V>> source,
+            final BinaryOperator<V> mergeFunction) {
+        requireNonNull(source, "Spliterator must not be null.");
+        requireNonNull(mergeFunction, "Merge function must not be null.");
+        return StreamSupport.stream(source, true)
+                .collect(collector(Map.Entry::getKey, Map.Entry::getValue, mergeFunction));
+    }
+
+    /**
+     * Returns a {@link Collector} that accumulates elements into a {@link CustomMap} whose keys and values are the
+     * results of the mapping functions.
+     *
+     * @param keyMapper the function producing keys
+     * @param valueMapper the function producing values
+     * @param <T> the type of the input elements
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a collector building a {@code CustomMap}, which throws {@link IllegalStateException} if two elements
+     *         map to equal keys
+     * @throws NullPointerException if either mapper is null
+     */
+    public static <T, K, V> Collector<T, ?, CustomMap<K, V>> toCustomMap(
+            final Function<? super T, ? extends K> keyMapper, final Function<? super T, ? extends V> valueMapper) {
+        requireNonNull(keyMapper, "Key mapper must not be null.");
+        requireNonNull(valueMapper, "Value mapper must not be null.");
+        return collector(keyMapper, valueMapper, null);
+    }
+
+    /**
+     * Returns a {@link Collector} that accumulates elements into a {@link CustomMap} whose keys and values are the
+     * results of the mapping functions, resolving equal keys with the merge function.
+     *
+     * @param keyMapper the function producing keys
+     * @param valueMapper the function producing values
+     * @param mergeFunction the function combining the value already collected for a key with a later one
+     * @param <T> the type of the input elements
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a collector building a {@code CustomMap}
+     * @throws NullPointerException if either mapper or the merge function is null
+     */
+    public static <T, K, V> Collector<T, ?, CustomMap<K, V>> toCustomMap(
+            final Function<? super T, ? extends K> keyMapper, final Function<? super T, ? extends V> valueMapper,
+            final BinaryOperator<V> mergeFunction) {
+        requireNonNull(keyMapper, "Key mapper must not be null.");
+        requireNonNull(valueMapper, "Value mapper must not be null.");
+        requireNonNull(mergeFunction, "Merge function must not be null.");
+        return collector(keyMapper, valueMapper, mergeFunction);
+    }
+
+    private static <T, K, V> Collector<T, CustomMap.PartitionedBuilder<K, V>, CustomMap<K, V>> collector(
+            final Function<? super T, ? extends K> keyMapper, final Function<? super T, ? extends V> valueMapper,
+            final BinaryOperator<V> mergeFunction) {
+        return Collector.of(
+                () -> new CustomMap.PartitionedBuilder<>(mergeFunction),
+                (builder, element) -> builder.add(keyMapper.apply(element), valueMapper.apply(element)),
+                CustomMap.PartitionedBuilder::combine,
+                CustomMap.PartitionedBuilder::build);
+    }
+}
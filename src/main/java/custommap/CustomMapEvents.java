@@ -0,0 +1,80 @@
+package custommap;
+
+/**
+ * Emits the JDK Flight Recorder events of this package. Events are enabled by starting the JVM with
+ * {@code -Dcustommap.jfr=true}; the flag is read once into a {@code static final} field, so when it is off the
+ * JIT folds every check away and the instrumented paths cost nothing. When it is on, events are still recorded
+ * only while a recording that enables them is running.
+ * <p>
+ * Inserts that leave a bucket chain at least {@code custommap.jfr.chainThreshold} nodes long (8 by default)
+ * emit a {@link LongChainEvent}.
+ *
+ * @author Benjamin Kane
+ */
+final class CustomMapEvents {
+
+    static final boolean ENABLED = Boolean.getBoolean("custommap.jfr");
+    static final int CHAIN_THRESHOLD = Integer.getInteger("custommap.jfr.chainThreshold", 8);
+
+    private CustomMapEvents() {
+    }
+
+    static ResizeEvent beginResize(int oldCapacity, int newCapacity) {
+        if (!ENABLED)
+            return null;
+        ResizeEvent event = new ResizeEvent();
+        event.oldCapacity = oldCapacity;
+        event.newCapacity = newCapacity;
+        event.begin();
+        return event;
+    }
+
+    static BulkScanEvent beginScan(String operation, int capacity, int size) {
+        if (!ENABLED)
+            return null;
+        BulkScanEvent event = new BulkScanEvent();
+        event.operation = operation;
+        event.capacity = capacity;
+        event.size = size;
+        event.begin();
+        return event;
+    }
+
+    static RepresentationSwitchEvent beginSwitch(String from, String to, int size) {
+        if (!ENABLED)
+            return null;
+        RepresentationSwitchEvent event = new RepresentationSwitchEvent();
+        event.from = from;
+        event.to = to;
+        event.size = size;
+        event.begin();
+        return event;
+    }
+
+    static void endResize(ResizeEvent event, int entriesMoved) {
+        if (event == null)
+            return;
+        event.entriesMoved = entriesMoved;
+        event.commit();
+    }
+
+    static void endScan(BulkScanEvent event) {
+        if (event != null)
+            event.commit();
+    }
+
+    static void endSwitch(RepresentationSwitchEvent event) {
+        if (event != null)
+            event.commit();
+    }
+
+    static void longChain(int chainLength, int capacity, int size) {
+        LongChainEvent event = new LongChainEvent();
+        if (!event.shouldCommit())
+            return;
+        event.chainLength = chainLength;
+        event.capacity = capacity;
+        event.size = size;
+        event.commit();
+    }
+}
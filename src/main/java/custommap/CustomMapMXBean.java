@@ -0,0 +1,92 @@
+package custommap;
+
+/**
+ * Management interface of a {@link CustomMap} whose metrics have been enabled with
+ * {@link CustomMap#enableMetrics(String)}. The map is registered with the platform MBean server under
+ * {@code custommap:type=CustomMap,name=<name>}, so these attributes can be read with JConsole, VisualVM or any
+ * JMX client while the application runs.
+ * <p>
+ * Hits and misses are counted by {@code get}, {@code getOrDefault} and {@code containsKey}; puts by every
+ * {@code put}; removes by every {@code remove} that removed a mapping. Counters are striped {@link
+ * java.util.concurrent.atomic.LongAdder}s, and size and capacity are read without synchronization, so values
+ * observed while the map is being modified are approximate.
+ *
+ * @author Benjamin Kane
+ */
+public interface CustomMapMXBean {
+
+    /**
+     * Returns the number of buckets in the map's table.
+     *
+     * @return the table capacity
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of times the table has doubled since the map was constructed.
+     *
+     * @return the cumulative expand count
+     */
+    long getExpandCount();
+
+    /**
+     * Returns the number of lookups that found a mapping.
+     *
+     * @return the hit count
+     */
+    long getHitCount();
+
+    /**
+     * Returns the fraction of lookups that found a mapping, or {@code 0} if there have been none.
+     *
+     * @return the hit ratio, between 0 and 1
+     */
+    double getHitRatio();
+
+    /**
+     * Returns the number of lookups that found no mapping.
+     *
+     * @return the miss count
+     */
+    long getMissCount();
+
+    /**
+     * Returns the name the map was registered under.
+     *
+     * @return the registered name
+     */
+    String getName();
+
+    /**
+     * Returns the number of {@code put} calls.
+     *
+     * @return the put count
+     */
+    long getPutCount();
+
+    /**
+     * Returns the number of times the table has halved since the map was constructed.
+     *
+     * @return the cumulative reduce count
+     */
+    long getReduceCount();
+
+    /**
+     * Returns the number of {@code remove} calls that removed a mapping.
+     *
+     * @return the remove count
+     */
+    long getRemoveCount();
+
+    /**
+     * Returns the number of mappings in the map.
+     *
+     * @return the map size
+     */
+    int getSize();
+
+    /**
+     * Resets the hit, miss, put and remove counters to zero. The resize counts are cumulative and not reset.
+     */
+    void resetCounters();
+}
@@ -0,0 +1,178 @@
+package custommap;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the health and memory footprint of a {@link CustomMap}'s hash table, returned by
+ * {@link CustomMap#stats()}. The chain-length histogram shows how evenly keys are spread: with a good hash
+ * function and the default load factor most buckets hold zero, one or two nodes, so a long tail or a rising
+ * maximum chain points to a hash-quality regression.
+ * <p>
+ * The retained-bytes estimate assumes a 64-bit JVM with compressed references: a 16-byte array header plus four
+ * bytes per bucket, rounded up to eight bytes, and {@value #NODE_BYTES} bytes per {@code Node}. It excludes the
+ * keys and values, which the map references but does not own.
+ * <p>
+ * For a map with value interning enabled, the deduplication figures describe the values stored when the snapshot
+ * was taken: how many share their instance with an earlier mapping, and the bytes those mappings would retain with
+ * instances of their own; see {@link CustomMap#enableValueInterning()}.
+ *
+ * @author Benjamin Kane
+ */
+public final class CustomMapStats {
+
+    static final int ARRAY_HEADER_BYTES = 16;
+    static final int REFERENCE_BYTES = 4;
+    static final int NODE_BYTES = 32;
+
+    private final int capacity;
+    private final int size;
+    private final int[] chainLengths;
+    private final long expandCount;
+    private final long reduceCount;
+    private final long internedValues;
+    private final long deduplicatedValues;
+    private final long internedBytesSaved;
+
+    CustomMapStats(final int capacity, final int size, final int[] chainLengths, final long expandCount,
+                   final long reduceCount, final long internedValues, final long deduplicatedValues,
+                   final long internedBytesSaved) {
+        this.capacity = capacity;
+        this.size = size;
+        this.chainLengths = chainLengths;
+        this.expandCount = expandCount;
+        this.reduceCount = reduceCount;
+        this.internedValues = internedValues;
+        this.deduplicatedValues = deduplicatedValues;
+        this.internedBytesSaved = internedBytesSaved;
+    }
+
+    /**
+     * Returns the number of buckets in the table, or 0 if the table has not been allocated yet.
+     *
+     * @return the table capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns a histogram of chain lengths, where element {@code i} is the number of buckets holding exactly
+     * {@code i} nodes. The array has {@link #maxChain()} + 1 elements and is a copy.
+     *
+     * @return the chain-length histogram
+     */
+    public int[] chainLengthHistogram() {
+        return chainLengths.clone();
+    }
+
+    /**
+     * Returns the number of stored values that share their instance with another mapping, not counting one
+     * mapping per distinct instance.
+     *
+     * @return the current count of deduplicated values, or 0 if interning is not enabled
+     */
+    public long deduplicatedValues() {
+        return deduplicatedValues;
+    }
+
+    /**
+     * Returns the fraction of stored non-null values that share their instance with another mapping.
+     *
+     * @return the deduplication ratio, between 0 and 1, or 0 if interning is not enabled
+     */
+    public double deduplicationRatio() {
+        return internedValues == 0 ? 0 : (double) deduplicatedValues / internedValues;
+    }
+
+    /**
+     * Returns the fraction of buckets that hold no nodes.
+     *
+     * @return the empty-bucket ratio, between 0 and 1
+     */
+    public double emptyBucketRatio() {
+        return capacity == 0 ? 0 : (double) chainLengths[0] / capacity;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by the table array and its {@code Node} objects. A map
+     * that has not allocated its table yet retains none.
+     *
+     * @return the estimated retained bytes
+     */
+    public long estimatedBytes() {
+        if (capacity == 0)
+            return 0;
+        long table = (ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * capacity + 7) & ~7L;
+        return table + (long) NODE_BYTES * size;
+    }
+
+    /**
+     * Returns the number of times the table has doubled since the map was constructed.
+     *
+     * @return the cumulative expand count
+     */
+    public long expandCount() {
+        return expandCount;
+    }
+
+    /**
+     * Returns the estimated bytes the deduplicated values would retain if each had an instance of its own. The
+     * estimate is a lower bound: it counts a {@link String} and its Latin-1 backing array, 24 bytes for a
+     * {@link Long} or {@link Double}, and the 16-byte minimum object size for anything else.
+     *
+     * @return the current estimated bytes saved, or 0 if interning is not enabled
+     */
+    public long internedBytesSaved() {
+        return internedBytesSaved;
+    }
+
+    /**
+     * Returns the ratio of mappings to buckets.
+     *
+     * @return the load of the table
+     */
+    public double load() {
+        return capacity == 0 ? 0 : (double) size / capacity;
+    }
+
+    /**
+     * Returns the number of nodes in the longest bucket chain.
+     *
+     * @return the maximum chain length
+     */
+    public int maxChain() {
+        return chainLengths.length - 1;
+    }
+
+    /**
+     * Returns the number of times the table has halved since the map was constructed.
+     *
+     * @return the cumulative reduce count
+     */
+    public long reduceCount() {
+        return reduceCount;
+    }
+
+    /**
+     * Returns the number of mappings in the map.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a one-line summary of these statistics.
+     *
+     * @return a string representation of these statistics
+     */
+    public String toString() {
+        return "CustomMapStats{capacity=" + capacity + ", size=" + size + ", load=" + load()
+                + ", maxChain=" + maxChain() + ", emptyBucketRatio=" + emptyBucketRatio()
+                + ", estimatedBytes=" + estimatedBytes() + ", expandCount=" + expandCount
+                + ", reduceCount=" + reduceCount + ", deduplicationRatio=" + deduplicationRatio()
+                + ", internedBytesSaved=" + internedBytesSaved + ", chainLengths=" + Arrays.toString(chainLengths)
+                + "}";
+    }
+}
@@ -0,0 +1,660 @@
+package custommap;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.zip.CRC32;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A crash-durable {@link Map} that keeps its mappings in a {@link CustomMap} and appends every {@code put},
+ * {@code remove}, {@code merge} and {@code clear} to a write-ahead log before acknowledging it. Opening a map
+ * loads the newest snapshot in its directory and replays the logs written after it; a record torn by a crash is
+ * detected by its CRC32 and truncated away.
+ * <p>
+ * Records are buffered in memory and written by group commit: a writer that needs its record on disk takes the
+ * log lock and writes and forces every record buffered so far, so concurrent writers that queued behind it find
+ * their records already durable and return without another {@code fsync}. When the active log grows past
+ * {@value #COMPACTION_THRESHOLD} bytes it is rotated and the current contents are written to a new snapshot on
+ * a background thread with {@link CustomMap#writeTo(java.nio.channels.WritableByteChannel, CustomMapCodec,
+ * CustomMapCodec)}; the snapshot is moved into place atomically and the files it supersedes are deleted.
+ * <p>
+ * All methods synchronize on the map, as in {@link Collections#synchronizedMap(Map)}; iteration over the
+ * read-only views must be synchronized on the map by the caller. Null keys are not permitted; null values are.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class DurableCustomMap<K, V> extends AbstractMap<K, V> implements Closeable {
+
+    /**
+     * Determines when appended records are forced to disk.
+     */
+    public enum FsyncPolicy {
+        /**
+         * Every mutation returns only after its record has been forced; concurrent writers share each
+         * {@code fsync}.
+         */
+        EVERY_OP,
+        /**
+         * Records are written and forced whenever {@value DurableCustomMap#BATCH_BYTES} bytes have been buffered;
+         * a crash loses at most the unforced batch.
+         */
+        BATCHED,
+        /**
+         * Records are forced every {@value DurableCustomMap#SYNC_INTERVAL_MILLIS} milliseconds by a background
+         * thread; a crash loses at most the last interval.
+         */
+        PERIODIC
+    }
+
+    static final long COMPACTION_THRESHOLD = 64L << 20;
+    static final int BATCH_BYTES = 1 << 16;
+    static final long SYNC_INTERVAL_MILLIS = 100;
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final Path directory;
+    private final CustomMapCodec<K> keyCodec;
+    private final CustomMapCodec<V> valueCodec;
+    private final FsyncPolicy policy;
+    private final CustomMap<K, V> map;
+    private final RecordBuffer pending = new RecordBuffer();
+    private final RecordBuffer record = new RecordBuffer();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 checksum = new CRC32();
+    private final ReentrantLock logLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final ScheduledExecutorService background;
+    private FileChannel log;
+    private long generation;
+    private long writtenSequence;
+    private long durableSequence;
+    private long appendedSequence;
+    private long logBytes;
+    private boolean compacting;
+    private boolean closed;
+    private volatile IOException failure;
+
+    private DurableCustomMap(final Path directory, final CustomMapCodec<K> keyCodec,
+                             final CustomMapCodec<V> valueCodec, final FsyncPolicy policy) throws IOException {
+        this.directory = directory;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.policy = policy;
+        long snapshotGeneration = -1;
+        long lastGeneration = -1;
+        List<Long> logs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long snapshot = generation(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                long logGeneration = generation(file, LOG_PREFIX, LOG_SUFFIX);
+                snapshotGeneration = Math.max(snapshotGeneration, snapshot);
+                lastGeneration = Math.max(lastGeneration, Math.max(snapshot, logGeneration));
+                if (logGeneration >= 0)
+                    logs.add(logGeneration);
+            }
+        }
+        if (snapshotGeneration < 0) {
+            this.map = new CustomMap<>();
+        } else {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(snapshotFile(snapshotGeneration)),
+                    BATCH_BYTES)) {
+                this.map = CustomMap.readFrom(in, keyCodec, valueCodec);
+            }
+        }
+        Collections.sort(logs);
+        for (long logGeneration : logs)
+            if (logGeneration >= snapshotGeneration)
+                replay(logFile(logGeneration));
+        deleteBefore(snapshotGeneration);
+        this.generation = lastGeneration + 1;
+        this.log = openLog(generation);
+        this.background = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "custommap-durable-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (policy == FsyncPolicy.PERIODIC)
+            background.scheduleWithFixedDelay(this::syncQuietly, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the durable map stored in the specified directory with {@link FsyncPolicy#EVERY_OP}, creating the
+     * directory if needed.
+     *
+     * @param directory the directory holding the snapshot and log files
+     * @param keyCodec the codec used to encode and decode keys
+     * @param valueCodec the codec used to encode and decode non-null values
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return the recovered map
+     * @throws IOException if the files cannot be read or created
+     * @throws NullPointerException if any argument is null
+     */
+    public static <K, V> DurableCustomMap<K, V> open(final Path directory, final CustomMapCodec<K> keyCodec,
+                                                     final CustomMapCodec<V> valueCodec) throws IOException {
+        return open(directory, keyCodec, valueCodec, FsyncPolicy.EVERY_OP);
+    }
+
+    /**
+     * Opens the durable map stored in the specified directory, creating the directory if needed. The newest
+     * snapshot is loaded, the logs written after it are replayed, and a torn record at the end of a log is
+     * truncated.
+     *
+     * @param directory the directory holding the snapshot and log files
+     * @param keyCodec the codec used to encode and decode keys
+     * @param valueCodec the codec used to encode and decode non-null values
+     * @param policy when appended records are forced to disk
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return the recovered map
+     * @throws IOException if the files cannot be read or created
+     * @throws NullPointerException if any argument is null
+     */
+    public static <K, V> DurableCustomMap<K, V> open(final Path directory, final CustomMapCodec<K> keyCodec,
+                                                     final CustomMapCodec<V> valueCodec,
+                                                     final FsyncPolicy policy) throws IOException {
+        requireNonNull(directory, "Directory must not be null.");
+        requireNonNull(keyCodec, "Key codec must not be null.");
+        requireNonNull(valueCodec, "Value codec must not be null.");
+        requireNonNull(policy, "Fsync policy must not be null.");
+        Files.createDirectories(directory);
+        return new DurableCustomMap<>(directory, keyCodec, valueCodec, policy);
+    }
+
+    /**
+     * Removes all mappings from this map and logs the removal as a single record.
+     *
+     * @throws IllegalStateException if this map has been closed
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public void clear() {
+        long sequence;
+        synchronized (this) {
+            ensureOpen();
+            sequence = append(CLEAR, null, null);
+            map.clear();
+        }
+        commit(sequence);
+    }
+
+    /**
+     * Forces every buffered record to disk, stops the background thread and closes the log. Calling this method
+     * more than once has no effect.
+     *
+     * @throws IOException if the log cannot be written or closed
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logLock.lock();
+        try {
+            flush(true);
+            log.close();
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the current mappings to a new snapshot and deletes the snapshot and logs it supersedes. Writers are
+     * blocked only while the log is rotated and the mappings are copied; the snapshot itself is written
+     * afterwards. Compaction also runs on a background thread whenever the active log exceeds
+     * {@value #COMPACTION_THRESHOLD} bytes.
+     *
+     * @throws IOException if the snapshot cannot be written
+     * @throws IllegalStateException if this map has been closed
+     */
+    public void compact() throws IOException {
+        compactionLock.lock();
+        try {
+            CustomMap<K, V> copy;
+            long snapshotGeneration;
+            logLock.lock();
+            try {
+                byte[] bytes;
+                long sequence;
+                synchronized (this) {
+                    ensureOpen();
+                    copy = new CustomMap<>(map);
+                    logBytes = 0;
+                    bytes = pending.toByteArray();
+                    pending.reset();
+                    sequence = appendedSequence;
+                }
+                write(bytes, sequence, true);
+                FileChannel previous = log;
+                snapshotGeneration = generation + 1;
+                log = openLog(snapshotGeneration);
+                generation = snapshotGeneration;
+                previous.close();
+            } finally {
+                logLock.unlock();
+            }
+            Path temporary = directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                copy.writeTo(channel, keyCodec, valueCodec);
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotFile(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+            deleteBefore(snapshotGeneration);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws NullPointerException if the specified key is null
+     */
+    public synchronized boolean containsKey(final Object key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * Returns a read-only {@link Set} view of the mappings in this map. Iteration must be synchronized on this
+     * map while other threads may write to it.
+     *
+     * @return a set view of the mappings in this map
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return Collections.unmodifiableMap(map).entrySet();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this map contains no mapping
+     * for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public synchronized V get(final Object key) {
+        return map.get(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the specified default value if no mapping
+     * exists for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if no mapping exists
+     * @return the value associated with the key, or {@code defaultValue} if none
+     * @throws NullPointerException if the key is null
+     */
+    public synchronized V getOrDefault(final Object key, final V defaultValue) {
+        return map.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Merges the specified value into the existing mapping and logs the outcome as the resulting put or
+     * removal, so replay never re-runs the remapping function.
+     *
+     * @param key the key with which the resulting value is to be associated
+     * @param value the non-null value to be merged with the existing value
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the key, or {@code null} if the mapping was removed
+     * @throws NullPointerException if the key, value or remapping function is null
+     * @throws IllegalStateException if this map has been closed
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public V merge(final K key, final V value, final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        long sequence;
+        V result;
+        synchronized (this) {
+            ensureOpen();
+            result = map.merge(key, value, remappingFunction);
+            sequence = result == null ? append(REMOVE, key, null) : append(PUT, key, result);
+        }
+        commit(sequence);
+        return result;
+    }
+
+    /**
+     * Associates the specified value with the specified key and logs the mapping.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with the key, or {@code null} if none
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map has been closed
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public V put(final K key, final V value) {
+        requireNonNull(key, "Key value must not be null.");
+        long sequence;
+        V previous;
+        synchronized (this) {
+            ensureOpen();
+            sequence = append(PUT, key, value);
+            previous = map.put(key, value);
+        }
+        commit(sequence);
+        return previous;
+    }
+
+    /**
+     * Removes the mapping for the specified key if present and logs the removal.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return the previous value associated with the key, or {@code null} if none
+     * @throws NullPointerException if the key is null
+     * @throws IllegalStateException if this map has been closed
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        long sequence;
+        V previous;
+        synchronized (this) {
+            ensureOpen();
+            if (!map.containsKey(key))
+                return null;
+            sequence = append(REMOVE, (K) key, null);
+            previous = map.remove(key);
+        }
+        commit(sequence);
+        return previous;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Forces every record appended so far to disk, regardless of the fsync policy.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void sync() throws IOException {
+        logLock.lock();
+        try {
+            flush(true);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Encodes a record into the pending buffer and returns its sequence number. Must be called while holding
+     * this map's monitor.
+     */
+    private long append(byte op, K key, V value) {
+        try {
+            record.reset();
+            recordOut.writeByte(op);
+            if (op != CLEAR)
+                keyCodec.write(recordOut, key);
+            if (op == PUT) {
+                recordOut.writeBoolean(value != null);
+                if (value != null)
+                    valueCodec.write(recordOut, value);
+            }
+            checksum.reset();
+            checksum.update(record.array(), 0, record.size());
+            pendingOut.writeInt(record.size());
+            pendingOut.writeInt((int) checksum.getValue());
+            record.writeTo(pendingOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logBytes += Integer.BYTES * 2 + record.size();
+        return ++appendedSequence;
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        switch (op) {
+            case PUT -> {
+                K key = keyCodec.read(in);
+                map.put(key, in.readBoolean() ? valueCodec.read(in) : null);
+            }
+            case REMOVE -> map.remove(keyCodec.read(in));
+            case CLEAR -> map.clear();
+            default -> throw new StreamCorruptedException("Unknown log record type: " + op);
+        }
+    }
+
+    /**
+     * Makes the record with the specified sequence number as durable as the fsync policy requires, then starts
+     * a background compaction if the log has outgrown its threshold.
+     */
+    private void commit(long sequence) {
+        try {
+            switch (policy) {
+                case EVERY_OP -> awaitDurable(sequence);
+                case BATCHED -> {
+                    if (pending.size() >= BATCH_BYTES)
+                        awaitDurable(sequence);
+                }
+                case PERIODIC -> {
+                    if (pending.size() >= BATCH_BYTES)
+                        writePending(sequence);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (this) {
+            if (compacting || closed || logBytes < COMPACTION_THRESHOLD)
+                return;
+            compacting = true;
+        }
+        background.execute(this::compactQuietly);
+    }
+
+    private void awaitDurable(long sequence) throws IOException {
+        logLock.lock();
+        try {
+            if (durableSequence < sequence)
+                flush(true);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | IllegalStateException e) {
+            // The rotated logs still hold every record, so a failed compaction is retried on the next threshold.
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    private void deleteBefore(long snapshotGeneration) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long snapshot = generation(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                long logGeneration = generation(file, LOG_PREFIX, LOG_SUFFIX);
+                if ((snapshot >= 0 && snapshot < snapshotGeneration)
+                        || (logGeneration >= 0 && logGeneration < snapshotGeneration)
+                        || generation(file, SNAPSHOT_PREFIX, ".tmp") >= 0)
+                    Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("Durable map has been closed.");
+        if (failure != null)
+            throw new UncheckedIOException("Background sync failed.", failure);
+    }
+
+    /**
+     * Writes every pending record to the log and optionally forces it. Must be called while holding the log
+     * lock.
+     */
+    private void flush(boolean force) throws IOException {
+        byte[] bytes;
+        long sequence;
+        synchronized (this) {
+            bytes = pending.toByteArray();
+            pending.reset();
+            sequence = appendedSequence;
+        }
+        write(bytes, sequence, force);
+    }
+
+    private static long generation(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(suffix) || name.length() == prefix.length() + suffix.length())
+            return -1;
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path logFile(long logGeneration) {
+        return directory.resolve(LOG_PREFIX + logGeneration + LOG_SUFFIX);
+    }
+
+    private FileChannel openLog(long logGeneration) throws IOException {
+        return FileChannel.open(logFile(logGeneration), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Applies every intact record of the specified log and truncates the log after the last one.
+     */
+    private void replay(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = channel.size();
+            long valid = 0;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+                    BATCH_BYTES));
+            try {
+                while (valid + Integer.BYTES * 2 <= length) {
+                    int size = in.readInt();
+                    int expected = in.readInt();
+                    if (size <= 0 || valid + Integer.BYTES * 2 + size > length)
+                        break;
+                    byte[] payload = new byte[size];
+                    in.readFully(payload);
+                    checksum.reset();
+                    checksum.update(payload);
+                    if ((int) checksum.getValue() != expected)
+                        break;
+                    apply(payload);
+                    valid += Integer.BYTES * 2 + size;
+                }
+            } catch (EOFException e) {
+                // A torn record at the tail; everything before it is intact.
+            }
+            if (valid < length) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        }
+    }
+
+    private Path snapshotFile(long snapshotGeneration) {
+        return directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX);
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Writes drained records up to the specified sequence number to the log and optionally forces it. Must be
+     * called while holding the log lock.
+     */
+    private void write(byte[] bytes, long sequence, boolean force) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining())
+            log.write(buffer);
+        writtenSequence = sequence;
+        if (force && durableSequence < sequence) {
+            log.force(false);
+            durableSequence = sequence;
+        }
+    }
+
+    private void writePending(long sequence) throws IOException {
+        logLock.lock();
+        try {
+            if (writtenSequence < sequence)
+                flush(false);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Exposes the backing array so a record can be checksummed without copying it.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
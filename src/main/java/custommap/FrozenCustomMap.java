@@ -0,0 +1,306 @@
+package custommap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An immutable, read-optimized {@link Map} built from a minimal perfect hash function in the style of CHD
+ * (compress, hash and displace). Keys are first hashed into small buckets; each bucket then records either a
+ * displacement seed that sends all of its keys to distinct free slots, or, for single-key buckets, the slot
+ * itself. Keys and values are kept in two flat arrays with exactly one slot per mapping, so a lookup is one
+ * array read for the bucket, one for the key, and one {@code equals}, and no per-entry objects exist.
+ * <p>
+ * Keys whose hash codes are identical to another key in the same bucket cannot be separated by any
+ * displacement; they are kept in a small overflow {@link CustomMap} that is consulted only when the perfect
+ * slot does not hold the requested key.
+ * <p>
+ * All mutating operations throw {@link UnsupportedOperationException}. Null keys are not permitted; null
+ * values are. Instances are obtained from {@link CustomMap#freeze()}.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class FrozenCustomMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int KEYS_PER_BUCKET = 3;
+    private static final int MAXIMUM_SEED_ATTEMPTS = 1 << 16;
+
+    private final int[] displacements;
+    private final Object[] keys;
+    private final Object[] values;
+    private final CustomMap<K, V> overflow;
+    private final int size;
+
+    /**
+     * Builds a frozen copy of the specified map. The construction is expected to take time linear in the
+     * number of mappings.
+     *
+     * @param source the map whose mappings are copied
+     * @throws NullPointerException if the map or any of its keys is null
+     */
+    FrozenCustomMap(final Map<? extends K, ? extends V> source) {
+        requireNonNull(source, "Source map must not be null.");
+        int n = source.size();
+        Object[] sourceKeys = new Object[n];
+        Object[] sourceValues = new Object[n];
+        int[] hashes = new int[n];
+        int count = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : source.entrySet()) {
+            sourceKeys[count] = requireNonNull(entry.getKey(), "Key value must not be null.");
+            sourceValues[count] = entry.getValue();
+            hashes[count] = sourceKeys[count].hashCode();
+            count++;
+        }
+        int bucketCount = Math.max(1, n / KEYS_PER_BUCKET);
+        int[] bucketOf = new int[n];
+        int[] bucketStart = new int[bucketCount + 1];
+        for (int i = 0; i < n; i++) {
+            bucketOf[i] = bucket(hashes[i], bucketCount);
+            bucketStart[bucketOf[i] + 1]++;
+        }
+        int largest = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            largest = Math.max(largest, bucketStart[b + 1]);
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        int[] members = new int[n];
+        int[] fill = bucketStart.clone();
+        for (int i = 0; i < n; i++)
+            members[fill[bucketOf[i]]++] = i;
+
+        this.displacements = new int[bucketCount];
+        this.keys = new Object[Math.max(n, 1)];
+        this.values = new Object[Math.max(n, 1)];
+        CustomMap<K, V> spill = null;
+        int[] slots = new int[largest];
+        int[] distinct = new int[largest];
+        for (int bucketSize = largest; bucketSize >= 2; bucketSize--) {
+            for (int b = 0; b < bucketCount; b++) {
+                if (bucketStart[b + 1] - bucketStart[b] != bucketSize)
+                    continue;
+                int placeable = 0;
+                for (int m = bucketStart[b]; m < bucketStart[b + 1]; m++) {
+                    int i = members[m];
+                    boolean duplicateHash = false;
+                    for (int j = 0; j < placeable && !duplicateHash; j++)
+                        duplicateHash = hashes[distinct[j]] == hashes[i];
+                    if (duplicateHash)
+                        spill = spill(spill, sourceKeys[i], sourceValues[i]);
+                    else
+                        distinct[placeable++] = i;
+                }
+                int seed = findSeed(distinct, placeable, hashes, slots);
+                if (seed < 0) {
+                    for (int j = 0; j < placeable; j++)
+                        spill = spill(spill, sourceKeys[distinct[j]], sourceValues[distinct[j]]);
+                    continue;
+                }
+                displacements[b] = seed;
+                for (int j = 0; j < placeable; j++) {
+                    keys[slots[j]] = sourceKeys[distinct[j]];
+                    values[slots[j]] = sourceValues[distinct[j]];
+                }
+            }
+        }
+        int freeSlot = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            if (bucketStart[b + 1] - bucketStart[b] != 1)
+                continue;
+            while (keys[freeSlot] != null)
+                freeSlot++;
+            int i = members[bucketStart[b]];
+            displacements[b] = ~freeSlot;
+            keys[freeSlot] = sourceKeys[i];
+            values[freeSlot] = sourceValues[i];
+        }
+        this.overflow = spill;
+        this.size = n;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        int slot = slot(key.hashCode());
+        Object candidate = keys[slot];
+        if (candidate != null && candidate.equals(key))
+            return true;
+        return overflow != null && overflow.containsKey(key);
+    }
+
+    /**
+     * Returns an immutable {@link Set} view of the mappings in this map.
+     *
+     * @return a set view of the mappings in this map
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView();
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @param action the action to be performed for each key-value pair
+     * @throws NullPointerException if the action is null
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        requireNonNull(action, "BiConsumer must not be null.");
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != null)
+                action.accept((K) keys[i], (V) values[i]);
+        if (overflow != null)
+            overflow.forEach(action);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this map contains no
+     * mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(final Object key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the specified default value if no mapping
+     * exists for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if no mapping exists
+     * @return the value associated with the key, or {@code defaultValue} if none
+     * @throws NullPointerException if the key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(final Object key, final V defaultValue) {
+        requireNonNull(key, "Key value must not be null.");
+        int slot = slot(key.hashCode());
+        Object candidate = keys[slot];
+        if (candidate != null && candidate.equals(key))
+            return (V) values[slot];
+        return overflow == null ? defaultValue : overflow.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    private static int bucket(int h, int bucketCount) {
+        return reduce(HashMixer.MURMUR3.mix(h, 0), bucketCount);
+    }
+
+    /**
+     * Returns the first seed that sends every listed key to a distinct free slot, storing the slots in
+     * {@code slots}, or {@code -1} if none is found within the attempt limit.
+     */
+    private int findSeed(int[] members, int count, int[] hashes, int[] slots) {
+        for (int seed = 0; seed < MAXIMUM_SEED_ATTEMPTS; seed++) {
+            boolean placed = true;
+            for (int j = 0; j < count && placed; j++) {
+                slots[j] = displace(hashes[members[j]], seed, keys.length);
+                placed = keys[slots[j]] == null;
+                for (int k = 0; k < j && placed; k++)
+                    placed = slots[k] != slots[j];
+            }
+            if (placed)
+                return seed;
+        }
+        return -1;
+    }
+
+    private static int displace(int h, int seed, int slotCount) {
+        return reduce(HashMixer.MURMUR3.mix(h + 0x61c88647 * (seed + 1), 0), slotCount);
+    }
+
+    /**
+     * Maps a uniformly distributed 32-bit value onto {@code [0, n)} with a multiply and shift.
+     */
+    private static int reduce(int x, int n) {
+        return (int) (((x & 0xffffffffL) * n) >>> 32);
+    }
+
+    private int slot(int h) {
+        int displacement = displacements[bucket(h, displacements.length)];
+        return displacement < 0 ? ~displacement : displace(h, displacement, keys.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CustomMap<K, V> spill(CustomMap<K, V> spill, Object key, Object value) {
+        if (spill == null)
+            spill = new CustomMap<>();
+        spill.put((K) key, (V) value);
+        return spill;
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, V>> {
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry) || entry.getKey() == null)
+                return false;
+            Object key = entry.getKey();
+            return containsKey(key) && Objects.equals(get(key), entry.getValue());
+        }
+
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int nextSlot = -1;
+        private final Iterator<Map.Entry<K, V>> overflowIterator =
+                overflow == null ? null : overflow.entrySet().iterator();
+
+        private EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                nextSlot++;
+            } while (nextSlot < keys.length && keys[nextSlot] == null);
+        }
+
+        public boolean hasNext() {
+            return nextSlot < keys.length || (overflowIterator != null && overflowIterator.hasNext());
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (nextSlot < keys.length) {
+                int slot = nextSlot;
+                advance();
+                return new SimpleImmutableEntry<>((K) keys[slot], (V) values[slot]);
+            }
+            if (overflowIterator == null)
+                throw new NoSuchElementException();
+            Map.Entry<K, V> entry = overflowIterator.next();
+            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+        }
+    }
+}
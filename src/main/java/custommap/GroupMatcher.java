@@ -0,0 +1,69 @@
+package custommap;
+
+/**
+ * Compares the control bytes of one {@link SwissCustomMap} group at a time. A group is {@value #WIDTH}
+ * consecutive control bytes starting at a multiple of {@value #WIDTH}; results are offsets within the group, with
+ * {@value #WIDTH} meaning no byte qualified.
+ * <p>
+ * {@link #select()} returns a {@link VectorGroupMatcher}, which compares a whole group in one SIMD instruction,
+ * when the {@code jdk.incubator.vector} module is resolved, and a {@link SwarGroupMatcher}, which compares the
+ * group as two {@code long} words, otherwise.
+ *
+ * @author Benjamin Kane
+ */
+interface GroupMatcher {
+
+    int WIDTH = 16;
+    byte EMPTY = (byte) 0x80;
+    byte DELETED = (byte) 0xFE;
+
+    /**
+     * Returns the offset of the first byte at or after {@code from} that may equal the tag. The offset may name
+     * a byte that does not match, so callers confirm each candidate by comparing keys and continue from the next
+     * offset; no matching byte is ever skipped.
+     *
+     * @param control the control bytes
+     * @param groupStart the index of the group's first byte
+     * @param tag the seven-bit hash tag
+     * @param from the first offset to consider, from 0 to {@value #WIDTH}
+     * @return the candidate offset, or {@value #WIDTH} if there is none
+     */
+    int nextMatch(byte[] control, int groupStart, byte tag, int from);
+
+    /**
+     * Returns {@code true} if the group contains an {@link #EMPTY} byte, which ends a probe sequence.
+     *
+     * @param control the control bytes
+     * @param groupStart the index of the group's first byte
+     * @return whether the group has an empty slot
+     */
+    boolean hasEmpty(byte[] control, int groupStart);
+
+    /**
+     * Returns the offset of the first {@link #EMPTY} or {@link #DELETED} byte, the first slot an insertion may
+     * take.
+     *
+     * @param control the control bytes
+     * @param groupStart the index of the group's first byte
+     * @return the free offset, or {@value #WIDTH} if the group is full
+     */
+    int firstFree(byte[] control, int groupStart);
+
+    /**
+     * Returns the vector matcher if the {@code jdk.incubator.vector} module is resolved and the
+     * {@code custommap.swiss.scalar} system property is not {@code true}, and the SWAR matcher otherwise.
+     *
+     * @return the matcher for this JVM
+     */
+    static GroupMatcher select() {
+        if (!Boolean.getBoolean("custommap.swiss.scalar")
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            try {
+                return (GroupMatcher) Class.forName("custommap.VectorGroupMatcher").getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return new SwarGroupMatcher();
+            }
+        return new SwarGroupMatcher();
+    }
+}
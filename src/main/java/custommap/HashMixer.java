@@ -0,0 +1,72 @@
+package custommap;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The function a {@link CustomMap} applies to {@code key.hashCode()} before selecting a bucket. Bucket
+ * indices are taken from the low bits of the mixed hash, so the mixer decides how well keys whose hash codes
+ * differ only in their high bits are spread across the table.
+ * <p>
+ * The mixed hash of every entry is stored alongside it, so resizing never re-invokes the mixer and a map's
+ * mixer (and seed) is fixed for its lifetime.
+ *
+ * @author Benjamin Kane
+ * @see CustomMap#CustomMap(int, HashMixer)
+ */
+public enum HashMixer {
+
+    /**
+     * XORs the high 16 bits of the hash code into the low 16 bits, as {@link java.util.HashMap} does.
+     * This is the cheapest mixer and the default, but keys whose hash codes differ only above the bits used for
+     * indexing (for example sequential ids multiplied by a power of two) still collide.
+     */
+    SPREAD,
+
+    /**
+     * Applies the MurmurHash3 32-bit finalizer, so every bit of the hash code affects every bit of the bucket
+     * index. Clustered hash codes are spread evenly at the cost of a few multiplications per operation.
+     */
+    MURMUR3,
+
+    /**
+     * Applies the MurmurHash3 finalizer to the hash code XORed with a random per-map seed. Bucket indices can
+     * then not be predicted from outside the process, which defends against hash-flooding inputs crafted
+     * against a fixed mixing function. Keys with identical hash codes still share a bucket.
+     */
+    SEEDED;
+
+    /**
+     * Mixes the specified hash code using this function and the given seed. Only {@link #SEEDED} uses the seed.
+     *
+     * @param h the hash code to mix
+     * @param seed the per-map seed
+     * @return the mixed hash
+     */
+    public int mix(int h, int seed) {
+        switch (this) {
+            case SPREAD:
+                return h ^ (h >>> 16);
+            case MURMUR3:
+                return finalizer(h);
+            default:
+                return finalizer(h ^ seed);
+        }
+    }
+
+    /**
+     * Returns a new seed for a map using this mixer: a random value for {@link #SEEDED} and {@code 0} otherwise.
+     *
+     * @return the seed to pass to {@link #mix(int, int)}
+     */
+    int newSeed() {
+        return this == SEEDED ? ThreadLocalRandom.current().nextInt() : 0;
+    }
+
+    private static int finalizer(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,436 @@
+package custommap;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Map} from small keys to large byte payloads that keeps the hash index on the heap and the payloads off
+ * it. Keys live in {@link CustomMap}-style {@code Node} chains holding the hash, the key and an
+ * {@code (offset, length)} handle, so lookups compare keys with {@code equals} exactly as {@link CustomMap} does
+ * and never serialize them. Payloads are copied into direct {@link ByteBuffer} chunks by a slab allocator with
+ * power-of-two size classes from {@value #MINIMUM_SLOT_SIZE} bytes to {@value #MAXIMUM_SLOT_SIZE} bytes; freed
+ * slots are kept on per-class free lists and reused before the allocator carves new space. Larger payloads get a
+ * dedicated direct buffer each.
+ * <p>
+ * {@link #getInto(Object, ByteBuffer)} copies a payload straight from the slab into a caller-owned buffer without
+ * an intermediate array; {@link #get(Object)} and the entry views return fresh copies. Off-heap memory is returned
+ * to the operating system when the chunks become unreachable after {@link #clear()} or when the map itself is
+ * collected. Like {@link CustomMap}, this class is not thread-safe. Null keys and null values are not permitted.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ */
+public final class HybridCustomMap<K> extends AbstractMap<K, byte[]> {
+
+    static final int MINIMUM_SLOT_SIZE = 16;
+    static final int MAXIMUM_SLOT_SIZE = 1 << 20;
+    static final int CHUNK_SIZE = 1 << 22;
+
+    private static final int MINIMUM_SLOT_SHIFT = 4;
+    private static final int SIZE_CLASSES = 17;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private Node<K>[] table;
+    private int size;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final long[][] freeSlots = new long[SIZE_CLASSES][];
+    private final int[] freeCounts = new int[SIZE_CLASSES];
+    private int[] freeChunks = new int[4];
+    private int freeChunkCount;
+    private int currentChunk = -1;
+    private int chunkEnd;
+    private long offHeapBytes;
+
+    /**
+     * Constructs an empty {@code HybridCustomMap} with an initial table capacity of 16.
+     */
+    public HybridCustomMap() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty {@code HybridCustomMap} with room for the specified number of keys before resizing.
+     *
+     * @param capacity the expected number of keys
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    @SuppressWarnings("unchecked")
+    public HybridCustomMap(final int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity must not be negative.");
+        int tableSize = 16;
+        while (tableSize * LOAD_FACTOR < capacity && tableSize < 1 << 30)
+            tableSize <<= 1;
+        this.table = new Node[tableSize];
+    }
+
+    /**
+     * Removes all mappings from this map and releases every slab chunk.
+     */
+    public void clear() {
+        Arrays.fill(table, null);
+        size = 0;
+        chunks.clear();
+        Arrays.fill(freeSlots, null);
+        Arrays.fill(freeCounts, 0);
+        freeChunkCount = 0;
+        currentChunk = -1;
+        chunkEnd = 0;
+        offHeapBytes = 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(final Object key) {
+        return node(key) != null;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings in this map. Each entry carries a copy of its payload; the
+     * iterator supports removal.
+     *
+     * @return a set view of the mappings in this map
+     */
+    public Set<Map.Entry<K, byte[]>> entrySet() {
+        return new EntrySetView();
+    }
+
+    /**
+     * Returns a copy of the payload to which the specified key is mapped, or {@code null} if this map contains no
+     * mapping for the key.
+     *
+     * @param key the key whose associated payload is to be returned
+     * @return a copy of the payload, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public byte[] get(final Object key) {
+        Node<K> node = node(key);
+        return node == null ? null : copy(node);
+    }
+
+    /**
+     * Copies the payload to which the specified key is mapped into the destination buffer at its position and
+     * advances the position by the payload length. Nothing is written if the key is absent or the payload does
+     * not fit.
+     *
+     * @param key the key whose associated payload is to be copied
+     * @param destination the buffer receiving the payload
+     * @return the payload length, or {@code -1} if this map contains no mapping for the key
+     * @throws NullPointerException if the key or destination is null
+     * @throws BufferOverflowException if the payload exceeds the remaining space in the destination
+     * @throws java.nio.ReadOnlyBufferException if the destination is read-only
+     */
+    public int getInto(final Object key, final ByteBuffer destination) {
+        requireNonNull(destination, "Destination buffer must not be null.");
+        Node<K> node = node(key);
+        if (node == null)
+            return -1;
+        if (destination.remaining() < node.length)
+            throw new BufferOverflowException();
+        int position = destination.position();
+        destination.put(position, chunks.get(chunkOf(node.handle)), offsetOf(node.handle), node.length);
+        destination.position(position + node.length);
+        return node.length;
+    }
+
+    /**
+     * Returns the number of off-heap bytes currently reserved by the slab, including unused space in slots and
+     * chunks.
+     *
+     * @return the reserved off-heap bytes
+     */
+    public long offHeapBytes() {
+        return offHeapBytes;
+    }
+
+    /**
+     * Associates a copy of the specified payload with the specified key.
+     *
+     * @param key the key with which the payload is to be associated
+     * @param value the payload to copy off-heap
+     * @return a copy of the previous payload, or {@code null} if none
+     * @throws NullPointerException if the key or value is null
+     */
+    public byte[] put(final K key, final byte[] value) {
+        requireNonNull(value, "Value must not be null.");
+        return put(key, ByteBuffer.wrap(value));
+    }
+
+    /**
+     * Associates a copy of the remaining bytes of the specified buffer with the specified key. The buffer's
+     * position is not changed.
+     *
+     * @param key the key with which the payload is to be associated
+     * @param value the buffer whose remaining bytes are copied off-heap
+     * @return a copy of the previous payload, or {@code null} if none
+     * @throws NullPointerException if the key or value is null
+     */
+    public byte[] put(final K key, final ByteBuffer value) {
+        requireNonNull(key, "Key value must not be null.");
+        requireNonNull(value, "Value must not be null.");
+        int length = value.remaining();
+        int hash = hash(key);
+        int index = hash & (table.length - 1);
+        for (Node<K> node = table[index]; node != null; node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) {
+                byte[] previous = copy(node);
+                if (slotSize(length) != slotSize(node.length)) {
+                    free(node.handle, node.length);
+                    node.handle = allocate(length);
+                }
+                node.length = length;
+                write(node.handle, value);
+                return previous;
+            }
+        }
+        long handle = allocate(length);
+        write(handle, value);
+        table[index] = new Node<>(hash, key, handle, length, table[index]);
+        if (++size > table.length * LOAD_FACTOR)
+            resize();
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the specified key if present and returns its slab slot to the free list.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return a copy of the previous payload, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public byte[] remove(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        int hash = hash(key);
+        int index = hash & (table.length - 1);
+        Node<K> previous = null;
+        for (Node<K> node = table[index]; node != null; previous = node, node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) {
+                if (previous == null)
+                    table[index] = node.next;
+                else
+                    previous.next = node.next;
+                size--;
+                byte[] value = copy(node);
+                free(node.handle, node.length);
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a handle to a slot large enough for the specified length, reusing a freed slot of the same size
+     * class when one exists.
+     */
+    private long allocate(int length) {
+        if (length > MAXIMUM_SLOT_SIZE) {
+            ByteBuffer dedicated = ByteBuffer.allocateDirect(length);
+            offHeapBytes += length;
+            int chunk;
+            if (freeChunkCount > 0) {
+                chunk = freeChunks[--freeChunkCount];
+                chunks.set(chunk, dedicated);
+            } else {
+                chunk = chunks.size();
+                chunks.add(dedicated);
+            }
+            return handle(chunk, 0);
+        }
+        int sizeClass = sizeClass(length);
+        if (freeCounts[sizeClass] > 0)
+            return freeSlots[sizeClass][--freeCounts[sizeClass]];
+        int slotSize = MINIMUM_SLOT_SIZE << sizeClass;
+        if (currentChunk < 0 || chunkEnd + slotSize > CHUNK_SIZE) {
+            currentChunk = chunks.size();
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+            offHeapBytes += CHUNK_SIZE;
+            chunkEnd = 0;
+        }
+        long handle = handle(currentChunk, chunkEnd);
+        chunkEnd += slotSize;
+        return handle;
+    }
+
+    private static int chunkOf(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private byte[] copy(Node<K> node) {
+        byte[] bytes = new byte[node.length];
+        chunks.get(chunkOf(node.handle)).get(offsetOf(node.handle), bytes);
+        return bytes;
+    }
+
+    private void free(long handle, int length) {
+        if (length > MAXIMUM_SLOT_SIZE) {
+            int chunk = chunkOf(handle);
+            chunks.set(chunk, null);
+            offHeapBytes -= length;
+            if (freeChunkCount == freeChunks.length)
+                freeChunks = Arrays.copyOf(freeChunks, freeChunkCount * 2);
+            freeChunks[freeChunkCount++] = chunk;
+            return;
+        }
+        int sizeClass = sizeClass(length);
+        long[] slots = freeSlots[sizeClass];
+        if (slots == null)
+            slots = freeSlots[sizeClass] = new long[16];
+        else if (freeCounts[sizeClass] == slots.length)
+            slots = freeSlots[sizeClass] = Arrays.copyOf(slots, slots.length * 2);
+        slots[freeCounts[sizeClass]++] = handle;
+    }
+
+    private static long handle(int chunk, int offset) {
+        return (long) chunk << 32 | offset;
+    }
+
+    private static int hash(Object key) {
+        return HashMixer.SPREAD.mix(key.hashCode(), 0);
+    }
+
+    private Node<K> node(Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        int hash = hash(key);
+        for (Node<K> node = table[hash & (table.length - 1)]; node != null; node = node.next)
+            if (node.hash == hash && node.key.equals(key))
+                return node;
+        return null;
+    }
+
+    private static int offsetOf(long handle) {
+        return (int) handle;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        if (table.length >= 1 << 30)
+            return;
+        Node<K>[] newTable = new Node[table.length << 1];
+        for (Node<K> head : table) {
+            for (Node<K> node = head; node != null; ) {
+                Node<K> next = node.next;
+                int index = node.hash & (newTable.length - 1);
+                node.next = newTable[index];
+                newTable[index] = node;
+                node = next;
+            }
+        }
+        table = newTable;
+    }
+
+    /**
+     * Returns the power-of-two size class whose slots hold the specified length.
+     */
+    private static int sizeClass(int length) {
+        if (length <= MINIMUM_SLOT_SIZE)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - MINIMUM_SLOT_SHIFT;
+    }
+
+    private static int slotSize(int length) {
+        return length > MAXIMUM_SLOT_SIZE ? length : MINIMUM_SLOT_SIZE << sizeClass(length);
+    }
+
+    private void write(long handle, ByteBuffer value) {
+        chunks.get(chunkOf(handle)).put(offsetOf(handle), value, value.position(), value.remaining());
+    }
+
+    private static final class Node<K> {
+        final int hash;
+        final K key;
+        long handle;
+        int length;
+        Node<K> next;
+
+        Node(final int hash, final K key, final long handle, final int length, final Node<K> next) {
+            this.hash = hash;
+            this.key = key;
+            this.handle = handle;
+            this.length = length;
+            this.next = next;
+        }
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, byte[]>> {
+        public int size() {
+            return size;
+        }
+
+        public void clear() {
+            HybridCustomMap.this.clear();
+        }
+
+        public Iterator<Map.Entry<K, byte[]>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, byte[]>> {
+        private int bucketIndex;
+        private Node<K> nextNode;
+        private Node<K> lastReturned;
+
+        private EntryIterator() {
+            advanceToNextNode();
+        }
+
+        private void advanceToNextNode() {
+            if (nextNode != null && nextNode.next != null) {
+                nextNode = nextNode.next;
+                return;
+            }
+            nextNode = null;
+            while (bucketIndex < table.length) {
+                Node<K> head = table[bucketIndex++];
+                if (head != null) {
+                    nextNode = head;
+                    break;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        public Map.Entry<K, byte[]> next() {
+            if (nextNode == null)
+                throw new NoSuchElementException();
+            lastReturned = nextNode;
+            advanceToNextNode();
+            return new SimpleImmutableEntry<>(lastReturned.key, copy(lastReturned));
+        }
+
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            HybridCustomMap.this.remove(lastReturned.key);
+            lastReturned = null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package custommap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Records an insert into a {@link CustomMap} that left its bucket chain at or above the configured threshold,
+ * which usually points to poorly distributed hash codes. The stack trace identifies the inserting code.
+ *
+ * @author Benjamin Kane
+ */
+@Name("custommap.LongChain")
+@Label("CustomMap Long Chain")
+@Category("CustomMap")
+@Description("Insert that left a CustomMap bucket chain at or above the chain-length threshold")
+@StackTrace(true)
+final class LongChainEvent extends Event {
+
+    @Label("Chain Length")
+    int chainLength;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Size")
+    int size;
+}
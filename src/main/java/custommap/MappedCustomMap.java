@@ -0,0 +1,400 @@
+package custommap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A read-only {@link Map} served directly from a memory-mapped file written by
+ * {@link #write(Map, Path, CustomMapCodec, CustomMapCodec)}. Opening a file only maps it and validates its header,
+ * so it takes the same time regardless of size, and the pages are shared through the operating system's page cache
+ * by every process that maps the same file instead of each holding a heap copy.
+ * <p>
+ * The file holds a header, an open-addressing hash index, a key slab and a value slab. Each index slot holds a
+ * key's mixed hash and the position of its record in the key slab; a key record holds the encoded key and the
+ * position and length of its value. A lookup compares hashes in the index, decodes only the keys whose hash
+ * matches, and decodes a value only when it is returned. Because hashes are stored in the file, key types must
+ * have a {@code hashCode()} that is stable across JVM runs, such as {@link String}, {@link Integer} or
+ * {@link Long}; enums and identity-hashed objects are not suitable.
+ * <p>
+ * A file is mapped as a single buffer and is therefore limited to 2 GiB. All mutating operations throw
+ * {@link UnsupportedOperationException}; null keys are not permitted.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class MappedCustomMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int FILE_MAGIC = 0x434D4D46;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int SLOT_SIZE = 8;
+    private static final int NULL_VALUE = -1;
+
+    private final ByteBuffer buffer;
+    private final CustomMapCodec<? extends K> keyCodec;
+    private final CustomMapCodec<? extends V> valueCodec;
+    private final int size;
+    private final int slotMask;
+    private final int keySlab;
+    private final int valueSlab;
+
+    private MappedCustomMap(final ByteBuffer buffer, final CustomMapCodec<? extends K> keyCodec,
+                            final CustomMapCodec<? extends V> valueCodec) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != FILE_MAGIC)
+            throw new StreamCorruptedException("Not a mapped CustomMap file.");
+        if (buffer.getInt(4) != FILE_VERSION)
+            throw new StreamCorruptedException("Unsupported mapped CustomMap version: " + buffer.getInt(4));
+        int slots = buffer.getInt(12);
+        this.buffer = buffer;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.size = buffer.getInt(8);
+        this.slotMask = slots - 1;
+        this.keySlab = HEADER_SIZE + slots * SLOT_SIZE;
+        this.valueSlab = buffer.getInt(16);
+        if (Integer.bitCount(slots) != 1 || size < 0 || size >= slots || valueSlab < keySlab
+                || buffer.getInt(20) != buffer.capacity())
+            throw new StreamCorruptedException("Mapped CustomMap header is inconsistent.");
+    }
+
+    /**
+     * Maps the specified file read-only and returns a map view over it. The file channel is closed before this
+     * method returns; the mapping stays valid until the returned map is garbage collected.
+     *
+     * @param file the file written by {@link #write(Map, Path, CustomMapCodec, CustomMapCodec)}
+     * @param keyCodec the codec that wrote the keys
+     * @param valueCodec the codec that wrote the non-null values
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a read-only map backed by the file
+     * @throws IOException if the file cannot be mapped
+     * @throws StreamCorruptedException if the file is not a supported mapped map
+     * @throws NullPointerException if any argument is null
+     */
+    public static <K, V> MappedCustomMap<K, V> open(final Path file, final CustomMapCodec<? extends K> keyCodec,
+                                                    final CustomMapCodec<? extends V> valueCodec) throws IOException {
+        requireNonNull(file, "File must not be null.");
+        requireNonNull(keyCodec, "Key codec must not be null.");
+        requireNonNull(valueCodec, "Value codec must not be null.");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Mapped CustomMap files are limited to 2 GiB: " + file);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedCustomMap<>(mapped, keyCodec, valueCodec);
+        }
+    }
+
+    /**
+     * Writes the mappings of the specified map to a file that {@link #open(Path, CustomMapCodec, CustomMapCodec)}
+     * can use in place. The index is sized to at most half full, and the slabs are assembled in memory before the
+     * file is written, replacing any existing file.
+     *
+     * @param map the map whose mappings are written
+     * @param file the file to write
+     * @param keyCodec the codec used to encode keys
+     * @param valueCodec the codec used to encode non-null values
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the encoded map would exceed 2 GiB
+     * @throws NullPointerException if any argument or key is null
+     */
+    public static <K, V> void write(final Map<? extends K, ? extends V> map, final Path file,
+                                    final CustomMapCodec<? super K> keyCodec,
+                                    final CustomMapCodec<? super V> valueCodec) throws IOException {
+        requireNonNull(map, "Map must not be null.");
+        requireNonNull(file, "File must not be null.");
+        requireNonNull(keyCodec, "Key codec must not be null.");
+        requireNonNull(valueCodec, "Value codec must not be null.");
+        int slots = 2;
+        while (slots < 2L * map.size() + 1)
+            slots <<= 1;
+        int[] index = new int[slots * 2];
+        ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+        DataOutputStream keys = new DataOutputStream(keyBytes);
+        DataOutputStream values = new DataOutputStream(valueBytes);
+        ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+        DataOutputStream encoder = new DataOutputStream(scratch);
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            K key = requireNonNull(entry.getKey(), "Key value must not be null.");
+            int hash = hash(key);
+            int slot = hash & (slots - 1);
+            while (index[slot * 2 + 1] != 0)
+                slot = (slot + 1) & (slots - 1);
+            index[slot * 2] = hash;
+            index[slot * 2 + 1] = keys.size() + 1;
+            scratch.reset();
+            keyCodec.write(encoder, key);
+            keys.writeInt(scratch.size());
+            scratch.writeTo(keys);
+            V value = entry.getValue();
+            if (value == null) {
+                keys.writeInt(0);
+                keys.writeInt(NULL_VALUE);
+            } else {
+                int valueStart = values.size();
+                valueCodec.write(values, value);
+                keys.writeInt(valueStart);
+                keys.writeInt(values.size() - valueStart);
+            }
+        }
+        long valueSlab = HEADER_SIZE + (long) slots * SLOT_SIZE + keys.size();
+        long length = valueSlab + values.size();
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Mapped CustomMap files are limited to 2 GiB.");
+        ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE + slots * SLOT_SIZE);
+        head.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(map.size()).putInt(slots)
+                .putInt((int) valueSlab).putInt((int) length);
+        head.asIntBuffer().put(index);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, head.rewind());
+            writeFully(channel, ByteBuffer.wrap(keyBytes.toByteArray()));
+            writeFully(channel, ByteBuffer.wrap(valueBytes.toByteArray()));
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key. Only keys whose stored hash
+     * matches are decoded; no value is decoded.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws NullPointerException if the specified key is null
+     * @throws UncheckedIOException if a stored key cannot be decoded
+     */
+    public boolean containsKey(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        return find(key) >= 0;
+    }
+
+    /**
+     * Returns an immutable {@link Set} view of the mappings in this map. Each entry decodes its value only when
+     * {@link Map.Entry#getValue()} is first called.
+     *
+     * @return a set view of the mappings in this map
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this map contains no mapping
+     * for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     * @throws UncheckedIOException if a stored key or the value cannot be decoded
+     */
+    public V get(final Object key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the specified default value if no mapping
+     * exists for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if no mapping exists
+     * @return the value associated with the key, or {@code defaultValue} if none
+     * @throws NullPointerException if the key is null
+     * @throws UncheckedIOException if a stored key or the value cannot be decoded
+     */
+    public V getOrDefault(final Object key, final V defaultValue) {
+        requireNonNull(key, "Key value must not be null.");
+        int record = find(key);
+        return record < 0 ? defaultValue : value(record);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    private <T> T decode(CustomMapCodec<T> codec, int position, int length) {
+        try {
+            return codec.read(new DataInputStream(new SlabInputStream(buffer, position, length)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the absolute position of the key record for the specified key, or {@code -1}.
+     */
+    private int find(Object key) {
+        int hash = hash(key);
+        for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            int record = buffer.getInt(position + 4);
+            if (record == 0)
+                return -1;
+            if (buffer.getInt(position) == hash) {
+                int keyStart = keySlab + record - 1;
+                if (key.equals(decode(keyCodec, keyStart + 4, buffer.getInt(keyStart))))
+                    return keyStart;
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+    }
+
+    private K key(int record) {
+        return decode(keyCodec, record + 4, buffer.getInt(record));
+    }
+
+    private V value(int record) {
+        int valueInfo = record + 4 + buffer.getInt(record);
+        int length = buffer.getInt(valueInfo + 4);
+        return length == NULL_VALUE ? null : decode(valueCodec, valueSlab + buffer.getInt(valueInfo), length);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining())
+            channel.write(source);
+    }
+
+    /**
+     * Reads a range of the mapped buffer with absolute gets, so concurrent readers never share a position.
+     */
+    private static final class SlabInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private int position;
+        private final int end;
+
+        SlabInputStream(final ByteBuffer buffer, final int position, final int length) {
+            this.buffer = buffer;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        public int read() {
+            return position < end ? buffer.get(position++) & 0xff : -1;
+        }
+
+        public int read(byte[] bytes, int offset, int length) {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            if (length == 0)
+                return 0;
+            if (position >= end)
+                return -1;
+            int count = Math.min(length, end - position);
+            buffer.get(position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, V>> {
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry) || entry.getKey() == null)
+                return false;
+            int record = find(entry.getKey());
+            return record >= 0 && Objects.equals(value(record), entry.getValue());
+        }
+
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int nextSlot = -1;
+
+        private EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                nextSlot++;
+            } while (nextSlot <= slotMask && buffer.getInt(HEADER_SIZE + nextSlot * SLOT_SIZE + 4) == 0);
+        }
+
+        public boolean hasNext() {
+            return nextSlot <= slotMask;
+        }
+
+        public Map.Entry<K, V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int record = keySlab + buffer.getInt(HEADER_SIZE + nextSlot * SLOT_SIZE + 4) - 1;
+            advance();
+            return new LazyEntry(record);
+        }
+    }
+
+    private final class LazyEntry implements Map.Entry<K, V> {
+        private final int record;
+        private K key;
+        private V value;
+        private boolean decoded;
+
+        LazyEntry(final int record) {
+            this.record = record;
+        }
+
+        public K getKey() {
+            if (key == null)
+                key = key(record);
+            return key;
+        }
+
+        public V getValue() {
+            if (!decoded) {
+                value = value(record);
+                decoded = true;
+            }
+            return value;
+        }
+
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> entry && getKey().equals(entry.getKey())
+                    && Objects.equals(getValue(), entry.getValue());
+        }
+
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
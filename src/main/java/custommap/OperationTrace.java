@@ -0,0 +1,308 @@
+package custommap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An immutable sequence of map operations captured by a {@link RecordingCustomMap}, which can be written to a
+ * compact binary file and replayed against any {@link Map}. Traces let a real access pattern, rather than a
+ * synthetic random one, drive benchmarks and tuning.
+ * <p>
+ * A trace does not hold the recorded keys. Each distinct key is assigned a dense id in the order it was first seen,
+ * and only its {@link Object#hashCode()} is kept, so a trace can be shared without exposing the data and a replay
+ * reproduces the hash distribution, and therefore the bucket collisions, of the original keys. Values are not
+ * recorded; a replay stores each key as its own value.
+ * <p>
+ * The file holds a header of magic number, version, key count and operation count, then one {@code int} hash per
+ * key id, then one unsigned variable-length integer per operation that packs the key id above a three-bit
+ * operation code. A trace of a million operations over a hundred thousand keys is typically under three megabytes.
+ *
+ * @author Benjamin Kane
+ */
+public final class OperationTrace {
+
+    /**
+     * The operations a trace records. Map methods not listed here are recorded as the operations they perform on a
+     * {@link RecordingCustomMap}.
+     */
+    public enum Operation {
+        /** {@link Map#get(Object)}, also recorded for {@link Map#getOrDefault(Object, Object)}. */
+        GET,
+        /** {@link Map#containsKey(Object)}. */
+        CONTAINS_KEY,
+        /** {@link Map#put(Object, Object)}. */
+        PUT,
+        /** {@link Map#putIfAbsent(Object, Object)}. */
+        PUT_IF_ABSENT,
+        /** {@link Map#remove(Object)}. */
+        REMOVE,
+        /** {@link Map#clear()}, recorded with key id 0. */
+        CLEAR
+    }
+
+    static final int MAGIC = 0x434D4F54;
+    static final int VERSION = 1;
+    static final int OPERATION_BITS = 3;
+    static final int OPERATION_MASK = (1 << OPERATION_BITS) - 1;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final int[] keyHashes;
+    private final int[] codes;
+
+    OperationTrace(final int[] keyHashes, final int[] codes) {
+        this.keyHashes = keyHashes;
+        this.codes = codes;
+    }
+
+    /**
+     * Reads a trace from a file written by {@link #write(Path)}.
+     *
+     * @param file the trace file
+     * @return the trace
+     * @throws IOException if the file cannot be read or is not a trace file
+     * @throws NullPointerException if the file is null
+     */
+    public static OperationTrace read(final Path file) throws IOException {
+        requireNonNull(file, "Trace file must not be null.");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not an operation trace: " + file);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported operation trace version " + version + ": " + file);
+            int keyCount = in.readInt();
+            int size = in.readInt();
+            if (keyCount < 0 || size < 0)
+                throw new IOException("Corrupt operation trace header: " + file);
+            int[] keyHashes = new int[keyCount];
+            for (int id = 0; id < keyCount; id++)
+                keyHashes[id] = in.readInt();
+            int[] codes = new int[size];
+            for (int i = 0; i < size; i++) {
+                codes[i] = readVarInt(in);
+                int keyId = codes[i] >>> OPERATION_BITS;
+                if ((codes[i] & OPERATION_MASK) >= OPERATIONS.length || keyId >= Math.max(1, keyCount))
+                    throw new IOException("Corrupt operation trace record " + i + ": " + file);
+            }
+            return new OperationTrace(keyHashes, codes);
+        }
+    }
+
+    /**
+     * Returns the number of distinct keys in this trace.
+     *
+     * @return the number of key ids
+     */
+    public int keyCount() {
+        return keyHashes.length;
+    }
+
+    /**
+     * Returns the hash code recorded for a key id.
+     *
+     * @param keyId the key id
+     * @return the hash code of the key first seen with this id
+     * @throws IndexOutOfBoundsException if the id is not in the trace
+     */
+    public int keyHash(final int keyId) {
+        return keyHashes[keyId];
+    }
+
+    /**
+     * Returns the key id of the operation at the specified position.
+     *
+     * @param index the position in the trace
+     * @return the key id, or 0 for {@link Operation#CLEAR}
+     * @throws IndexOutOfBoundsException if the index is not in the trace
+     */
+    public int keyId(final int index) {
+        return codes[index] >>> OPERATION_BITS;
+    }
+
+    /**
+     * Returns the operation at the specified position.
+     *
+     * @param index the position in the trace
+     * @return the operation
+     * @throws IndexOutOfBoundsException if the index is not in the trace
+     */
+    public Operation operation(final int index) {
+        return OPERATIONS[codes[index] & OPERATION_MASK];
+    }
+
+    /**
+     * Executes every operation of this trace, in order, against the specified map. Each key id is represented by a
+     * key whose hash code is the recorded hash and which equals only keys with the same id; each value stored is
+     * its key. The map should be empty unless the trace was recorded from a map with the same contents.
+     *
+     * @param map the map to replay against
+     * @return the number of operations that returned a non-null or {@code true} result, for use as a checksum
+     * @throws NullPointerException if the map is null
+     */
+    public int replay(final Map<Object, Object> map) {
+        requireNonNull(map, "Map must not be null.");
+        return replay(map, keys());
+    }
+
+    /**
+     * Replays this trace with keys created once by {@link #keys()}, so repeated replays do not allocate them.
+     */
+    int replay(final Map<Object, Object> map, final TraceKey[] keys) {
+        int hits = 0;
+        for (int code : codes) {
+            TraceKey key = keys.length == 0 ? null : keys[code >>> OPERATION_BITS];
+            boolean hit = switch (OPERATIONS[code & OPERATION_MASK]) {
+                case GET -> map.get(key) != null;
+                case CONTAINS_KEY -> map.containsKey(key);
+                case PUT -> map.put(key, key) != null;
+                case PUT_IF_ABSENT -> map.putIfAbsent(key, key) != null;
+                case REMOVE -> map.remove(key) != null;
+                case CLEAR -> {
+                    map.clear();
+                    yield false;
+                }
+            };
+            if (hit)
+                hits++;
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the number of operations in this trace.
+     *
+     * @return the number of operations
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Returns a string containing the key count, the operation count and the count of each operation.
+     *
+     * @return a string representation of this trace
+     */
+    public String toString() {
+        int[] counts = new int[OPERATIONS.length];
+        for (int code : codes)
+            counts[code & OPERATION_MASK]++;
+        StringBuilder sb = new StringBuilder("OperationTrace{keys=" + keyHashes.length + ", operations=" + codes.length);
+        for (Operation operation : OPERATIONS)
+            sb.append(", ").append(operation).append('=').append(counts[operation.ordinal()]);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Writes this trace to a file, replacing it if it exists.
+     *
+     * @param file the trace file
+     * @throws IOException if the file cannot be written
+     * @throws NullPointerException if the file is null
+     */
+    public void write(final Path file) throws IOException {
+        requireNonNull(file, "Trace file must not be null.");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(keyHashes.length);
+            out.writeInt(codes.length);
+            for (int hash : keyHashes)
+                out.writeInt(hash);
+            for (int code : codes)
+                writeVarInt(out, code);
+        }
+    }
+
+    /**
+     * Returns one replay key per key id, indexed by id.
+     */
+    TraceKey[] keys() {
+        TraceKey[] keys = new TraceKey[keyHashes.length];
+        for (int id = 0; id < keys.length; id++)
+            keys[id] = new TraceKey(id, keyHashes[id]);
+        return keys;
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed variable-length integer.");
+    }
+
+    private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Accumulates operations for a {@link RecordingCustomMap}, assigning key ids in first-seen order.
+     */
+    static final class Builder {
+
+        private final CustomMap<Object, Integer> ids = new CustomMap<>();
+        private int[] keyHashes = new int[16];
+        private int[] codes = new int[64];
+        private int size;
+
+        OperationTrace build() {
+            return new OperationTrace(Arrays.copyOf(keyHashes, ids.size()), Arrays.copyOf(codes, size));
+        }
+
+        void record(final Operation operation, final Object key) {
+            int id = 0;
+            if (operation != Operation.CLEAR) {
+                Integer known = ids.get(key);
+                if (known == null) {
+                    id = ids.size();
+                    if (id >>> (Integer.SIZE - OPERATION_BITS) != 0)
+                        throw new IllegalStateException("Operation trace cannot hold more than 2^29 keys.");
+                    if (id == keyHashes.length)
+                        keyHashes = Arrays.copyOf(keyHashes, id * 2);
+                    keyHashes[id] = key.hashCode();
+                    ids.put(key, id);
+                } else
+                    id = known;
+            }
+            if (size == codes.length) {
+                if (size == Integer.MAX_VALUE - 8)
+                    throw new IllegalStateException("Operation trace is full.");
+                codes = Arrays.copyOf(codes, (int) Math.min(Integer.MAX_VALUE - 8, size * 2L));
+            }
+            codes[size++] = id << OPERATION_BITS | operation.ordinal();
+        }
+    }
+
+    /**
+     * A replay key: equal only to itself, with the recorded hash code.
+     */
+    record TraceKey(int id, int hash) {
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof TraceKey other && other.id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
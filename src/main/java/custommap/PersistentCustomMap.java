@@ -0,0 +1,630 @@
+package custommap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An immutable, persistent {@link Map} backed by a hash array mapped trie (HAMT). Each trie level consumes five
+ * bits of the key's mixed hash and stores only the children that exist, indexed through a 32-bit bitmap.
+ * {@link #with(Object, Object)} and {@link #without(Object)} return new maps that copy only the path from the
+ * root to the changed entry, so every unchanged subtree is shared between the old and the new map.
+ * <p>
+ * Batches of changes are applied through a {@link Transient}, which mutates trie nodes it created itself in
+ * place instead of copying them. {@link Transient#snapshot()} hands out an immutable view of the current state in
+ * constant time: the transient simply stops treating its existing nodes as its own, so later edits copy them.
+ * This makes a transient a cheap replacement for copying a {@link CustomMap} every time a consistent view has to
+ * be published.
+ * <p>
+ * Null keys are not permitted; null values are. All {@code Map} mutators throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class PersistentCustomMap<K, V> extends AbstractMap<K, V> {
+
+    private static final PersistentCustomMap<?, ?> EMPTY = new PersistentCustomMap<>(null, 0);
+    private static final Object NOT_FOUND = new Object();
+
+    private final TrieNode root;
+    private final int size;
+
+    private PersistentCustomMap(final TrieNode root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty persistent map.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return the empty persistent map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentCustomMap<K, V> empty() {
+        return (PersistentCustomMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a new {@link Transient} that starts from this map's mappings. This map is not affected by
+     * changes made through the transient.
+     *
+     * @return a transient editor initialised with this map's mappings
+     */
+    public Transient<K, V> asTransient() {
+        return new Transient<>(root, size);
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        return root != null && root.find(0, hash(key), key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    /**
+     * Returns an immutable {@link Set} view of the mappings in this map.
+     *
+     * @return a set view of the mappings in this map
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView<>(root, size);
+    }
+
+    /**
+     * Performs the given action for each mapping in this map.
+     *
+     * @param action the action to be performed for each key-value pair
+     * @throws NullPointerException if the action is null
+     */
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        requireNonNull(action, "BiConsumer must not be null.");
+        if (root != null)
+            root.forEach(action);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this map contains no
+     * mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(final Object key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the specified default value if no mapping
+     * exists for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if no mapping exists
+     * @return the value associated with the key, or {@code defaultValue} if none
+     * @throws NullPointerException if the key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(final Object key, final V defaultValue) {
+        requireNonNull(key, "Key value must not be null.");
+        return root == null ? defaultValue : (V) root.find(0, hash(key), key, defaultValue);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a map with the same mappings as this one plus a mapping from the specified key to the specified
+     * value. Only the nodes on the path to the key are copied; this map is unchanged.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key (maybe null)
+     * @return the resulting map, or this map if it already contains exactly this mapping
+     * @throws NullPointerException if the key is null
+     */
+    public PersistentCustomMap<K, V> with(final K key, final V value) {
+        requireNonNull(key, "Key value must not be null.");
+        Change change = new Change();
+        TrieNode newRoot = (root == null ? BitmapNode.EMPTY : root).assoc(null, 0, hash(key), key, value, change);
+        if (newRoot == root)
+            return this;
+        return new PersistentCustomMap<>(newRoot, change.added ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map with the same mappings as this one except for the specified key. Only the nodes on the
+     * path to the key are copied; this map is unchanged.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return the resulting map, or this map if it contains no mapping for the key
+     * @throws NullPointerException if the key is null
+     */
+    public PersistentCustomMap<K, V> without(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        if (root == null)
+            return this;
+        Change change = new Change();
+        TrieNode newRoot = root.without(null, 0, hash(key), key, change);
+        if (!change.removed)
+            return this;
+        return newRoot == null ? empty() : new PersistentCustomMap<>(newRoot, size - 1);
+    }
+
+    private static int hash(Object key) {
+        return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+    }
+
+    /**
+     * A mutable editor over a persistent map. Nodes created by a transient are owned by it and updated in place
+     * by later edits; nodes shared with any published map are copied first. A transient is not thread-safe.
+     *
+     * @param <K> the type of keys maintained by this transient
+     * @param <V> the type of mapped values
+     */
+    public static final class Transient<K, V> {
+        private Object edit = new Object();
+        private TrieNode root;
+        private int size;
+
+        private Transient(final TrieNode root, final int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        /**
+         * Returns {@code true} if this transient contains a mapping for the specified key.
+         *
+         * @param key the key whose presence is to be tested
+         * @return {@code true} if a mapping for the key exists
+         * @throws NullPointerException if the key is null
+         * @throws IllegalStateException if {@link #persistent()} has been called
+         */
+        public boolean containsKey(final Object key) {
+            requireNonNull(key, "Key value must not be null.");
+            ensureEditable();
+            return root != null && root.find(0, hash(key), key, NOT_FOUND) != NOT_FOUND;
+        }
+
+        /**
+         * Returns the value to which the specified key is mapped, or {@code null} if there is none.
+         *
+         * @param key the key whose associated value is to be returned
+         * @return the mapped value, or {@code null} if none
+         * @throws NullPointerException if the key is null
+         * @throws IllegalStateException if {@link #persistent()} has been called
+         */
+        @SuppressWarnings("unchecked")
+        public V get(final Object key) {
+            requireNonNull(key, "Key value must not be null.");
+            ensureEditable();
+            return root == null ? null : (V) root.find(0, hash(key), key, null);
+        }
+
+        /**
+         * Ends editing and returns the resulting persistent map. The transient cannot be used afterwards.
+         *
+         * @return a persistent map holding the mappings of this transient
+         * @throws IllegalStateException if {@link #persistent()} has already been called
+         */
+        public PersistentCustomMap<K, V> persistent() {
+            PersistentCustomMap<K, V> result = snapshot();
+            edit = null;
+            return result;
+        }
+
+        /**
+         * Associates the specified value with the specified key, replacing any previous value.
+         *
+         * @param key the key with which the specified value is to be associated
+         * @param value the value to be associated with the specified key (maybe null)
+         * @return the previous value associated with the key, or {@code null} if none
+         * @throws NullPointerException if the key is null
+         * @throws IllegalStateException if {@link #persistent()} has been called
+         */
+        @SuppressWarnings("unchecked")
+        public V put(final K key, final V value) {
+            requireNonNull(key, "Key value must not be null.");
+            ensureEditable();
+            Change change = new Change();
+            root = (root == null ? BitmapNode.EMPTY : root).assoc(edit, 0, hash(key), key, value, change);
+            if (change.added)
+                size++;
+            return (V) change.oldValue;
+        }
+
+        /**
+         * Removes the mapping for the specified key if present.
+         *
+         * @param key the key whose mapping is to be removed
+         * @return the previous value associated with the key, or {@code null} if none
+         * @throws NullPointerException if the key is null
+         * @throws IllegalStateException if {@link #persistent()} has been called
+         */
+        @SuppressWarnings("unchecked")
+        public V remove(final Object key) {
+            requireNonNull(key, "Key value must not be null.");
+            ensureEditable();
+            if (root == null)
+                return null;
+            Change change = new Change();
+            root = root.without(edit, 0, hash(key), key, change);
+            if (change.removed)
+                size--;
+            return (V) change.oldValue;
+        }
+
+        /**
+         * Returns the number of mappings in this transient.
+         *
+         * @return the number of mappings
+         * @throws IllegalStateException if {@link #persistent()} has been called
+         */
+        public int size() {
+            ensureEditable();
+            return size;
+        }
+
+        /**
+         * Returns an immutable map of the current mappings in constant time. Editing continues afterwards; nodes
+         * shared with the snapshot are copied before they are next changed, so the snapshot never changes.
+         *
+         * @return a persistent map holding the current mappings
+         * @throws IllegalStateException if {@link #persistent()} has been called
+         */
+        public PersistentCustomMap<K, V> snapshot() {
+            ensureEditable();
+            edit = new Object();
+            return size == 0 ? empty() : new PersistentCustomMap<>(root, size);
+        }
+
+        private void ensureEditable() {
+            if (edit == null)
+                throw new IllegalStateException("Transient used after persistent() call.");
+        }
+    }
+
+    /**
+     * Records the effect of an insertion or removal on the path through the trie.
+     */
+    private static final class Change {
+        boolean added;
+        boolean removed;
+        Object oldValue;
+    }
+
+    private abstract static class TrieNode {
+        /**
+         * The transient that owns this node and may mutate it in place, or {@code null} once shared.
+         */
+        final Object edit;
+        Object[] array;
+
+        TrieNode(final Object edit, final Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        abstract Object find(int shift, int hash, Object key, Object notFound);
+
+        abstract TrieNode assoc(Object edit, int shift, int hash, Object key, Object value, Change change);
+
+        abstract TrieNode without(Object edit, int shift, int hash, Object key, Change change);
+
+        abstract int pairs();
+
+        @SuppressWarnings("unchecked")
+        <K, V> void forEach(BiConsumer<? super K, ? super V> action) {
+            Object[] a = array;
+            for (int i = 0, n = pairs() * 2; i < n; i += 2) {
+                if (a[i] != null)
+                    action.accept((K) a[i], (V) a[i + 1]);
+                else
+                    ((TrieNode) a[i + 1]).forEach(action);
+            }
+        }
+
+        boolean ownedBy(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+    }
+
+    /**
+     * An interior node holding up to 32 children. Child {@code i} occupies {@code array[2i]} (its key, or
+     * {@code null} for a sub-trie) and {@code array[2i + 1]} (its value, or the sub-trie).
+     */
+    private static final class BitmapNode extends TrieNode {
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        int bitmap;
+
+        BitmapNode(final Object edit, final int bitmap, final Object[] array) {
+            super(edit, array);
+            this.bitmap = bitmap;
+        }
+
+        Object find(int shift, int hash, Object key, Object notFound) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0)
+                return notFound;
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[index];
+            Object v = array[index + 1];
+            if (k == null)
+                return ((TrieNode) v).find(shift + 5, hash, key, notFound);
+            return key.equals(k) ? v : notFound;
+        }
+
+        TrieNode assoc(Object edit, int shift, int hash, Object key, Object value, Change change) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) != 0) {
+                Object k = array[index];
+                Object v = array[index + 1];
+                if (k == null) {
+                    TrieNode child = ((TrieNode) v).assoc(edit, shift + 5, hash, key, value, change);
+                    return child == v ? this : set(edit, index + 1, child);
+                }
+                if (key.equals(k)) {
+                    change.oldValue = v;
+                    return v == value ? this : set(edit, index + 1, value);
+                }
+                change.added = true;
+                TrieNode child = split(edit, shift + 5, k, v, hash, key, value);
+                BitmapNode editable = editable(edit);
+                editable.array[index] = null;
+                editable.array[index + 1] = child;
+                return editable;
+            }
+            change.added = true;
+            Object[] grown = new Object[array.length + 2];
+            System.arraycopy(array, 0, grown, 0, index);
+            grown[index] = key;
+            grown[index + 1] = value;
+            System.arraycopy(array, index, grown, index + 2, array.length - index);
+            if (ownedBy(edit)) {
+                array = grown;
+                bitmap |= bit;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap | bit, grown);
+        }
+
+        TrieNode without(Object edit, int shift, int hash, Object key, Change change) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0)
+                return this;
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[index];
+            Object v = array[index + 1];
+            if (k == null) {
+                TrieNode child = ((TrieNode) v).without(edit, shift + 5, hash, key, change);
+                if (child == v)
+                    return this;
+                if (child != null)
+                    return set(edit, index + 1, child);
+            } else if (key.equals(k)) {
+                change.removed = true;
+                change.oldValue = v;
+            } else {
+                return this;
+            }
+            if (bitmap == bit)
+                return null;
+            Object[] shrunk = new Object[array.length - 2];
+            System.arraycopy(array, 0, shrunk, 0, index);
+            System.arraycopy(array, index + 2, shrunk, index, array.length - index - 2);
+            if (ownedBy(edit)) {
+                array = shrunk;
+                bitmap ^= bit;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap ^ bit, shrunk);
+        }
+
+        int pairs() {
+            return Integer.bitCount(bitmap);
+        }
+
+        private BitmapNode editable(Object edit) {
+            return ownedBy(edit) ? this : new BitmapNode(edit, bitmap, array.clone());
+        }
+
+        private BitmapNode set(Object edit, int index, Object element) {
+            BitmapNode editable = editable(edit);
+            editable.array[index] = element;
+            return editable;
+        }
+
+        /**
+         * Creates the sub-trie holding two distinct keys that collided at the previous level.
+         */
+        private static TrieNode split(Object edit, int shift, Object key1, Object value1, int hash2, Object key2,
+                                      Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2)
+                return new CollisionNode(edit, hash1, new Object[] {key1, value1, key2, value2});
+            Change ignored = new Change();
+            return BitmapNode.EMPTY
+                    .assoc(edit, shift, hash1, key1, value1, ignored)
+                    .assoc(edit, shift, hash2, key2, value2, ignored);
+        }
+    }
+
+    /**
+     * A leaf holding keys whose mixed hashes are identical, stored as consecutive key-value pairs.
+     */
+    private static final class CollisionNode extends TrieNode {
+        final int hash;
+
+        CollisionNode(final Object edit, final int hash, final Object[] array) {
+            super(edit, array);
+            this.hash = hash;
+        }
+
+        Object find(int shift, int hash, Object key, Object notFound) {
+            if (hash != this.hash)
+                return notFound;
+            int index = indexOf(key);
+            return index >= 0 ? array[index + 1] : notFound;
+        }
+
+        TrieNode assoc(Object edit, int shift, int hash, Object key, Object value, Change change) {
+            if (hash != this.hash) {
+                Object[] wrapped = {null, this};
+                return new BitmapNode(edit, 1 << ((this.hash >>> shift) & 31), wrapped)
+                        .assoc(edit, shift, hash, key, value, change);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                change.oldValue = array[index + 1];
+                if (array[index + 1] == value)
+                    return this;
+                CollisionNode editable = ownedBy(edit) ? this : new CollisionNode(edit, hash, array.clone());
+                editable.array[index + 1] = value;
+                return editable;
+            }
+            change.added = true;
+            Object[] grown = new Object[array.length + 2];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            grown[array.length] = key;
+            grown[array.length + 1] = value;
+            if (ownedBy(edit)) {
+                array = grown;
+                return this;
+            }
+            return new CollisionNode(edit, hash, grown);
+        }
+
+        TrieNode without(Object edit, int shift, int hash, Object key, Change change) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0)
+                return this;
+            change.removed = true;
+            change.oldValue = array[index + 1];
+            if (array.length == 2)
+                return null;
+            Object[] shrunk = new Object[array.length - 2];
+            System.arraycopy(array, 0, shrunk, 0, index);
+            System.arraycopy(array, index + 2, shrunk, index, array.length - index - 2);
+            if (ownedBy(edit)) {
+                array = shrunk;
+                return this;
+            }
+            return new CollisionNode(edit, hash, shrunk);
+        }
+
+        int pairs() {
+            return array.length / 2;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2)
+                if (key.equals(array[i]))
+                    return i;
+            return -1;
+        }
+    }
+
+    private static final class EntrySetView<K, V> extends AbstractSet<Map.Entry<K, V>> {
+        private final TrieNode root;
+        private final int size;
+
+        EntrySetView(final TrieNode root, final int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry) || entry.getKey() == null || root == null)
+                return false;
+            Object found = root.find(0, hash(entry.getKey()), entry.getKey(), NOT_FOUND);
+            return found != NOT_FOUND && Objects.equals(found, entry.getValue());
+        }
+
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator<>(root);
+        }
+    }
+
+    /**
+     * Walks the trie depth-first with an explicit stack; the trie is at most seven levels deep plus one
+     * collision level.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final TrieNode[] nodes = new TrieNode[8];
+        private final int[] positions = new int[8];
+        private int depth = -1;
+        private Object nextKey;
+        private Object nextValue;
+
+        EntryIterator(final TrieNode root) {
+            if (root != null) {
+                nodes[0] = root;
+                depth = 0;
+            }
+            advance();
+        }
+
+        private void advance() {
+            nextKey = null;
+            while (depth >= 0) {
+                TrieNode node = nodes[depth];
+                int position = positions[depth];
+                if (position >= node.pairs() * 2) {
+                    positions[depth] = 0;
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                Object k = node.array[position];
+                Object v = node.array[position + 1];
+                if (k == null) {
+                    nodes[++depth] = (TrieNode) v;
+                    positions[depth] = 0;
+                } else {
+                    nextKey = k;
+                    nextValue = v;
+                    return;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return nextKey != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (nextKey == null)
+                throw new NoSuchElementException();
+            Map.Entry<K, V> entry = new SimpleImmutableEntry<>((K) nextKey, (V) nextValue);
+            advance();
+            return entry;
+        }
+    }
+}
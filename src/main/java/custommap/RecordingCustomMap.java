@@ -0,0 +1,181 @@
+package custommap;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Map} that forwards every call to a {@link CustomMap} and records the operations performed, and the keys
+ * they were performed on, in an {@link OperationTrace}. Wrapping the map an application really uses captures its
+ * access pattern, which can then be written with {@link #writeTrace(Path)} and replayed by benchmarks against other
+ * map implementations.
+ * <p>
+ * {@code get}, {@code getOrDefault}, {@code containsKey}, {@code put}, {@code putIfAbsent}, {@code remove(Object)}
+ * and {@code clear} are recorded directly. The remaining {@link Map} methods, such as {@code compute}, {@code merge}
+ * and {@code putAll}, use the inherited implementations, which are built from the recorded methods and so are
+ * recorded as the operations they perform. An operation that throws is not recorded. The collection views are
+ * read-only so that no modification escapes the trace.
+ * <p>
+ * The recorder keeps a reference to every distinct key it has seen, in order to assign key ids, until the map is
+ * garbage collected. Like {@link CustomMap}, this class is not thread-safe.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class RecordingCustomMap<K, V> extends AbstractMap<K, V> {
+
+    private final CustomMap<K, V> delegate;
+    private final OperationTrace.Builder trace = new OperationTrace.Builder();
+
+    /**
+     * Constructs a recording map over an empty {@link CustomMap}.
+     */
+    public RecordingCustomMap() {
+        this(new CustomMap<>());
+    }
+
+    /**
+     * Constructs a recording map over the specified map. Operations performed on the map directly are not
+     * recorded.
+     *
+     * @param delegate the map that holds the mappings
+     * @throws NullPointerException if the map is null
+     */
+    public RecordingCustomMap(final CustomMap<K, V> delegate) {
+        this.delegate = requireNonNull(delegate, "Delegate map must not be null.");
+    }
+
+    /**
+     * Removes all mappings from this map.
+     */
+    public void clear() {
+        delegate.clear();
+        trace.record(OperationTrace.Operation.CLEAR, null);
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     * @throws NullPointerException if the key is null
+     */
+    public boolean containsKey(final Object key) {
+        boolean contains = delegate.containsKey(key);
+        trace.record(OperationTrace.Operation.CONTAINS_KEY, key);
+        return contains;
+    }
+
+    /**
+     * Returns a read-only {@link Set} view of the mappings in this map.
+     *
+     * @return a set view of the mappings
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return Collections.unmodifiableMap(delegate).entrySet();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if there is none.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V get(final Object key) {
+        V value = delegate.get(key);
+        trace.record(OperationTrace.Operation.GET, key);
+        return value;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code defaultValue} if there is none. Recorded
+     * as {@link OperationTrace.Operation#GET}.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if the key is not mapped
+     * @return the value mapped to the key, or {@code defaultValue}
+     * @throws NullPointerException if the key is null
+     */
+    public V getOrDefault(final Object key, final V defaultValue) {
+        V value = delegate.getOrDefault(key, defaultValue);
+        trace.record(OperationTrace.Operation.GET, key);
+        return value;
+    }
+
+    /**
+     * Associates the specified value with the specified key.
+     *
+     * @param key the key with which the value is to be associated
+     * @param value the value to be associated with the key
+     * @return the previous value mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V put(final K key, final V value) {
+        V previous = delegate.put(key, value);
+        trace.record(OperationTrace.Operation.PUT, key);
+        return previous;
+    }
+
+    /**
+     * Associates the specified value with the specified key if it is not already mapped to a non-null value.
+     *
+     * @param key the key with which the value is to be associated
+     * @param value the value to be associated with the key
+     * @return the current value mapped to the key, or {@code null} if there was none
+     * @throws NullPointerException if the key is null
+     */
+    public V putIfAbsent(final K key, final V value) {
+        V current = delegate.putIfAbsent(key, value);
+        trace.record(OperationTrace.Operation.PUT_IF_ABSENT, key);
+        return current;
+    }
+
+    /**
+     * Removes the mapping for the specified key if it is present.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return the value that was mapped to the key, or {@code null}
+     * @throws NullPointerException if the key is null
+     */
+    public V remove(final Object key) {
+        V value = delegate.remove(key);
+        trace.record(OperationTrace.Operation.REMOVE, key);
+        return value;
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return delegate.size();
+    }
+
+    /**
+     * Returns the operations recorded so far.
+     *
+     * @return an immutable trace of the recorded operations
+     */
+    public OperationTrace trace() {
+        return trace.build();
+    }
+
+    /**
+     * Writes the operations recorded so far to a trace file.
+     *
+     * @param file the trace file
+     * @throws IOException if the file cannot be written
+     * @throws NullPointerException if the file is null
+     */
+    public void writeTrace(final Path file) throws IOException {
+        trace().write(file);
+    }
+}
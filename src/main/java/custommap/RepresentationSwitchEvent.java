@@ -0,0 +1,29 @@
+package custommap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records one migration of an {@link AdaptiveCustomMap} between representations, timed from the start to the end
+ * of the copy.
+ *
+ * @author Benjamin Kane
+ */
+@Name("custommap.RepresentationSwitch")
+@Label("CustomMap Representation Switch")
+@Category("CustomMap")
+@Description("Migration of an AdaptiveCustomMap to a different internal representation")
+final class RepresentationSwitchEvent extends Event {
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Size")
+    int size;
+}
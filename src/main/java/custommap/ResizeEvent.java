@@ -0,0 +1,28 @@
+package custommap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records one rehash of a {@link CustomMap} table, timed from the start to the end of the transfer.
+ *
+ * @author Benjamin Kane
+ */
+@Name("custommap.Resize")
+@Label("CustomMap Resize")
+@Category("CustomMap")
+@Description("Rehash of a CustomMap table into a larger or smaller array")
+final class ResizeEvent extends Event {
+
+    @Label("Old Capacity")
+    int oldCapacity;
+
+    @Label("New Capacity")
+    int newCapacity;
+
+    @Label("Entries Moved")
+    int entriesMoved;
+}
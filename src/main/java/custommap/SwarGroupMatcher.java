@@ -0,0 +1,69 @@
+package custommap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * The portable {@link GroupMatcher}. A group is read as two little-endian {@code long} words through a byte-array
+ * {@link VarHandle}, and each word is compared against the tag with SWAR (SIMD-within-a-register) arithmetic. The
+ * high word is only read when the low word has no candidate.
+ *
+ * @author Benjamin Kane
+ */
+final class SwarGroupMatcher implements GroupMatcher {
+
+    private static final long LSBS = 0x0101010101010101L;
+    private static final long MSBS = 0x8080808080808080L;
+    private static final VarHandle CONTROL_WORD =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    public int nextMatch(final byte[] control, final int groupStart, final byte tag, final int from) {
+        if (from >= WIDTH)
+            return WIDTH;
+        long pattern = LSBS * tag;
+        int highFrom = 0;
+        if (from < Long.BYTES) {
+            long low = matchByte(word(control, groupStart), pattern) & (-1L << (from << 3));
+            if (low != 0)
+                return Long.numberOfTrailingZeros(low) >>> 3;
+        } else
+            highFrom = from - Long.BYTES;
+        long high = matchByte(word(control, groupStart + Long.BYTES), pattern) & (-1L << (highFrom << 3));
+        return high != 0 ? Long.BYTES + (Long.numberOfTrailingZeros(high) >>> 3) : WIDTH;
+    }
+
+    public boolean hasEmpty(final byte[] control, final int groupStart) {
+        return (matchEmpty(word(control, groupStart)) | matchEmpty(word(control, groupStart + Long.BYTES))) != 0;
+    }
+
+    public int firstFree(final byte[] control, final int groupStart) {
+        long low = word(control, groupStart) & MSBS;
+        if (low != 0)
+            return Long.numberOfTrailingZeros(low) >>> 3;
+        long high = word(control, groupStart + Long.BYTES) & MSBS;
+        return high != 0 ? Long.BYTES + (Long.numberOfTrailingZeros(high) >>> 3) : WIDTH;
+    }
+
+    /**
+     * Returns a mask with the high bit set in every byte of {@code word} equal to the tag repeated in
+     * {@code pattern}. A byte directly above a true match may also be flagged, which
+     * {@link GroupMatcher#nextMatch} permits; true matches are never missed.
+     */
+    private static long matchByte(final long word, final long pattern) {
+        long x = word ^ pattern;
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    /**
+     * Returns a mask with the high bit set in every empty byte. Empty ({@code 0x80}) is the only control value
+     * with the high bit set and bit 1 clear.
+     */
+    private static long matchEmpty(final long word) {
+        return word & ~(word << 6) & MSBS;
+    }
+
+    private static long word(final byte[] control, final int index) {
+        return (long) CONTROL_WORD.get(control, index);
+    }
+}
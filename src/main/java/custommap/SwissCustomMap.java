@@ -0,0 +1,351 @@
+package custommap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An open-addressing implementation of the {@link Map} interface in the style of a SwissTable. Every slot has
+ * a control byte that is either empty, deleted, or the low seven bits of the key's hash (its tag). Slots are
+ * probed in aligned groups of sixteen, and the sixteen control bytes of a group are compared against the tag
+ * together, so a whole group is rejected without touching a key. Most lookups for absent keys end after
+ * inspecting a single group.
+ * <p>
+ * When the JVM is started with {@code --add-modules jdk.incubator.vector}, a group is compared in one SIMD
+ * instruction through the Vector API. Otherwise, or with {@code -Dcustommap.swiss.scalar=true}, it is compared
+ * as two {@code long} words with SWAR (SIMD-within-a-register) arithmetic. Both produce the same map; see
+ * {@link GroupMatcher}.
+ * <p>
+ * Keys and values are stored in flat arrays, so no per-entry objects are allocated. The table grows when it is
+ * seven-eighths full and is rebuilt in place when deletions leave too many tombstones. Null keys are not
+ * permitted; null values are.
+ * <p>
+ * This implementation is not synchronized and does not detect concurrent modifications.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class SwissCustomMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int GROUP_WIDTH = GroupMatcher.WIDTH;
+    private static final int GROUP_SHIFT = Integer.numberOfTrailingZeros(GROUP_WIDTH);
+    private static final byte EMPTY = GroupMatcher.EMPTY;
+    private static final byte DELETED = GroupMatcher.DELETED;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final GroupMatcher MATCHER = GroupMatcher.select();
+
+    private byte[] control;
+    private Object[] keys;
+    private Object[] values;
+    private int size;
+    private int growthLeft;
+
+    /**
+     * Constructs an empty {@code SwissCustomMap} with room for 14 mappings before growing.
+     */
+    public SwissCustomMap() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty {@code SwissCustomMap} with the specified initial number of slots, rounded up to a
+     * power of two of at least sixteen.
+     *
+     * @param initialCapacity the initial number of slots
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public SwissCustomMap(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Initial capacity must not be negative: " + initialCapacity);
+        int capacity = GROUP_WIDTH;
+        while (capacity < initialCapacity && capacity < MAXIMUM_CAPACITY)
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Constructs a new {@code SwissCustomMap} with the same mappings as the specified map.
+     *
+     * @param m the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map or any of its keys is null
+     */
+    public SwissCustomMap(final Map<? extends K, ? extends V> m) {
+        this((int) (m.size() / 0.875) + 1);
+        putAll(m);
+    }
+
+    /**
+     * Removes all mappings from this map, keeping its current capacity.
+     */
+    public void clear() {
+        Arrays.fill(control, EMPTY);
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+        growthLeft = maxLoad(control.length);
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        return find(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings in this map. The set is backed by the map; removing through
+     * its iterator removes the mapping, and {@link Map.Entry#setValue} writes through.
+     *
+     * @return a set view of the mappings in this map
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this map contains no
+     * mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(final Object key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the specified default value if no mapping
+     * exists for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if no mapping exists
+     * @return the value associated with the key, or {@code defaultValue} if none
+     * @throws NullPointerException if the key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(final Object key, final V defaultValue) {
+        requireNonNull(key, "Key value must not be null.");
+        int slot = find(key, hash(key));
+        return slot < 0 ? defaultValue : (V) values[slot];
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map, replacing any previous value.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key (maybe null)
+     * @return the previous value associated with the key, or {@code null} if none
+     * @throws NullPointerException if the key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final K key, final V value) {
+        requireNonNull(key, "Key value must not be null.");
+        int hash = hash(key);
+        int slot = find(key, hash);
+        if (slot >= 0) {
+            V oldValue = (V) values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+        insertAbsent(hash, key, value);
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return the previous value associated with the key, or {@code null} if none
+     * @throws NullPointerException if the key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        int slot = find(key, hash(key));
+        if (slot < 0)
+            return null;
+        V oldValue = (V) values[slot];
+        erase(slot);
+        return oldValue;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if groups are compared with the Vector API rather than the SWAR fallback.
+     */
+    static boolean isVectorized() {
+        return !(MATCHER instanceof SwarGroupMatcher);
+    }
+
+    private void allocate(int capacity) {
+        control = new byte[capacity];
+        Arrays.fill(control, EMPTY);
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        growthLeft = maxLoad(capacity) - size;
+    }
+
+    private void erase(int slot) {
+        boolean groupHasEmpty = MATCHER.hasEmpty(control, slot & -GROUP_WIDTH);
+        control[slot] = groupHasEmpty ? EMPTY : DELETED;
+        if (groupHasEmpty)
+            growthLeft++;
+        keys[slot] = null;
+        values[slot] = null;
+        size--;
+    }
+
+    /**
+     * Returns the slot holding the specified key, or {@code -1}. Groups are visited in triangular order, which
+     * reaches every group of a power-of-two table; the search ends at the first group containing an empty slot.
+     */
+    private int find(Object key, int hash) {
+        byte[] ctrl = control;
+        Object[] ks = keys;
+        GroupMatcher matcher = MATCHER;
+        int groupMask = (ctrl.length >>> GROUP_SHIFT) - 1;
+        byte tag = (byte) (hash & 0x7F);
+        int group = (hash >>> 7) & groupMask;
+        for (int step = 1; ; step++) {
+            int groupStart = group << GROUP_SHIFT;
+            for (int offset = matcher.nextMatch(ctrl, groupStart, tag, 0); offset < GROUP_WIDTH;
+                 offset = matcher.nextMatch(ctrl, groupStart, tag, offset + 1)) {
+                Object candidate = ks[groupStart + offset];
+                if (candidate != null && candidate.equals(key))
+                    return groupStart + offset;
+            }
+            if (matcher.hasEmpty(ctrl, groupStart) || step > groupMask)
+                return -1;
+            group = (group + step) & groupMask;
+        }
+    }
+
+    private static int hash(Object key) {
+        return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+    }
+
+    private void insertAbsent(int hash, K key, V value) {
+        if (growthLeft == 0) {
+            int capacity = control.length;
+            rehash(size + 1 > maxLoad(capacity) / 2 && capacity < MAXIMUM_CAPACITY ? capacity << 1 : capacity);
+        }
+        byte[] ctrl = control;
+        int groupMask = (ctrl.length >>> GROUP_SHIFT) - 1;
+        int group = (hash >>> 7) & groupMask;
+        for (int step = 1; ; step++) {
+            int groupStart = group << GROUP_SHIFT;
+            int free = MATCHER.firstFree(ctrl, groupStart);
+            if (free < GROUP_WIDTH) {
+                int slot = groupStart + free;
+                if (ctrl[slot] == EMPTY)
+                    growthLeft--;
+                ctrl[slot] = (byte) (hash & 0x7F);
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                return;
+            }
+            group = (group + step) & groupMask;
+        }
+    }
+
+    private static int maxLoad(int capacity) {
+        return capacity - (capacity >>> 3);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rehash(int newCapacity) {
+        byte[] oldControl = control;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        size = 0;
+        allocate(newCapacity);
+        for (int i = 0; i < oldControl.length; i++)
+            if (oldControl[i] >= 0)
+                insertAbsent(hash(oldKeys[i]), (K) oldKeys[i], (V) oldValues[i]);
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, V>> {
+        public int size() {
+            return SwissCustomMap.this.size;
+        }
+
+        public void clear() {
+            SwissCustomMap.this.clear();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry) || entry.getKey() == null)
+                return false;
+            int slot = find(entry.getKey(), hash(entry.getKey()));
+            return slot >= 0 && Objects.equals(values[slot], entry.getValue());
+        }
+
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int nextSlot = -1;
+        private int lastReturned = -1;
+
+        private EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            byte[] ctrl = control;
+            do {
+                nextSlot++;
+            } while (nextSlot < ctrl.length && ctrl[nextSlot] < 0);
+        }
+
+        public boolean hasNext() {
+            return nextSlot < control.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int slot = lastReturned = nextSlot;
+            advance();
+            return new SimpleEntry<>((K) keys[slot], (V) values[slot]) {
+                public V setValue(V value) {
+                    values[slot] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        public void remove() {
+            if (lastReturned < 0)
+                throw new IllegalStateException();
+            erase(lastReturned);
+            lastReturned = -1;
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package custommap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ToLongBiFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Map} that keeps values on the heap up to a byte budget and spills the coldest ones to a local segment
+ * file beyond it, so a map that outgrows the heap slows down instead of failing with an
+ * {@link OutOfMemoryError}.
+ * <p>
+ * Resident mappings live in a {@link CustomMap} and are weighed with a caller-supplied weigher. They are also
+ * linked into a ring in admission order, swept by a clock hand that persists between spills. When their total
+ * weight exceeds the budget, the hand advances from where the previous spill stopped, clearing the reference bit
+ * of each mapping read or written since the hand last passed it and evicting each mapping whose bit is already
+ * clear, until the weight is back under seven eighths of the budget. Evicted values are encoded with the
+ * value codec and appended to the segment file in one write; their keys stay in an in-memory
+ * {@link CustomMap} from key to file offset, so {@link #containsKey(Object)} and misses never touch the disk. A
+ * {@link #get(Object)} of a spilled key reads its length-prefixed record with positional reads and faults the value back into
+ * the resident tier. Records left behind by faults, overwrites and removals are reclaimed by rewriting the
+ * segment once they outweigh the live records.
+ * <p>
+ * The budget covers resident mappings only; keys of spilled mappings and their index entries remain on the heap.
+ * The segment file is scratch space: it is truncated when the map is opened and deleted when it is closed. Like
+ * {@link CustomMap}, this class is not thread-safe. Null keys are not permitted; null values are.
+ *
+ * @author Benjamin Kane
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class TieredCustomMap<K, V> extends AbstractMap<K, V> implements Closeable {
+
+    private static final long MINIMUM_COMPACTION_BYTES = 1 << 20;
+    private static final int RECORD_HEADER = Integer.BYTES;
+
+    private final Path segmentFile;
+    private final long byteBudget;
+    private final CustomMapCodec<V> valueCodec;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    private final CustomMap<K, Resident<K, V>> resident = new CustomMap<>();
+    private final CustomMap<K, Long> spilled = new CustomMap<>();
+    private final RecordBuffer batch = new RecordBuffer();
+    private final DataOutputStream batchOut = new DataOutputStream(batch);
+    private FileChannel segment;
+    private Resident<K, V> hand;
+    private long segmentEnd;
+    private long residentBytes;
+    private long deadBytes;
+    private boolean closed;
+
+    private TieredCustomMap(final Path segmentFile, final long byteBudget, final CustomMapCodec<V> valueCodec,
+                            final ToLongBiFunction<? super K, ? super V> weigher) throws IOException {
+        this.segmentFile = segmentFile;
+        this.byteBudget = byteBudget;
+        this.valueCodec = valueCodec;
+        this.weigher = weigher;
+        this.segment = openSegment(segmentFile);
+    }
+
+    /**
+     * Creates a tiered map that weighs each mapping with {@link #estimateWeight(Object, Object)}.
+     *
+     * @param segmentFile the scratch file that receives spilled values
+     * @param byteBudget the maximum estimated weight of resident mappings, in bytes
+     * @param valueCodec the codec used to encode and decode non-null spilled values
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return an empty tiered map
+     * @throws IOException if the segment file cannot be created
+     * @throws IllegalArgumentException if the budget is negative
+     * @throws NullPointerException if the file or codec is null
+     */
+    public static <K, V> TieredCustomMap<K, V> open(final Path segmentFile, final long byteBudget,
+                                                    final CustomMapCodec<V> valueCodec) throws IOException {
+        return open(segmentFile, byteBudget, valueCodec, TieredCustomMap::estimateWeight);
+    }
+
+    /**
+     * Creates a tiered map that weighs each mapping with the specified weigher.
+     *
+     * @param segmentFile the scratch file that receives spilled values
+     * @param byteBudget the maximum weight of resident mappings, in bytes
+     * @param valueCodec the codec used to encode and decode non-null spilled values
+     * @param weigher returns the approximate heap footprint of a mapping in bytes
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return an empty tiered map
+     * @throws IOException if the segment file cannot be created
+     * @throws IllegalArgumentException if the budget is negative
+     * @throws NullPointerException if the file, codec or weigher is null
+     */
+    public static <K, V> TieredCustomMap<K, V> open(final Path segmentFile, final long byteBudget,
+                                                    final CustomMapCodec<V> valueCodec,
+                                                    final ToLongBiFunction<? super K, ? super V> weigher)
+            throws IOException {
+        requireNonNull(segmentFile, "Segment file must not be null.");
+        requireNonNull(valueCodec, "Value codec must not be null.");
+        requireNonNull(weigher, "Weigher must not be null.");
+        if (byteBudget < 0)
+            throw new IllegalArgumentException("Byte budget must not be negative.");
+        return new TieredCustomMap<>(segmentFile, byteBudget, valueCodec, weigher);
+    }
+
+    /**
+     * Returns a rough estimate of the heap footprint of a mapping: a fixed per-entry overhead plus the size of
+     * {@link String}, {@link CharSequence} and byte-array keys and values, and a boxed size for anything else.
+     *
+     * @param key the key of the mapping
+     * @param value the value of the mapping, possibly null
+     * @return the estimated footprint in bytes
+     */
+    public static long estimateWeight(final Object key, final Object value) {
+        return 48 + estimateWeight(key) + estimateWeight(value);
+    }
+
+    /**
+     * Removes all mappings from this map and truncates the segment file.
+     *
+     * @throws UncheckedIOException if the segment file cannot be truncated
+     */
+    public void clear() {
+        ensureOpen();
+        resident.clear();
+        spilled.clear();
+        hand = null;
+        residentBytes = 0;
+        deadBytes = 0;
+        segmentEnd = 0;
+        try {
+            segment.truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes and deletes the segment file. All spilled mappings are lost; calling this method more than once has
+     * no effect.
+     *
+     * @throws IOException if the segment file cannot be closed or deleted
+     */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        resident.clear();
+        spilled.clear();
+        hand = null;
+        segment.close();
+        Files.deleteIfExists(segmentFile);
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified key, without reading the segment file.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        return resident.containsKey(key) || spilled.containsKey(key);
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings in this map. Iterating reads spilled values from the segment
+     * file without faulting them back in; the view and its entries do not support modification.
+     *
+     * @return a set view of the mappings in this map
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null} if this map contains no mapping
+     * for the key. A spilled value is read from the segment file and becomes resident again.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null} if none
+     * @throws NullPointerException if the specified key is null
+     * @throws UncheckedIOException if the segment file cannot be read
+     */
+    public V get(final Object key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or the specified default value if no mapping
+     * exists for the key. A spilled value is read from the segment file and becomes resident again.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the value to return if no mapping exists
+     * @return the value associated with the key, or {@code defaultValue} if none
+     * @throws NullPointerException if the key is null
+     * @throws UncheckedIOException if the segment file cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(final Object key, final V defaultValue) {
+        requireNonNull(key, "Key value must not be null.");
+        Resident<K, V> hot = resident.get(key);
+        if (hot != null) {
+            hot.referenced = true;
+            return hot.value;
+        }
+        Long offset = spilled.get(key);
+        if (offset == null)
+            return defaultValue;
+        int length = recordLength(offset);
+        V value = read(offset, length);
+        spilled.remove(key);
+        deadBytes += length;
+        admit((K) key, value);
+        compactIfWasteful();
+        return value;
+    }
+
+    /**
+     * Associates the specified value with the specified key, spilling cold mappings if the budget is exceeded.
+     *
+     * @param key the key with which the specified value is to be associated
+     * @param value the value to be associated with the specified key
+     * @return the previous value associated with the key, or {@code null} if none
+     * @throws NullPointerException if the key is null
+     * @throws UncheckedIOException if the segment file cannot be read or written
+     */
+    public V put(final K key, final V value) {
+        requireNonNull(key, "Key value must not be null.");
+        ensureOpen();
+        V previous = remove(key);
+        admit(key, value);
+        return previous;
+    }
+
+    /**
+     * Removes the mapping for the specified key if present. A spilled value is read back to be returned.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return the previous value associated with the key, or {@code null} if none
+     * @throws NullPointerException if the key is null
+     * @throws UncheckedIOException if the segment file cannot be read
+     */
+    public V remove(final Object key) {
+        requireNonNull(key, "Key value must not be null.");
+        Resident<K, V> hot = resident.remove(key);
+        if (hot != null) {
+            unlink(hot);
+            residentBytes -= hot.weight;
+            return hot.value;
+        }
+        Long offset = spilled.remove(key);
+        if (offset == null)
+            return null;
+        int length = recordLength(offset);
+        V value = read(offset, length);
+        deadBytes += length;
+        compactIfWasteful();
+        return value;
+    }
+
+    /**
+     * Returns the number of mappings whose values are held on the heap.
+     *
+     * @return the number of resident mappings
+     */
+    public int residentSize() {
+        return resident.size();
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return resident.size() + spilled.size();
+    }
+
+    /**
+     * Returns the number of mappings whose values are held in the segment file.
+     *
+     * @return the number of spilled mappings
+     */
+    public int spilledSize() {
+        return spilled.size();
+    }
+
+    /**
+     * Returns {@code true} if the key's value is held on the heap.
+     */
+    boolean isResident(final Object key) {
+        return resident.containsKey(key);
+    }
+
+    private void admit(K key, V value) {
+        long weight = weigher.applyAsLong(key, value);
+        Resident<K, V> hot = new Resident<>(key, value, weight);
+        resident.put(key, hot);
+        link(hot);
+        residentBytes += weight;
+        if (residentBytes > byteBudget)
+            spill();
+    }
+
+    /**
+     * Rewrites the live records into a fresh segment once dead records outweigh them.
+     */
+    private void compactIfWasteful() {
+        if (deadBytes < MINIMUM_COMPACTION_BYTES || deadBytes < segmentEnd - deadBytes)
+            return;
+        Path compacted = segmentFile.resolveSibling(segmentFile.getFileName() + ".compact");
+        try {
+            long end = 0;
+            try (FileChannel target = openSegment(compacted)) {
+                for (Map.Entry<K, Long> entry : spilled.entrySet()) {
+                    long offset = entry.getValue();
+                    int length = recordLength(offset);
+                    ByteBuffer record = ByteBuffer.allocate(length);
+                    readFully(offset, record);
+                    record.flip();
+                    while (record.hasRemaining())
+                        target.write(record);
+                    entry.setValue(end);
+                    end += length;
+                }
+            }
+            segment.close();
+            Files.move(compacted, segmentFile, StandardCopyOption.REPLACE_EXISTING);
+            segment = FileChannel.open(segmentFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segmentEnd = end;
+            deadBytes = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("Tiered map has been closed.");
+    }
+
+    private static long estimateWeight(Object object) {
+        if (object == null)
+            return 0;
+        if (object instanceof CharSequence sequence)
+            return 40 + 2L * sequence.length();
+        if (object instanceof byte[] bytes)
+            return 16 + bytes.length;
+        return 16;
+    }
+
+    /**
+     * Inserts a mapping into the ring just behind the hand, so it is the last one the hand reaches.
+     */
+    private void link(Resident<K, V> node) {
+        if (hand == null) {
+            node.previous = node;
+            node.next = node;
+            hand = node;
+            return;
+        }
+        node.next = hand;
+        node.previous = hand.previous;
+        hand.previous.next = node;
+        hand.previous = node;
+    }
+
+    private static FileChannel openSegment(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private V read(long offset, int length) {
+        ByteBuffer record = ByteBuffer.allocate(length - RECORD_HEADER);
+        try {
+            readFully(offset + RECORD_HEADER, record);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()));
+            return in.readBoolean() ? valueCodec.read(in) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readFully(long position, ByteBuffer target) throws IOException {
+        while (target.hasRemaining())
+            if (segment.read(target, position + target.position()) < 0)
+                throw new EOFException("Segment file ends inside a record.");
+    }
+
+    /**
+     * Returns the length of the record at the specified offset, including its length prefix.
+     */
+    private int recordLength(long offset) {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        try {
+            readFully(offset, header);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return RECORD_HEADER + header.getInt(0);
+    }
+
+    /**
+     * Moves cold resident mappings to the segment file until their weight is under seven eighths of the budget.
+     * The hand gives each referenced mapping a second chance and makes at most two revolutions, so every mapping
+     * is considered, whatever its bucket.
+     */
+    private void spill() {
+        long target = byteBudget - (byteBudget >>> 3);
+        batch.reset();
+        try {
+            for (long visits = 2L * resident.size(); residentBytes > target && visits > 0; visits--) {
+                Resident<K, V> hot = hand;
+                if (hot.referenced) {
+                    hot.referenced = false;
+                    hand = hot.next;
+                    continue;
+                }
+                long offset = segmentEnd + batch.size();
+                int start = batch.size();
+                batchOut.writeInt(0);
+                batchOut.writeBoolean(hot.value != null);
+                if (hot.value != null)
+                    valueCodec.write(batchOut, hot.value);
+                batch.patchInt(start, batch.size() - start - RECORD_HEADER);
+                residentBytes -= hot.weight;
+                resident.remove(hot.key);
+                unlink(hot);
+                spilled.put(hot.key, offset);
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(batch.array(), 0, batch.size());
+            while (bytes.hasRemaining())
+                segment.write(bytes, segmentEnd + bytes.position());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segmentEnd += batch.size();
+    }
+
+    /**
+     * Removes a mapping from the ring, moving the hand on to the next mapping if it pointed at this one.
+     */
+    private void unlink(Resident<K, V> node) {
+        if (node.next == node)
+            hand = null;
+        else {
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            if (hand == node)
+                hand = node.next;
+        }
+        node.previous = null;
+        node.next = null;
+    }
+
+    private static final class Resident<K, V> {
+        final K key;
+        final V value;
+        final long weight;
+        boolean referenced = true;
+        Resident<K, V> previous;
+        Resident<K, V> next;
+
+        Resident(final K key, final V value, final long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Exposes the backing array so a spill batch can be written and its length prefixes patched in place.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+
+        void patchInt(int position, int value) {
+            buf[position] = (byte) (value >>> 24);
+            buf[position + 1] = (byte) (value >>> 16);
+            buf[position + 2] = (byte) (value >>> 8);
+            buf[position + 3] = (byte) value;
+        }
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, V>> {
+        public int size() {
+            return TieredCustomMap.this.size();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry) || entry.getKey() == null)
+                return false;
+            Object key = entry.getKey();
+            Resident<K, V> hot = resident.get(key);
+            if (hot != null)
+                return Objects.equals(hot.value, entry.getValue());
+            Long offset = spilled.get(key);
+            return offset != null && Objects.equals(read(offset, recordLength(offset)), entry.getValue());
+        }
+
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Iterator<Map.Entry<K, Resident<K, V>>> residentIterator = resident.entrySet().iterator();
+        private final Iterator<Map.Entry<K, Long>> spilledIterator = spilled.entrySet().iterator();
+
+        public boolean hasNext() {
+            return residentIterator.hasNext() || spilledIterator.hasNext();
+        }
+
+        public Map.Entry<K, V> next() {
+            if (residentIterator.hasNext()) {
+                Map.Entry<K, Resident<K, V>> entry = residentIterator.next();
+                return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().value);
+            }
+            if (!spilledIterator.hasNext())
+                throw new NoSuchElementException();
+            Map.Entry<K, Long> entry = spilledIterator.next();
+            long offset = entry.getValue();
+            return new SimpleImmutableEntry<>(entry.getKey(), read(offset, recordLength(offset)));
+        }
+    }
+}
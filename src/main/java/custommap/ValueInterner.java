@@ -0,0 +1,71 @@
+package custommap;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * A weak pool of canonical values for a {@link CustomMap} with value interning enabled. Interning a value returns
+ * an equal instance already in the pool, if one is still reachable, and otherwise makes the value itself the
+ * canonical instance. The pool holds its values only weakly, so a canonical value is collected once no map entry
+ * or other reference uses it.
+ * <p>
+ * The pool keeps no counters: a count of values replaced over the pool's lifetime overstates the savings once the
+ * mappings holding them are removed or overwritten, so {@link CustomMap#stats()} measures sharing among the live
+ * mappings instead, using {@link #estimateBytes(Object)}. The estimate assumes a 64-bit JVM with compressed
+ * references and counts only the object itself, plus the backing array for a {@link String}, which is assumed to
+ * be Latin-1; for other types it is the 16-byte minimum object size, so it is a lower bound.
+ *
+ * @author Benjamin Kane
+ * @param <V> the type of values interned
+ */
+final class ValueInterner<V> {
+
+    static final int OBJECT_BYTES = 16;
+    static final int STRING_BYTES = 24;
+    static final int BOXED_WIDE_BYTES = 24;
+
+    private final WeakHashMap<V, WeakReference<V>> pool = new WeakHashMap<>();
+
+    /**
+     * Returns the estimated bytes retained by a value instance, which a mapping sharing an equal instance saves.
+     *
+     * @param value the value
+     * @return the estimated bytes of the value
+     */
+    static long estimateBytes(final Object value) {
+        if (value instanceof String string)
+            return STRING_BYTES + ((CustomMapStats.ARRAY_HEADER_BYTES + string.length() + 7) & ~7L);
+        if (value instanceof Long || value instanceof Double)
+            return BOXED_WIDE_BYTES;
+        return OBJECT_BYTES;
+    }
+
+    /**
+     * Returns the canonical instance equal to the specified value, registering the value as canonical if no equal
+     * instance is in the pool.
+     *
+     * @param value the value to canonicalize, or {@code null}
+     * @return the canonical instance, or {@code null} if the value is null
+     */
+    V intern(final V value) {
+        if (value == null)
+            return null;
+        WeakReference<V> reference = pool.get(value);
+        V canonical = reference == null ? null : reference.get();
+        if (canonical == null) {
+            pool.put(value, new WeakReference<>(value));
+            return value;
+        }
+        return canonical;
+    }
+
+    /**
+     * Returns the number of distinct values currently in the pool. Values that have been collected may still be
+     * counted until the pool next expunges them.
+     *
+     * @return the pool size
+     */
+    int poolSize() {
+        return pool.size();
+    }
+}
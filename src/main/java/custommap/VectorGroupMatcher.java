@@ -0,0 +1,52 @@
+package custommap;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link GroupMatcher} built on the incubating Vector API. A group of sixteen control bytes is loaded as one
+ * 128-bit {@link ByteVector} and compared in a single instruction, with no false candidates. The comparison mask
+ * is queried with {@link VectorMask#anyTrue()} and {@link VectorMask#firstTrue()}, which JDK 17 compiles to SIMD
+ * instructions, rather than {@link VectorMask#toLong()}, which it does not. This class references
+ * {@code jdk.incubator.vector} and is only loaded, by {@link GroupMatcher#select()}, once that module is known to
+ * be resolved.
+ *
+ * @author Benjamin Kane
+ */
+final class VectorGroupMatcher implements GroupMatcher {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_128;
+    private static final VectorMask<Byte>[] FROM = lanesFrom();
+
+    public int nextMatch(final byte[] control, final int groupStart, final byte tag, final int from) {
+        VectorMask<Byte> matches = ByteVector.fromArray(SPECIES, control, groupStart).eq(tag);
+        if (from > 0)
+            matches = matches.and(FROM[from]);
+        return matches.anyTrue() ? matches.firstTrue() : WIDTH;
+    }
+
+    public boolean hasEmpty(final byte[] control, final int groupStart) {
+        return ByteVector.fromArray(SPECIES, control, groupStart).eq(EMPTY).anyTrue();
+    }
+
+    public int firstFree(final byte[] control, final int groupStart) {
+        return ByteVector.fromArray(SPECIES, control, groupStart).compare(VectorOperators.LT, 0).firstTrue();
+    }
+
+    /**
+     * Returns, for each offset from 0 to {@value #WIDTH}, the mask of the lanes at or after it.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static VectorMask<Byte>[] lanesFrom() {
+        VectorMask<Byte>[] masks = new VectorMask[WIDTH + 1];
+        boolean[] lanes = new boolean[WIDTH];
+        for (int from = WIDTH; from >= 0; from--) {
+            if (from < WIDTH)
+                lanes[from] = true;
+            masks[from] = VectorMask.fromArray(SPECIES, lanes, 0);
+        }
+        return masks;
+    }
+}
@@ -0,0 +1,202 @@
+package custommap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveCustomMapTest {
+
+    @Test
+    void givenNewMap_onRepresentation_isChainedWithoutWorkload() {
+        AdaptiveCustomMap<String, Integer> map = new AdaptiveCustomMap<>();
+        assertEquals(AdaptiveCustomMap.Representation.CHAINED, map.representation());
+        assertEquals(0, map.switchCount());
+        assertNull(map.lastWorkload());
+    }
+
+    @Test
+    void givenReadOnlyEpoch_onDefaultPolicy_freezesAndThawsOnWrite() {
+        AdaptiveCustomMap<Integer, Integer> map = new AdaptiveCustomMap<>();
+        for (int i = 0; i < 2_000; i++)
+            map.put(i, i);
+        for (int i = 0; i < 4_000; i++)
+            assertEquals(i % 2_000, map.get(i % 2_000));
+        assertEquals(AdaptiveCustomMap.Representation.FROZEN, map.representation());
+        assertEquals(0, map.lastWorkload().writes());
+
+        assertEquals(5, map.put(5, 50));
+        assertTrue(map.representation() != AdaptiveCustomMap.Representation.FROZEN);
+        assertEquals(50, map.get(5));
+        assertEquals(2_000, map.size());
+    }
+
+    @Test
+    void givenReadMostlyEpoch_onDefaultPolicy_switchesToOpenAddressing() {
+        AdaptiveCustomMap<Integer, Integer> map = new AdaptiveCustomMap<>();
+        for (int i = 0; i < 1_000; i++)
+            map.put(i, i);
+        for (int i = 0; i < 3_000; i++)
+            if (i % 20 == 0)
+                map.put(i % 1_000, i);
+            else
+                map.get(i % 1_000);
+        assertEquals(AdaptiveCustomMap.Representation.OPEN_ADDRESSING, map.representation());
+    }
+
+    @Test
+    void givenRemovalChurn_onDefaultPolicy_switchesToChained() {
+        AdaptiveCustomMap<Integer, Integer> map = new AdaptiveCustomMap<>(workload ->
+                workload.removes() == 0 ? AdaptiveCustomMap.Representation.OPEN_ADDRESSING
+                        : AdaptiveCustomMap.defaultPolicy().choose(workload));
+        for (int i = 0; i < 1_024; i++)
+            map.put(i, i);
+        assertEquals(AdaptiveCustomMap.Representation.OPEN_ADDRESSING, map.representation());
+        for (int i = 0; i < 2_048; i++)
+            if (i % 2 == 0)
+                map.remove(i);
+            else
+                map.put(i + 10_000, i);
+        assertEquals(AdaptiveCustomMap.Representation.CHAINED, map.representation());
+    }
+
+    @Test
+    void givenCustomPolicy_onEpochEnd_receivesWorkloadAndIsFollowed() {
+        List<AdaptiveCustomMap.Workload> seen = new ArrayList<>();
+        AdaptiveCustomMap<Integer, Integer> map = new AdaptiveCustomMap<>(workload -> {
+            seen.add(workload);
+            return AdaptiveCustomMap.Representation.OPEN_ADDRESSING;
+        });
+        for (int i = 0; i < 1_000; i++)
+            map.put(i, i);
+        for (int i = 0; i < 20; i++)
+            map.containsKey(i);
+        for (int i = 0; i < 4; i++)
+            map.remove(i);
+
+        assertEquals(1, seen.size());
+        AdaptiveCustomMap.Workload workload = seen.get(0);
+        assertEquals(AdaptiveCustomMap.Representation.CHAINED, workload.current());
+        assertEquals(1_000, workload.writes());
+        assertEquals(20, workload.reads());
+        assertEquals(4, workload.removes());
+        assertEquals(AdaptiveCustomMap.MINIMUM_EPOCH, workload.operations());
+        assertEquals(996, workload.size());
+        assertTrue(workload.averageChain() >= 1.0);
+        assertEquals(AdaptiveCustomMap.Representation.OPEN_ADDRESSING, map.representation());
+        assertEquals(1, map.switchCount());
+        assertEquals(996, map.size());
+    }
+
+    @Test
+    void givenFrozenMap_onRemoveAndClear_thawsAndKeepsMappings() {
+        AdaptiveCustomMap<Integer, Integer> map = frozenMap(100);
+        assertNull(map.remove(1_000));
+        assertEquals(AdaptiveCustomMap.Representation.FROZEN, map.representation());
+        assertEquals(7, map.remove(7));
+        assertEquals(AdaptiveCustomMap.Representation.CHAINED, map.representation());
+        assertFalse(map.containsKey(7));
+        assertEquals(99, map.size());
+
+        AdaptiveCustomMap<Integer, Integer> cleared = frozenMap(100);
+        cleared.clear();
+        assertTrue(cleared.isEmpty());
+        assertEquals(AdaptiveCustomMap.Representation.CHAINED, cleared.representation());
+        cleared.put(1, 1);
+        assertEquals(Map.of(1, 1), cleared);
+    }
+
+    @Test
+    void givenFrozenMap_onIteratorRemoveAndSetValue_writesThroughToMap() {
+        AdaptiveCustomMap<Integer, Integer> map = frozenMap(10);
+        Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Integer> entry = iterator.next();
+            if (entry.getKey() % 2 == 0)
+                iterator.remove();
+            else
+                entry.setValue(-entry.getKey());
+        }
+        assertEquals(Map.of(1, -1, 3, -3, 5, -5, 7, -7, 9, -9), map);
+        assertThrows(IllegalStateException.class, map.entrySet().iterator()::remove);
+    }
+
+    @Test
+    void givenLargeChainedMap_onRemoveIf_removesEveryMatchAndDefersEpochToIterationEnd() {
+        List<AdaptiveCustomMap.Workload> workloads = new ArrayList<>();
+        AdaptiveCustomMap<Integer, Integer> map = new AdaptiveCustomMap<>(workload -> {
+            workloads.add(workload);
+            return AdaptiveCustomMap.Representation.OPEN_ADDRESSING;
+        });
+        for (int i = 0; i < 1_000; i++)
+            map.put(i, i);
+        map.entrySet().removeIf(entry -> true);
+        assertEquals(0, map.size());
+        assertEquals(1, workloads.size());
+        assertEquals(1_000, workloads.get(0).removes());
+        assertEquals(0, workloads.get(0).size());
+        assertEquals(AdaptiveCustomMap.Representation.OPEN_ADDRESSING, map.representation());
+
+        AdaptiveCustomMap<Integer, Integer> kept = new AdaptiveCustomMap<>();
+        for (int i = 0; i < 1_000; i++)
+            kept.put(i, i);
+        kept.keySet().removeIf(key -> key % 10 != 0);
+        assertEquals(100, kept.size());
+        for (int i = 0; i < 1_000; i += 10)
+            assertEquals(i, kept.get(i));
+    }
+
+    @Test
+    void givenRandomOperations_onCompare_matchesHashMap() {
+        AdaptiveCustomMap<Integer, Integer> map = new AdaptiveCustomMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int phase = 0; phase < 6; phase++) {
+            int writePercent = new int[] {90, 0, 5, 0, 50, 30}[phase];
+            for (int i = 0; i < 20_000; i++) {
+                Integer key = random.nextInt(4_000);
+                int roll = random.nextInt(100);
+                if (roll < writePercent / 2)
+                    assertEquals(expected.put(key, i), map.put(key, i));
+                else if (roll < writePercent)
+                    assertEquals(expected.remove(key), map.remove(key));
+                else
+                    assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected, map);
+        }
+        assertTrue(map.switchCount() > 0);
+    }
+
+    @Test
+    void givenNullArguments_onOperations_throwsNullPointerException() {
+        assertThrows(NullPointerException.class, () -> new AdaptiveCustomMap<>(null));
+        AdaptiveCustomMap<String, Integer> map = new AdaptiveCustomMap<>(workload -> null);
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        assertThrows(NullPointerException.class, () -> map.get(null));
+        assertThrows(NullPointerException.class, () -> {
+            for (int i = 0; i < AdaptiveCustomMap.MINIMUM_EPOCH; i++)
+                map.get("a");
+        });
+    }
+
+    private static AdaptiveCustomMap<Integer, Integer> frozenMap(int size) {
+        AdaptiveCustomMap<Integer, Integer> map = new AdaptiveCustomMap<>(workload ->
+                workload.writes() == 0 ? AdaptiveCustomMap.Representation.FROZEN : workload.current());
+        for (int i = 0; i < size; i++)
+            map.put(i, i);
+        while (map.representation() != AdaptiveCustomMap.Representation.FROZEN)
+            map.get(0);
+        return map;
+    }
+}
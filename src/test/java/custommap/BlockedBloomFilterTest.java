@@ -0,0 +1,67 @@
+package custommap;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockedBloomFilterTest {
+
+    @Test
+    void givenAddedHashes_onMightContain_neverReportsFalseNegative() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(10_000, 0.01);
+        Random random = new Random(1);
+        int[] hashes = new int[10_000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextInt();
+            assertTrue(filter.add(hashes[i]));
+        }
+        for (int hash : hashes)
+            assertTrue(filter.mightContain(hash));
+    }
+
+    @Test
+    void givenFilledFilter_onAbsentHashes_staysNearTargetFalsePositiveRate() {
+        for (double rate : new double[] {0.05, 0.01, 0.001}) {
+            BlockedBloomFilter filter = new BlockedBloomFilter(100_000, rate);
+            for (int i = 0; i < 100_000; i++)
+                filter.add(HashMixer.MURMUR3.mix(i, 0));
+            int falsePositives = 0;
+            for (int i = 100_000; i < 1_100_000; i++)
+                if (filter.mightContain(HashMixer.MURMUR3.mix(i, 0)))
+                    falsePositives++;
+            assertTrue(falsePositives / 1_000_000.0 < rate * 2, "rate " + rate + ": " + falsePositives);
+        }
+    }
+
+    @Test
+    void givenSequentialHashes_onMightContain_spreadsAcrossBlocks() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++)
+            filter.add(i);
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++)
+            if (filter.mightContain(i))
+                falsePositives++;
+        assertTrue(falsePositives < 2_000, String.valueOf(falsePositives));
+    }
+
+    @Test
+    void givenInsertionsBeyondSizing_onAdd_signalsRebuild() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(100, 0.01);
+        for (int i = 0; i < 150; i++)
+            assertTrue(filter.add(i));
+        assertFalse(filter.add(150));
+    }
+
+    @Test
+    void givenFalsePositiveRate_onBitsPerKey_matchesSplitBlockFormula() {
+        assertEquals(9.7, BlockedBloomFilter.bitsPerKey(0.01), 0.1);
+        assertEquals(14.6, BlockedBloomFilter.bitsPerKey(0.001), 0.1);
+        assertEquals(64, new BlockedBloomFilter(1, 0.01).bytes());
+        assertEquals(100, new BlockedBloomFilter(100, 0.01).expectedKeys());
+    }
+}
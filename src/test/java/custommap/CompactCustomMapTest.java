@@ -0,0 +1,191 @@
+package custommap;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactCustomMapTest {
+
+    @Test
+    void givenNewMap_onReads_behavesAsEmpty() {
+        CompactCustomMap<String, Integer> map = new CompactCustomMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("a"));
+        assertEquals(7, map.getOrDefault("a", 7));
+        assertFalse(map.containsKey("a"));
+        assertNull(map.remove("a"));
+        assertFalse(map.entrySet().iterator().hasNext());
+        assertTrue(map.isCompact());
+    }
+
+    @Test
+    void givenSmallMap_onOperations_behavesLikeMap() {
+        CompactCustomMap<String, Integer> map = new CompactCustomMap<>();
+        assertNull(map.put("a", 1));
+        assertNull(map.put("b", 2));
+        assertNull(map.put("c", null));
+        assertEquals(1, map.put("a", 3));
+        assertEquals(3, map.get("a"));
+        assertTrue(map.containsKey("c"));
+        assertTrue(map.containsValue(null));
+        assertNull(map.getOrDefault("c", 0));
+        assertEquals(3, map.size());
+        Map<String, Integer> expected = new HashMap<>(Map.of("a", 3, "b", 2));
+        expected.put("c", null);
+        assertEquals(expected, map);
+        assertEquals(2, map.remove("b"));
+        assertFalse(map.containsKey("b"));
+        assertEquals(2, map.size());
+        assertTrue(map.isCompact());
+    }
+
+    @Test
+    void givenFullArray_onPutOfNewKey_promotesAndKeepsMappings() {
+        CompactCustomMap<Integer, Integer> map = new CompactCustomMap<>();
+        for (int i = 0; i < CompactCustomMap.COMPACT_THRESHOLD; i++)
+            map.put(i, i * 10);
+        assertTrue(map.isCompact());
+        map.put(0, 5);
+        assertTrue(map.isCompact());
+
+        map.put(CompactCustomMap.COMPACT_THRESHOLD, 80);
+        assertFalse(map.isCompact());
+        assertEquals(CompactCustomMap.COMPACT_THRESHOLD + 1, map.size());
+        assertEquals(5, map.get(0));
+        for (int i = 1; i <= CompactCustomMap.COMPACT_THRESHOLD; i++)
+            assertEquals(i * 10, map.get(i));
+    }
+
+    @Test
+    void givenPromotedMap_onRemovesBelowDemoteThreshold_demotesAndKeepsMappings() {
+        CompactCustomMap<Integer, Integer> map = new CompactCustomMap<>();
+        for (int i = 0; i < 20; i++)
+            map.put(i, i);
+        for (int i = 0; i < 20 - CompactCustomMap.DEMOTE_THRESHOLD - 1; i++)
+            map.remove(i);
+        assertFalse(map.isCompact());
+
+        map.remove(20 - CompactCustomMap.DEMOTE_THRESHOLD - 1);
+        assertTrue(map.isCompact());
+        assertEquals(CompactCustomMap.DEMOTE_THRESHOLD, map.size());
+        for (int i = 20 - CompactCustomMap.DEMOTE_THRESHOLD; i < 20; i++)
+            assertEquals(i, map.get(i));
+    }
+
+    @Test
+    void givenPromotedMap_onViewRemovalsBelowDemoteThreshold_demotesAndVisitsEveryEntry() {
+        CompactCustomMap<Integer, Integer> map = new CompactCustomMap<>();
+        for (int i = 0; i < 20; i++)
+            map.put(i, i);
+        Map<Integer, Integer> visited = new HashMap<>();
+        for (Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Integer, Integer> entry = iterator.next();
+            visited.put(entry.getKey(), entry.getValue());
+            if (entry.getKey() % 5 != 0)
+                iterator.remove();
+        }
+        assertEquals(20, visited.size());
+        assertTrue(map.isCompact());
+        assertEquals(Map.of(0, 0, 5, 5, 10, 10, 15, 15), map);
+
+        CompactCustomMap<Integer, Integer> keys = new CompactCustomMap<>();
+        for (int i = 0; i < 20; i++)
+            keys.put(i, i);
+        keys.keySet().removeIf(key -> key >= 3);
+        assertTrue(keys.isCompact());
+        assertEquals(Map.of(0, 0, 1, 1, 2, 2), keys);
+
+        CompactCustomMap<Integer, Integer> values = new CompactCustomMap<>();
+        for (int i = 0; i < 20; i++)
+            values.put(i, i);
+        values.values().removeIf(value -> value % 2 == 0);
+        assertFalse(values.isCompact());
+        assertEquals(10, values.size());
+        values.values().removeIf(value -> value > 5);
+        assertTrue(values.isCompact());
+        assertEquals(Map.of(1, 1, 3, 3, 5, 5), values);
+    }
+
+    @Test
+    void givenPromotedMap_onClear_returnsToCompactMode() {
+        CompactCustomMap<Integer, Integer> map = new CompactCustomMap<>();
+        for (int i = 0; i < 20; i++)
+            map.put(i, i);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertTrue(map.isCompact());
+        map.put(1, 1);
+        assertEquals(Map.of(1, 1), map);
+    }
+
+    @Test
+    void givenSmallMap_onIteratorRemove_removesEveryMatchingEntry() {
+        CompactCustomMap<Integer, Integer> map = new CompactCustomMap<>();
+        for (int i = 0; i < 6; i++)
+            map.put(i, i);
+        Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext())
+            if (iterator.next().getKey() % 2 == 0)
+                iterator.remove();
+        assertEquals(Map.of(1, 1, 3, 3, 5, 5), map);
+        assertThrows(IllegalStateException.class, map.entrySet().iterator()::remove);
+    }
+
+    @Test
+    void givenSmallMap_onEntrySetValue_writesThroughToMap() {
+        CompactCustomMap<String, Integer> map = new CompactCustomMap<>();
+        map.put("a", 1);
+        Map.Entry<String, Integer> entry = map.entrySet().iterator().next();
+        assertEquals(1, entry.setValue(2));
+        assertEquals(2, map.get("a"));
+    }
+
+    @Test
+    void givenEitherMode_onForEachAndReplaceAll_visitsEveryMapping() {
+        for (int size : new int[] {3, 30}) {
+            CompactCustomMap<Integer, Integer> map = new CompactCustomMap<>();
+            for (int i = 0; i < size; i++)
+                map.put(i, i);
+            map.replaceAll((key, value) -> value + 1);
+            int[] sum = new int[1];
+            map.forEach((key, value) -> sum[0] += value - key);
+            assertEquals(size, sum[0]);
+        }
+    }
+
+    @Test
+    void givenRandomOperations_onCompare_matchesHashMap() {
+        CompactCustomMap<Integer, Integer> map = new CompactCustomMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            Integer key = random.nextInt(24);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals(expected.put(key, i), map.put(key, i));
+                case 2 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    @Test
+    void givenNullKey_onOperations_throwsNullPointerException() {
+        CompactCustomMap<String, Integer> map = new CompactCustomMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        assertThrows(NullPointerException.class, () -> map.get(null));
+        assertThrows(NullPointerException.class, () -> map.containsKey(null));
+        assertThrows(NullPointerException.class, () -> map.remove(null));
+    }
+}
@@ -0,0 +1,118 @@
+package custommap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomMapCollectorsTest {
+
+    @Test
+    void givenParallelStream_onToCustomMap_collectsEveryMapping() {
+        CustomMap<Integer, String> map = IntStream.range(0, 200_000).boxed().parallel()
+                .collect(CustomMapCollectors.toCustomMap(Function.identity(), String::valueOf));
+        Map<Integer, String> expected = IntStream.range(0, 200_000).boxed()
+                .collect(Collectors.toMap(Function.identity(), String::valueOf));
+        assertEquals(expected, map);
+        assertEquals(200_000, map.size());
+        assertEquals(0, map.stats().expandCount());
+        assertEquals(524_288, map.stats().capacity());
+    }
+
+    @Test
+    void givenSequentialSmallStream_onToCustomMap_collectsIntoDefaultCapacity() {
+        CustomMap<String, Integer> map = Stream.of("a", "bb", "ccc")
+                .collect(CustomMapCollectors.toCustomMap(Function.identity(), String::length));
+        assertEquals(Map.of("a", 1, "bb", 2, "ccc", 3), map);
+        assertEquals(16, map.stats().capacity());
+        map.put("dddd", 4);
+        assertEquals(1, map.remove("a"));
+        assertEquals(Map.of("bb", 2, "ccc", 3, "dddd", 4), map);
+
+        CustomMap<String, Integer> empty = Stream.<String>empty()
+                .collect(CustomMapCollectors.toCustomMap(Function.identity(), String::length));
+        assertTrue(empty.isEmpty());
+    }
+
+    @Test
+    void givenDuplicateKeys_onToCustomMapWithoutMerge_throwsIllegalStateException() {
+        assertThrows(IllegalStateException.class, () -> IntStream.range(0, 10_000).boxed().parallel()
+                .collect(CustomMapCollectors.toCustomMap(i -> i % 5_000, Function.identity())));
+        assertThrows(IllegalStateException.class, () -> Stream.of("a", "a")
+                .collect(CustomMapCollectors.toCustomMap(Function.identity(), String::length)));
+    }
+
+    @Test
+    void givenDuplicateKeys_onToCustomMapWithMerge_mergesInEncounterOrder() {
+        CustomMap<Integer, Integer> first = IntStream.range(0, 100_000).boxed().parallel()
+                .collect(CustomMapCollectors.toCustomMap(i -> i % 1_000, Function.identity(), (a, b) -> a));
+        CustomMap<Integer, Integer> last = IntStream.range(0, 100_000).boxed().parallel()
+                .collect(CustomMapCollectors.toCustomMap(i -> i % 1_000, Function.identity(), (a, b) -> b));
+        CustomMap<Integer, Integer> sum = IntStream.range(0, 100_000).boxed().parallel()
+                .collect(CustomMapCollectors.toCustomMap(i -> i % 1_000, i -> 1, Integer::sum));
+        for (int key = 0; key < 1_000; key++) {
+            assertEquals(key, first.get(key));
+            assertEquals(99_000 + key, last.get(key));
+            assertEquals(100, sum.get(key));
+        }
+        assertEquals(1_000, sum.size());
+    }
+
+    @Test
+    void givenMergeHeavyStream_onToCustomMap_sizesTableForDistinctKeys() {
+        CustomMap<Integer, Long> counts = IntStream.range(0, 2_000_000).boxed().parallel()
+                .collect(CustomMapCollectors.toCustomMap(i -> i % 1_000, i -> 1L, Long::sum));
+        assertEquals(1_000, counts.size());
+        assertEquals(2_048, counts.stats().capacity());
+        for (int key = 0; key < 1_000; key++)
+            assertEquals(2_000, counts.get(key));
+    }
+
+    @Test
+    void givenMergeReturningNull_onToCustomMap_removesMapping() {
+        CustomMap<String, Integer> map = Stream.of("a", "b", "a", "c", "c", "c")
+                .collect(CustomMapCollectors.toCustomMap(Function.identity(), s -> 1,
+                        (x, y) -> x + y > 2 ? null : x + y));
+        assertEquals(2, map.get("a"));
+        assertEquals(1, map.get("b"));
+        assertNull(map.get("c"));
+        assertEquals(2, map.size());
+
+        CustomMap<String, Integer> removed = Stream.of("a", "a")
+                .collect(CustomMapCollectors.toCustomMap(Function.identity(), s -> 1, (x, y) -> null));
+        assertNull(removed.get("a"));
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    void givenSpliterator_onParallelBuild_collectsEntries() {
+        Map<String, Integer> source = new HashMap<>();
+        for (int i = 0; i < 50_000; i++)
+            source.put("key" + i, i);
+        assertEquals(source, CustomMapCollectors.parallelBuild(source.entrySet().spliterator()));
+
+        List<Map.Entry<String, Integer>> entries = List.of(Map.entry("a", 1), Map.entry("b", 2), Map.entry("a", 3));
+        assertEquals(Map.of("a", 4, "b", 2), CustomMapCollectors.parallelBuild(entries.spliterator(), Integer::sum));
+        assertThrows(IllegalStateException.class, () -> CustomMapCollectors.parallelBuild(entries.spliterator()));
+    }
+
+    @Test
+    void givenNullArguments_onCollect_throwsNullPointerException() {
+        assertThrows(NullPointerException.class, () -> CustomMapCollectors.parallelBuild(null));
+        assertThrows(NullPointerException.class, () -> CustomMapCollectors.toCustomMap(null, Function.identity()));
+        assertThrows(NullPointerException.class, () -> Stream.of("a")
+                .collect(CustomMapCollectors.toCustomMap(s -> null, Function.identity())));
+        assertThrows(NullPointerException.class, () -> Stream.of("a")
+                .collect(CustomMapCollectors.toCustomMap(Function.identity(), s -> null)));
+    }
+}
@@ -0,0 +1,103 @@
+package custommap;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomMapEventsTest {
+
+    @TempDir
+    Path directory;
+
+    private List<RecordedEvent> record(String eventName, Runnable action) throws IOException {
+        Path file = directory.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .toList();
+    }
+
+    @Test
+    @DisabledIfSystemProperty(named = "custommap.jfr", matches = "true")
+    void givenPropertyUnset_onBegin_returnsNoEvent() {
+        assertFalse(CustomMapEvents.ENABLED);
+        assertNull(CustomMapEvents.beginResize(16, 32));
+        assertNull(CustomMapEvents.beginScan("toString", 16, 0));
+        CustomMapEvents.endResize(null, 0);
+        CustomMapEvents.endScan(null);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "custommap.jfr", matches = "true")
+    void givenPropertySet_onPutsBeyondThreshold_recordsEachResizeWithCapacities() throws IOException {
+        assertTrue(CustomMapEvents.ENABLED);
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        List<RecordedEvent> events = record("custommap.Resize", () -> {
+            for (int i = 0; i < 100; i++)
+                map.put(i, i);
+        });
+        assertEquals(4, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(16 << i, events.get(i).getInt("oldCapacity"));
+            assertEquals(32 << i, events.get(i).getInt("newCapacity"));
+            assertEquals((12 << i) + 1, events.get(i).getInt("entriesMoved"));
+        }
+        assertEquals(256, map.stats().capacity());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "custommap.jfr", matches = "true")
+    void givenPropertySet_onToString_recordsBulkScanWithCapacityAndSize() throws IOException {
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        for (int i = 0; i < 100; i++)
+            map.put(i, i);
+        List<RecordedEvent> events = record("custommap.BulkScan", map::toString);
+        assertEquals(1, events.size());
+        assertEquals("toString", events.get(0).getString("operation"));
+        assertEquals(256, events.get(0).getInt("capacity"));
+        assertEquals(100, events.get(0).getInt("size"));
+    }
+
+    @Test
+    void givenLongChain_onRecording_emitsEventWithChainDetails() throws IOException {
+        List<RecordedEvent> events = record("custommap.LongChain", () -> CustomMapEvents.longChain(9, 64, 40));
+        assertEquals(1, events.size());
+        assertEquals(9, events.get(0).getInt("chainLength"));
+        assertEquals(64, events.get(0).getInt("capacity"));
+        assertEquals(40, events.get(0).getInt("size"));
+        assertTrue(events.get(0).getStackTrace() != null);
+    }
+
+    @Test
+    void givenRecordingWithEventDisabled_onLongChain_recordsNothing() throws IOException {
+        Path file = directory.resolve("disabled.jfr");
+        try (Recording recording = new Recording()) {
+            recording.disable("custommap.LongChain");
+            recording.start();
+            CustomMapEvents.longChain(9, 64, 40);
+            recording.stop();
+            recording.dump(file);
+        }
+        assertTrue(RecordingFile.readAllEvents(file).stream()
+                .noneMatch(event -> event.getEventType().getName().equals("custommap.LongChain")));
+    }
+}
@@ -1,22 +1,39 @@
 package custommap;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.StreamCorruptedException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -1032,4 +1049,715 @@ class CustomMapTest {
             assertEquals("TestValue_" + i, customMap.get(i));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenMap_onGetByHash_withMatchingPredicate_returnsValue() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        map.put("alpha", 1);
+        map.put("beta", 2);
+        assertEquals(2, map.getByHash("beta".hashCode(), key -> key.equals("beta")));
+        assertNull(map.getByHash("beta".hashCode(), key -> false));
+        assertNull(map.getByHash("gamma".hashCode(), key -> true));
+    }
+
+    @Test
+    void givenMap_onGetByHash_withNullMatcher_throwsNullPointerException() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        assertThrows(NullPointerException.class, () -> map.getByHash(0, null));
+    }
+
+    @Test
+    void givenStringKeyedMap_onGetByCharSequence_returnsValueWithoutStringKey() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        for (int i = 0; i < 100; i++)
+            map.put("key" + i, i);
+        StringBuilder builder = new StringBuilder("key4");
+        assertEquals(4, map.getByCharSequence(builder));
+        builder.append('2');
+        assertEquals(42, map.getByCharSequence(builder));
+        assertNull(map.getByCharSequence("key100"));
+        assertNull(map.getByCharSequence(""));
+    }
+
+    @Test
+    void givenNonStringKeyedMap_onGetByCharSequence_returnsNull() {
+        CustomMap<Integer, String> map = new CustomMap<>();
+        map.put("1".hashCode(), "one");
+        assertNull(map.getByCharSequence("1"));
+        assertThrows(NullPointerException.class, () -> map.getByCharSequence(null));
+    }
+
+    @Test
+    void givenStringKeyedMap_onGetByBytes_readsSliceWithoutMovingBuffer() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        map.put("GET", 1);
+        map.put("PUT", 2);
+        map.put("caf\u00e9", 3);
+        ByteBuffer buffer = ByteBuffer.wrap("xxPUTyy".getBytes(StandardCharsets.ISO_8859_1));
+        buffer.position(1);
+        assertEquals(2, map.getByBytes(buffer, 2, 3));
+        assertEquals(1, buffer.position());
+        assertNull(map.getByBytes(buffer, 1, 3));
+        assertEquals(3, map.getByBytes(ByteBuffer.wrap("caf\u00e9".getBytes(StandardCharsets.ISO_8859_1)), 0, 4));
+        ByteBuffer direct = ByteBuffer.allocateDirect(3).put("GET".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(1, map.getByBytes(direct, 0, 3));
+    }
+
+    @Test
+    void givenMap_onGetByBytes_withSliceOutsideLimit_throwsIndexOutOfBoundsException() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        assertThrows(IndexOutOfBoundsException.class, () -> map.getByBytes(buffer, 2, 3));
+        assertThrows(NullPointerException.class, () -> map.getByBytes(null, 0, 0));
+    }
+
+    @Test
+    void givenEachHashMixer_onPutGetAndRemoveAcrossResizes_behavesLikeHashMap() {
+        for (HashMixer mixer : HashMixer.values()) {
+            CustomMap<Integer, Integer> map = new CustomMap<>(16, mixer);
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 5000; i++) {
+                map.put(i * 1024, i);
+                expected.put(i * 1024, i);
+            }
+            assertEquals(expected, map);
+            for (int i = 0; i < 4900; i++)
+                assertEquals(i, map.remove(i * 1024));
+            for (int i = 4900; i < 5000; i++)
+                assertEquals(i, map.get(i * 1024));
+            assertEquals(100, map.size());
+            assertEquals(4950, map.getByHash(Integer.hashCode(4950 * 1024), key -> key == 4950 * 1024));
+        }
+    }
+
+    @Test
+    void givenNullHashMixer_onConstruct_throwsNullPointerException() {
+        assertThrows(NullPointerException.class, () -> new CustomMap<>(16, null));
+    }
+
+    @Test
+    void givenMap_onWriteToAndReadFrom_roundTripsAllMappings() throws IOException {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        for (int i = 0; i < 10_000; i++)
+            map.put("key\u00e9" + i, i);
+        map.put("nullValue", null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        map.writeTo(out, CustomMapCodec.STRING, CustomMapCodec.INTEGER);
+        CustomMap<String, Integer> read = CustomMap.readFrom(new ByteArrayInputStream(out.toByteArray()),
+                CustomMapCodec.STRING, CustomMapCodec.INTEGER);
+        assertEquals(map, read);
+        assertTrue(read.containsKey("nullValue"));
+    }
+
+    @Test
+    void givenMap_onWriteToAndReadFromChannels_roundTripsAllMappings() throws IOException {
+        CustomMap<Long, byte[]> map = new CustomMap<>();
+        map.put(1L, new byte[] {1, 2, 3});
+        map.put(Long.MAX_VALUE, new byte[0]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        map.writeTo(Channels.newChannel(out), CustomMapCodec.LONG, CustomMapCodec.BYTES);
+        CustomMap<Long, byte[]> read = CustomMap.readFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())),
+                CustomMapCodec.LONG, CustomMapCodec.BYTES);
+        assertEquals(2, read.size());
+        assertEquals(3, read.get(1L).length);
+        assertEquals(0, read.get(Long.MAX_VALUE).length);
+    }
+
+    @Test
+    void givenEmptyMap_onWriteToAndReadFrom_returnsEmptyMap() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CustomMap<String, String>().writeTo(out, CustomMapCodec.STRING, CustomMapCodec.STRING);
+        assertEquals(13, out.size());
+        assertTrue(CustomMap.readFrom(new ByteArrayInputStream(out.toByteArray()),
+                CustomMapCodec.STRING, CustomMapCodec.STRING).isEmpty());
+    }
+
+    @Test
+    void givenCorruptStream_onReadFrom_throwsStreamCorruptedException() throws IOException {
+        assertThrows(StreamCorruptedException.class, () -> CustomMap.readFrom(
+                new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9}), CustomMapCodec.STRING, CustomMapCodec.STRING));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CustomMap<>(Map.of("a", "b")).writeTo(out, CustomMapCodec.STRING, CustomMapCodec.STRING);
+        byte[] bytes = out.toByteArray();
+        bytes[4] = 99;
+        assertThrows(StreamCorruptedException.class, () -> CustomMap.readFrom(
+                new ByteArrayInputStream(bytes), CustomMapCodec.STRING, CustomMapCodec.STRING));
+    }
+
+    @Test
+    void givenNegativeLengthPrefix_onReadFrom_throwsStreamCorruptedException() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CustomMap<>(Map.of("a", "b")).writeTo(out, CustomMapCodec.STRING, CustomMapCodec.STRING);
+        byte[] strings = out.toByteArray();
+        strings[9] = (byte) 0x80;
+        assertThrows(StreamCorruptedException.class, () -> CustomMap.readFrom(
+                new ByteArrayInputStream(strings), CustomMapCodec.STRING, CustomMapCodec.STRING));
+
+        out.reset();
+        new CustomMap<>(Map.of(1L, new byte[] {1})).writeTo(out, CustomMapCodec.LONG, CustomMapCodec.BYTES);
+        byte[] arrays = out.toByteArray();
+        arrays[18] = (byte) 0xFF;
+        assertThrows(StreamCorruptedException.class, () -> CustomMap.readFrom(
+                new ByteArrayInputStream(arrays), CustomMapCodec.LONG, CustomMapCodec.BYTES));
+    }
+
+    @Test
+    void givenCountAboveInitialCapacityCap_onReadFrom_sizesTableOnceWithoutResizing() throws IOException {
+        int count = 13_000_000;
+        ByteBuffer header = ByteBuffer.allocate(9).putInt(0x434D4150).put((byte) 1).putInt(count);
+        InputStream entries = new InputStream() {
+            private long remaining = 5L * count;
+
+            public int read() {
+                return remaining-- > 0 ? 0 : -1;
+            }
+
+            public int read(byte[] bytes, int offset, int length) {
+                if (remaining <= 0)
+                    return -1;
+                int read = (int) Math.min(length, remaining);
+                Arrays.fill(bytes, offset, offset + read, (byte) 0);
+                remaining -= read;
+                return read;
+            }
+        };
+        InputStream in = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(header.array()), entries,
+                new ByteArrayInputStream(ByteBuffer.allocate(4).putInt(count).array()))));
+        CustomMap<Integer, String> read = CustomMap.readFrom(in, CustomMapCodec.INTEGER, CustomMapCodec.STRING);
+        assertEquals(1, read.size());
+        assertTrue(read.containsKey(0));
+        assertEquals(1 << 25, read.stats().capacity());
+        assertEquals(0, read.stats().expandCount());
+    }
+
+    @Test
+    void givenNewMap_onStats_reportsUnallocatedTable() {
+        CustomMapStats stats = new CustomMap<String, String>().stats();
+        assertEquals(0, stats.capacity());
+        assertEquals(0, stats.size());
+        assertEquals(0.0, stats.load());
+        assertEquals(0, stats.maxChain());
+        assertEquals(0.0, stats.emptyBucketRatio());
+        assertEquals(0, stats.estimatedBytes());
+        assertEquals(0, stats.expandCount());
+        assertEquals(0, stats.reduceCount());
+    }
+
+    @Test
+    void givenClearedSmallMap_onStats_returnsEmptyTable() {
+        CustomMap<String, String> map = new CustomMap<>();
+        map.put("key", "value");
+        map.clear();
+        CustomMapStats stats = map.stats();
+        assertEquals(16, stats.capacity());
+        assertEquals(0, stats.size());
+        assertEquals(1.0, stats.emptyBucketRatio());
+        assertEquals(16 + 4 * 16, stats.estimatedBytes());
+    }
+
+    @Test
+    void givenNewMap_onReadsAndRemoves_behavesAsEmptyWithoutAllocating() {
+        CustomMap<String, String> map = new CustomMap<>();
+        assertNull(map.get("key"));
+        assertEquals("default", map.getOrDefault("key", "default"));
+        assertFalse(map.containsKey("key"));
+        assertFalse(map.containsValue("value"));
+        assertNull(map.remove("key"));
+        assertFalse(map.remove("key", "value"));
+        assertNull(map.replace("key", "value"));
+        assertNull(map.computeIfPresent("key", (k, v) -> "value"));
+        assertNull(map.computeIfAbsent("key", k -> null));
+        assertNull(map.compute("key", (k, v) -> null));
+        assertFalse(map.keySet().iterator().hasNext());
+        assertFalse(map.values().iterator().hasNext());
+        assertFalse(map.entrySet().iterator().hasNext());
+        assertEquals(new HashMap<>(), map);
+        assertEquals("{}", map.toString());
+        assertEquals(0, map.stats().capacity());
+    }
+
+    @Test
+    void givenNewMap_onFirstInsert_allocatesRequestedCapacity() {
+        CustomMap<Integer, Integer> map = new CustomMap<>(64);
+        map.merge(1, 1, Integer::sum);
+        assertEquals(64, map.stats().capacity());
+        assertEquals(1, map.get(1));
+
+        CustomMap<Integer, Integer> computed = new CustomMap<>();
+        computed.computeIfAbsent(1, k -> 2);
+        computed.compute(2, (k, v) -> 3);
+        computed.putIfAbsent(3, 4);
+        assertEquals(Map.of(1, 2, 2, 3, 3, 4), computed);
+        assertEquals(16, computed.stats().capacity());
+    }
+
+    @Test
+    void givenLargeMap_onRemoveIfOfMostEntries_visitsEveryEntryAndShrinksAfterwards() {
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        for (int i = 0; i < 1_000; i++)
+            map.put(i, i);
+        map.keySet().removeIf(key -> key % 10 != 0);
+        assertEquals(100, map.size());
+        map.values().removeIf(value -> value % 100 != 0);
+        map.entrySet().removeIf(entry -> entry.getKey() == 500);
+        assertEquals(9, map.size());
+        for (int i = 0; i < 1_000; i += 100)
+            assertEquals(i == 500 ? null : i, map.get(i));
+        assertEquals(2_048, map.stats().capacity());
+
+        map.remove(0);
+        assertEquals(1_024, map.stats().capacity());
+    }
+
+    @Test
+    void givenPopulatedMap_onMultiDoublingPutAllAndMergeAll_findsEveryKey() {
+        CustomMap<String, Integer> merged = new CustomMap<>();
+        CustomMap<String, Integer> put = new CustomMap<>();
+        CustomMap<String, Integer> other = new CustomMap<>();
+        for (int i = 0; i < 10; i++) {
+            merged.put("key" + i, i);
+            put.put("key" + i, i);
+        }
+        for (int i = 10; i < 210; i++)
+            other.put("key" + i, i);
+
+        merged.mergeAll(other, Integer::sum);
+        put.putAll(new HashMap<>(other));
+        CustomMap<String, Integer> union = merged.unionWith(other);
+        for (CustomMap<String, Integer> map : List.of(merged, put, union)) {
+            assertEquals(512, map.stats().capacity());
+            assertEquals(210, map.size());
+            for (int i = 0; i < 210; i++)
+                assertEquals(i, map.get("key" + i));
+        }
+    }
+
+    @Test
+    void givenPopulatedMap_onPresizingPutAllAndMergeAll_countsEachDoublingAndKeepsKeysReachable() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        map.put("key-1", -1);
+        Map<String, Integer> source = new HashMap<>();
+        for (int i = 0; i < 100; i++)
+            source.put("key" + i, i);
+        map.putAll(source);
+        assertEquals(256, map.stats().capacity());
+        assertEquals(4, map.stats().expandCount());
+        assertEquals(-1, map.get("key-1"));
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, map.get("key" + i));
+
+        CustomMap<String, Integer> other = new CustomMap<>();
+        for (int i = 100; i < 1_000; i++)
+            other.put("key" + i, i);
+        map.mergeAll(other, Integer::sum);
+        assertEquals(2_048, map.stats().capacity());
+        assertEquals(7, map.stats().expandCount());
+        assertEquals(1_001, map.size());
+        assertEquals(-1, map.get("key-1"));
+        for (int i = 0; i < 1_000; i++)
+            assertEquals(i, map.get("key" + i));
+    }
+
+    @Test
+    void givenNewMap_onPutAll_allocatesTableSizedForSource() {
+        Map<Integer, Integer> source = new HashMap<>();
+        for (int i = 0; i < 100; i++)
+            source.put(i, i);
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        map.putAll(source);
+        assertEquals(source, map);
+        assertEquals(256, map.stats().capacity());
+        assertEquals(0, map.stats().expandCount());
+
+        CustomMap<Integer, Integer> small = new CustomMap<>();
+        small.putAll(Map.of(1, 1, 2, 2));
+        assertEquals(Map.of(1, 1, 2, 2), small);
+        assertEquals(16, small.stats().capacity());
+    }
+
+    @Test
+    void givenNewMap_onPutAllPresizingBeyondInitialCap_allocatesAndMasksFullTable() {
+        Map<Integer, Integer> source = new AbstractMap<>() {
+            public Set<Map.Entry<Integer, Integer>> entrySet() {
+                return Map.of(1 << 24, 1, (1 << 24) + 1, 2, 3, 3).entrySet();
+            }
+
+            public int size() {
+                return 13_000_000;
+            }
+        };
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        map.putAll(source);
+        assertEquals(1 << 25, map.stats().capacity());
+        assertEquals(1, map.get(1 << 24));
+        assertEquals(2, map.get((1 << 24) + 1));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void givenOversizedInitialCapacity_onFirstPut_allocatesCappedTable() {
+        CustomMap<Integer, Integer> map = new CustomMap<>(1 << 30);
+        map.put(1 << 24, 1);
+        assertEquals(1 << 24, map.stats().capacity());
+        assertEquals(1, map.get(1 << 24));
+    }
+
+    @Test
+    void givenClearedLargeMap_onStatsAndPut_releasesTableAndReallocatesOnInsert() {
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        for (int i = 0; i < 1_000; i++)
+            map.put(i, i);
+        map.clear();
+        assertEquals(0, map.stats().capacity());
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5));
+
+        map.put(5, 5);
+        assertEquals(16, map.stats().capacity());
+        assertEquals(Map.of(5, 5), map);
+    }
+
+    @Test
+    void givenPopulatedMap_onStats_histogramAccountsForEveryBucketAndNode() {
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        for (int i = 0; i < 1_000; i++)
+            map.put(i * 31, i);
+        CustomMapStats stats = map.stats();
+        int[] histogram = stats.chainLengthHistogram();
+        int buckets = 0;
+        int nodes = 0;
+        for (int length = 0; length < histogram.length; length++) {
+            buckets += histogram[length];
+            nodes += length * histogram[length];
+        }
+        assertEquals(stats.capacity(), buckets);
+        assertEquals(1_000, nodes);
+        assertEquals(stats.maxChain() + 1, histogram.length);
+        assertTrue(histogram[stats.maxChain()] > 0);
+        assertEquals(1_000.0 / stats.capacity(), stats.load());
+        assertEquals((double) histogram[0] / stats.capacity(), stats.emptyBucketRatio());
+        assertEquals(16 + 4L * stats.capacity() + 32L * 1_000, stats.estimatedBytes());
+        assertEquals(Integer.numberOfTrailingZeros(stats.capacity() / 16), stats.expandCount());
+    }
+
+    @Test
+    void givenRemovals_onStats_countsReductions() {
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        for (int i = 0; i < 1_000; i++)
+            map.put(i, i);
+        for (int i = 0; i < 990; i++)
+            map.remove(i);
+        CustomMapStats stats = map.stats();
+        assertTrue(stats.reduceCount() > 0);
+        assertEquals(10, stats.size());
+        assertTrue(stats.toString().contains("reduceCount=" + stats.reduceCount()));
+    }
+
+    @Test
+    void givenCollidingHashCodes_onStats_reportsLongChain() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        String[] colliding = {"AaAa", "AaBB", "BBAa", "BBBB"};
+        for (int i = 0; i < colliding.length; i++)
+            map.put(colliding[i], i);
+        assertEquals(4, map.stats().maxChain());
+        assertEquals(15.0 / 16, map.stats().emptyBucketRatio());
+    }
+
+    @Test
+    void givenMetricsEnabled_onConditionalRemove_countsOnlyRemovedMappings() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        CustomMapMXBean metrics = map.enableMetrics("conditionalRemoveTest");
+        try {
+            map.put("a", 1);
+            map.put("b", 2);
+            assertFalse(map.remove("a", 2));
+            assertFalse(map.remove("absent", 1));
+            assertTrue(map.remove("a", 1));
+            assertEquals(1, metrics.getRemoveCount());
+        } finally {
+            map.disableMetrics();
+        }
+    }
+
+    @Test
+    void givenMetricsEnabled_onOperations_countsHitsMissesPutsAndRemoves() throws Exception {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        CustomMapMXBean metrics = map.enableMetrics("countsTest");
+        try {
+            for (int i = 0; i < 100; i++)
+                map.put("key" + i, i);
+            map.get("key1");
+            map.getOrDefault("key2", 0);
+            map.containsKey("key3");
+            map.get("absent");
+            map.remove("key4");
+            map.remove("absent");
+            assertEquals(100, metrics.getPutCount());
+            assertEquals(3, metrics.getHitCount());
+            assertEquals(1, metrics.getMissCount());
+            assertEquals(0.75, metrics.getHitRatio());
+            assertEquals(1, metrics.getRemoveCount());
+            assertEquals(99, metrics.getSize());
+            assertEquals(map.stats().capacity(), metrics.getCapacity());
+            assertEquals(map.stats().expandCount(), metrics.getExpandCount());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("custommap:type=CustomMap,name=countsTest");
+            assertEquals(100L, server.getAttribute(name, "PutCount"));
+            assertEquals("countsTest", server.getAttribute(name, "Name"));
+            server.invoke(name, "resetCounters", null, null);
+            assertEquals(0, metrics.getPutCount());
+            assertEquals(0.0, metrics.getHitRatio());
+        } finally {
+            map.disableMetrics();
+        }
+    }
+
+    @Test
+    void givenMetricsDisabled_onDisable_unregistersMXBean() throws Exception {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        map.enableMetrics("disableTest");
+        ObjectName name = new ObjectName("custommap:type=CustomMap,name=disableTest");
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertThrows(IllegalStateException.class, () -> map.enableMetrics("other"));
+        assertThrows(IllegalStateException.class, () -> new CustomMap<>().enableMetrics("disableTest"));
+        map.disableMetrics();
+        map.disableMetrics();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertThrows(IllegalArgumentException.class, () -> map.enableMetrics("bad,name"));
+    }
+
+    @Test
+    void givenBloomFilterEnabled_onMixedOperations_matchesHashMap() {
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        map.enableBloomFilter(0.01);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            Integer key = random.nextInt(i < 25_000 ? 20_000 : 400);
+            switch (random.nextInt(6)) {
+                case 0 -> assertEquals(expected.put(key, i), map.put(key, i));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                case 2 -> assertEquals(expected.putIfAbsent(key, i), map.putIfAbsent(key, i));
+                case 3 -> assertEquals(expected.merge(key, 1, Integer::sum), map.merge(key, 1, Integer::sum));
+                case 4 -> assertEquals(expected.containsKey(key), map.containsKey(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+            if (i == 30_000) {
+                map.clear();
+                expected.clear();
+            }
+        }
+        assertEquals(expected, map);
+        map.putAll(Map.of(-1, 1, -2, 2));
+        assertEquals(1, map.get(-1));
+        assertEquals(2, map.getOrDefault(-2, 0));
+    }
+
+    @Test
+    void givenBloomFilterEnabledOnPopulatedMap_onGet_findsExistingKeys() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        for (int i = 0; i < 1_000; i++)
+            map.put("key" + i, i);
+        map.enableBloomFilter(0.001);
+        for (int i = 0; i < 1_000; i++)
+            assertEquals(i, map.get("key" + i));
+        assertNull(map.get("absent"));
+        assertFalse(map.containsKey("absent"));
+        map.disableBloomFilter();
+        map.disableBloomFilter();
+        assertEquals(7, map.get("key7"));
+    }
+
+    @Test
+    void givenInvalidFalsePositiveRate_onEnableBloomFilter_throwsIllegalArgumentException() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.enableBloomFilter(0));
+        assertThrows(IllegalArgumentException.class, () -> map.enableBloomFilter(1));
+        assertThrows(IllegalArgumentException.class, () -> map.enableBloomFilter(Double.NaN));
+    }
+
+    @Test
+    void givenValueInterningEnabled_onPutOfEqualValues_storesSharedInstances() {
+        CustomMap<Integer, String> map = new CustomMap<>();
+        map.enableValueInterning();
+        for (int i = 0; i < 1_000; i++)
+            map.put(i, new String("value-" + (i % 10)));
+        map.merge(1_000, new String("value-1"), (a, b) -> a);
+        map.compute(1_001, (k, v) -> new String("value-2"));
+        map.computeIfAbsent(1_002, k -> new String("value-3"));
+        map.putIfAbsent(1_003, new String("value-4"));
+        map.putAll(Map.of(1_004, new String("value-5")));
+
+        for (int i = 10; i < 1_000; i++)
+            assertSame(map.get(i % 10), map.get(i));
+        assertSame(map.get(1), map.get(1_000));
+        assertSame(map.get(2), map.get(1_001));
+
+        CustomMapStats stats = map.stats();
+        assertEquals(995, stats.deduplicatedValues());
+        assertEquals(995 / 1_005.0, stats.deduplicationRatio(), 1e-9);
+        assertEquals(995 * (24 + 24), stats.internedBytesSaved());
+    }
+
+    @Test
+    void givenDeduplicatedMappingsRemovedOrOverwritten_onStats_reportsOnlyLiveSharing() {
+        CustomMap<Integer, String> map = new CustomMap<>();
+        map.enableValueInterning();
+        for (int i = 0; i < 100; i++)
+            map.put(i, new String("value-" + (i % 10)));
+        assertEquals(90, map.stats().deduplicatedValues());
+
+        for (int i = 10; i < 100; i++)
+            map.remove(i);
+        assertEquals(0, map.stats().deduplicatedValues());
+        assertEquals(0, map.stats().deduplicationRatio());
+        assertEquals(0, map.stats().internedBytesSaved());
+
+        for (int i = 1; i < 10; i++)
+            map.put(i, new String("value-0"));
+        map.put(0, new String("other"));
+        CustomMapStats stats = map.stats();
+        assertEquals(8, stats.deduplicatedValues());
+        assertEquals(0.8, stats.deduplicationRatio(), 1e-9);
+        assertEquals(8 * (24 + 24), stats.internedBytesSaved());
+    }
+
+    @Test
+    void givenPopulatedMap_onEnableValueInterning_internsExistingValuesAndReplaceAll() {
+        CustomMap<Integer, String> map = new CustomMap<>();
+        for (int i = 0; i < 100; i++)
+            map.put(i, new String("v" + (i % 2)));
+        map.enableValueInterning();
+        map.enableValueInterning();
+        assertSame(map.get(0), map.get(2));
+        assertEquals(98, map.stats().deduplicatedValues());
+
+        map.replaceAll((k, v) -> new String("w" + (k % 3)));
+        assertSame(map.get(0), map.get(3));
+        map.replace(4, new String("w0"));
+        assertSame(map.get(0), map.get(4));
+
+        map.disableValueInterning();
+        assertEquals(0, map.stats().deduplicationRatio());
+        assertEquals(0, map.stats().internedBytesSaved());
+        map.put(5, new String("w0"));
+        assertNotSame(map.get(0), map.get(5));
+    }
+
+    @Test
+    void givenValueInterningDisabled_onStats_reportsNoDeduplication() {
+        CustomMap<Integer, String> map = new CustomMap<>();
+        map.put(1, "a");
+        assertEquals(0, map.stats().deduplicatedValues());
+        assertEquals(0, map.stats().deduplicationRatio());
+        assertTrue(map.stats().toString().contains("deduplicationRatio=0.0"));
+    }
+
+    @Test
+    void givenOverlappingMaps_onSetAlgebra_matchesHashMapForEachMixerPairing() {
+        for (HashMixer otherMixer : HashMixer.values())
+            for (int size : new int[]{0, 50, 100_000}) {
+                CustomMap<Integer, Integer> left = new CustomMap<>();
+                CustomMap<Integer, Integer> right = new CustomMap<>(16, otherMixer);
+                Map<Integer, Integer> expectedLeft = new HashMap<>();
+                Map<Integer, Integer> expectedRight = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    left.put(i, i);
+                    expectedLeft.put(i, i);
+                    right.put(i + size / 2, -i);
+                    expectedRight.put(i + size / 2, -i);
+                }
+
+                Map<Integer, Integer> expected = new HashMap<>(expectedLeft);
+                expected.keySet().removeAll(expectedRight.keySet());
+                CustomMap<Integer, Integer> difference = left.difference(right);
+                assertEquals(expected, difference);
+                assertEquals(expected.size(), difference.size());
+
+                expected = new HashMap<>(expectedLeft);
+                expected.keySet().retainAll(expectedRight.keySet());
+                assertEquals(expected, left.intersectKeys(right));
+
+                expected = new HashMap<>(expectedRight);
+                expected.putAll(expectedLeft);
+                CustomMap<Integer, Integer> union = left.unionWith(right);
+                assertEquals(expected, union);
+                assertEquals(expected.size(), union.size());
+                assertEquals(expectedLeft, left);
+                assertEquals(expectedRight, right);
+
+                Map<Integer, Integer> merged = new HashMap<>(expectedLeft);
+                expectedRight.forEach((k, v) -> merged.merge(k, v, Integer::sum));
+                left.mergeAll(right, Integer::sum);
+                assertEquals(merged, left);
+                assertEquals(merged.size(), left.size());
+            }
+    }
+
+    @Test
+    void givenRemappingReturningNull_onMergeAll_removesSharedKeysAndShrinks() {
+        CustomMap<Integer, String> map = new CustomMap<>();
+        CustomMap<Integer, String> other = new CustomMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, "a" + i);
+            other.put(i, "b" + i);
+        }
+        other.put(1000, "b1000");
+        map.mergeAll(other, (mine, theirs) -> null);
+        assertEquals(Map.of(1000, "b1000"), map);
+        assertEquals(16, map.stats().capacity());
+    }
+
+    @Test
+    void givenSameMap_onMergeAll_remapsEachValueWithItself() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        map.mergeAll(map, Integer::sum);
+        assertEquals(Map.of("a", 2, "b", 4), map);
+    }
+
+    @Test
+    void givenDifferenceAndIntersection_onFurtherUse_resultsAreIndependentWorkingMaps() {
+        CustomMap<Integer, Integer> map = new CustomMap<>(16, HashMixer.SEEDED);
+        CustomMap<Integer, Integer> other = new CustomMap<>();
+        for (int i = 0; i < 10_000; i++)
+            map.put(i, i);
+        other.put(1, 1);
+        CustomMap<Integer, Integer> shared = map.intersectKeys(other);
+        assertEquals(16, shared.stats().capacity());
+        shared.put(2, 2);
+        assertEquals(Map.of(1, 1, 2, 2), shared);
+        CustomMap<Integer, Integer> rest = map.difference(other);
+        assertNull(rest.get(1));
+        rest.remove(2);
+        assertEquals(9998, rest.size());
+        assertEquals(10_000, map.size());
+    }
+
+    @Test
+    void givenBloomFilter_onMergeAll_findsMergedKeys() {
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        map.enableBloomFilter(0.01);
+        CustomMap<Integer, Integer> other = new CustomMap<>();
+        for (int i = 0; i < 5000; i++)
+            other.put(i, i);
+        map.mergeAll(other, Integer::sum);
+        for (int i = 0; i < 5000; i++)
+            assertTrue(map.containsKey(i));
+    }
+
+    @Test
+    void givenNullArguments_onSetAlgebra_throwsNullPointerException() {
+        CustomMap<Integer, Integer> map = new CustomMap<>();
+        NullPointerException exception = assertThrows(NullPointerException.class, () -> map.difference(null));
+        assertEquals("Other map must not be null.", exception.getMessage());
+        assertThrows(NullPointerException.class, () -> map.intersectKeys(null));
+        assertThrows(NullPointerException.class, () -> map.unionWith(null));
+        assertThrows(NullPointerException.class, () -> map.mergeAll(null, Integer::sum));
+        exception = assertThrows(NullPointerException.class, () -> map.mergeAll(new CustomMap<>(), null));
+        assertEquals("Remapping BiFunction must not be null.", exception.getMessage());
+    }
+}
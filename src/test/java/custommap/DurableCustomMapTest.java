@@ -0,0 +1,156 @@
+package custommap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableCustomMapTest {
+
+    @TempDir
+    Path directory;
+
+    private DurableCustomMap<String, Integer> open(DurableCustomMap.FsyncPolicy policy) throws IOException {
+        return DurableCustomMap.open(directory, CustomMapCodec.STRING, CustomMapCodec.INTEGER, policy);
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void givenEmptyDirectory_onOpen_returnsEmptyMap() throws IOException {
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.EVERY_OP)) {
+            assertTrue(map.isEmpty());
+            assertNull(map.get("abc"));
+        }
+    }
+
+    @Test
+    void givenLoggedOperations_onReopen_replaysEveryPolicy() throws IOException {
+        for (DurableCustomMap.FsyncPolicy policy : DurableCustomMap.FsyncPolicy.values()) {
+            Map<String, Integer> expected = new HashMap<>();
+            try (DurableCustomMap<String, Integer> map = open(policy)) {
+                map.clear();
+                for (int i = 0; i < 1_000; i++) {
+                    map.put("key" + i, i);
+                    expected.put("key" + i, i);
+                }
+                map.remove("key3");
+                expected.remove("key3");
+                map.remove("absent");
+                map.merge("key4", 10, Integer::sum);
+                expected.merge("key4", 10, Integer::sum);
+                map.merge("key5", 0, (a, b) -> null);
+                expected.remove("key5");
+                map.put("nullValue", null);
+                expected.put("nullValue", null);
+            }
+            try (DurableCustomMap<String, Integer> map = open(policy)) {
+                assertEquals(expected, map);
+            }
+        }
+    }
+
+    @Test
+    void givenTornRecordAtLogTail_onReopen_truncatesAndKeepsEarlierRecords() throws IOException {
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.EVERY_OP)) {
+            map.put("a", 1);
+            map.put("b", 2);
+        }
+        Path log = directory.resolve("wal-0.log");
+        long intact = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 0, 20, 1, 2, 3, 4, 1, 0}, StandardOpenOption.APPEND);
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.EVERY_OP)) {
+            assertEquals(Map.of("a", 1, "b", 2), map);
+            map.put("c", 3);
+        }
+        assertEquals(intact, Files.size(log));
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.EVERY_OP)) {
+            assertEquals(Map.of("a", 1, "b", 2, "c", 3), map);
+        }
+    }
+
+    @Test
+    void givenCorruptedChecksum_onReopen_dropsRecordAndEverythingAfterIt() throws IOException {
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.EVERY_OP)) {
+            map.put("a", 1);
+            map.put("b", 2);
+        }
+        Path log = directory.resolve("wal-0.log");
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(log, bytes);
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.EVERY_OP)) {
+            assertEquals(Map.of("a", 1), map);
+        }
+    }
+
+    @Test
+    void givenCompaction_onReopen_loadsSnapshotAndDeletesSupersededFiles() throws IOException {
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.BATCHED)) {
+            for (int i = 0; i < 500; i++)
+                map.put("key" + i, i);
+            map.compact();
+            map.put("after", -1);
+            map.remove("key0");
+        }
+        assertEquals(List.of("snapshot-1.bin", "wal-1.log"), files());
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.BATCHED)) {
+            assertEquals(500, map.size());
+            assertEquals(-1, map.get("after"));
+            assertNull(map.get("key0"));
+            assertEquals(499, map.get("key499"));
+            map.compact();
+        }
+        assertEquals(List.of("snapshot-3.bin", "wal-3.log"), files());
+    }
+
+    @Test
+    void givenConcurrentWriters_onGroupCommit_persistsEveryWrite() throws Exception {
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.EVERY_OP)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int writer = t;
+                writers.add(new Thread(() -> {
+                    for (int i = 0; i < 250; i++)
+                        map.put(writer + ":" + i, i);
+                }));
+            }
+            for (Thread thread : writers)
+                thread.start();
+            for (Thread thread : writers)
+                thread.join();
+        }
+        try (DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.EVERY_OP)) {
+            assertEquals(1_000, map.size());
+            assertEquals(249, map.get("3:249"));
+        }
+    }
+
+    @Test
+    void givenClosedMap_onMutation_throwsIllegalStateException() throws IOException {
+        DurableCustomMap<String, Integer> map = open(DurableCustomMap.FsyncPolicy.PERIODIC);
+        map.close();
+        map.close();
+        assertThrows(IllegalStateException.class, () -> map.put("a", 1));
+        assertThrows(IllegalStateException.class, map::compact);
+        assertThrows(UnsupportedOperationException.class, () -> map.entrySet().clear());
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+    }
+}
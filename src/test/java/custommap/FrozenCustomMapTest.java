@@ -0,0 +1,92 @@
+package custommap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrozenCustomMapTest {
+
+    @Test
+    void givenEmptyMap_onFreeze_returnsEmptyMap() {
+        FrozenCustomMap<String, String> frozen = new CustomMap<String, String>().freeze();
+        assertTrue(frozen.isEmpty());
+        assertNull(frozen.get("abc"));
+        assertFalse(frozen.containsKey("abc"));
+        assertEquals("{}", frozen.toString());
+    }
+
+    @Test
+    void givenLargeMap_onFreeze_containsEveryMappingAndNoOthers() {
+        CustomMap<Integer, String> map = new CustomMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++)
+            map.put(random.nextInt(), "Value" + i);
+        FrozenCustomMap<Integer, String> frozen = map.freeze();
+        assertEquals(map.size(), frozen.size());
+        map.forEach((key, value) -> assertEquals(value, frozen.get(key)));
+        for (int i = 0; i < 10_000; i++) {
+            int key = random.nextInt();
+            assertEquals(map.get(key), frozen.get(key));
+        }
+        assertEquals(map, frozen);
+        assertEquals(frozen, map);
+        assertEquals(map.hashCode(), frozen.hashCode());
+    }
+
+    @Test
+    void givenKeysWithIdenticalHashCodes_onFreeze_keepsAllMappings() {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        String[] colliding = {"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB", "AaAaAa", "BBBBBB"};
+        for (int i = 0; i < colliding.length; i++)
+            map.put(colliding[i], i);
+        for (int i = 0; i < 100; i++)
+            map.put("key" + i, -i);
+        FrozenCustomMap<String, Integer> frozen = map.freeze();
+        assertEquals(map, frozen);
+        for (int i = 0; i < colliding.length; i++)
+            assertEquals(i, frozen.get(colliding[i]));
+        assertEquals(-7, frozen.getOrDefault("key7", 1));
+        assertEquals(1, frozen.getOrDefault("absent", 1));
+    }
+
+    @Test
+    void givenFrozenMap_onSourceChange_isUnaffected() {
+        CustomMap<String, String> map = new CustomMap<>(Map.of("a", "1", "b", "2"));
+        FrozenCustomMap<String, String> frozen = map.freeze();
+        map.put("c", "3");
+        map.remove("a");
+        assertEquals(Map.of("a", "1", "b", "2"), frozen);
+    }
+
+    @Test
+    void givenFrozenMap_onMutation_throwsUnsupportedOperationException() {
+        FrozenCustomMap<String, String> frozen = new CustomMap<>(Map.of("a", "1")).freeze();
+        assertThrows(UnsupportedOperationException.class, () -> frozen.put("b", "2"));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.remove("a"));
+        assertThrows(UnsupportedOperationException.class, frozen::clear);
+        assertThrows(UnsupportedOperationException.class, () -> frozen.merge("a", "x", (a, b) -> a + b));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.entrySet().iterator().next().setValue("x"));
+        assertThrows(NullPointerException.class, () -> frozen.get(null));
+    }
+
+    @Test
+    void givenMapWithNullValue_onFreeze_distinguishesNullFromAbsent() {
+        CustomMap<String, String> map = new CustomMap<>();
+        map.put("present", null);
+        FrozenCustomMap<String, String> frozen = map.freeze();
+        assertTrue(frozen.containsKey("present"));
+        assertNull(frozen.getOrDefault("present", "default"));
+        assertEquals("default", frozen.getOrDefault("absent", "default"));
+        Map<String, String> seen = new HashMap<>();
+        frozen.forEach(seen::put);
+        assertEquals(map, seen);
+    }
+}
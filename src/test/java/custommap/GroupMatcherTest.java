@@ -0,0 +1,63 @@
+package custommap;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupMatcherTest {
+
+    private static final byte[] CONTROL_VALUES = {GroupMatcher.EMPTY, GroupMatcher.DELETED, 0, 1, 2, 0x7E, 0x7F};
+
+    @Test
+    void givenRandomGroups_onEachMatcher_findsEveryTagAndExactlyTheEmptyAndFreeBytes() {
+        for (GroupMatcher matcher : new GroupMatcher[]{new SwarGroupMatcher(), new VectorGroupMatcher()}) {
+            Random random = new Random(11);
+            byte[] control = new byte[GroupMatcher.WIDTH * 4];
+            for (int round = 0; round < 20_000; round++) {
+                for (int i = 0; i < control.length; i++)
+                    control[i] = CONTROL_VALUES[random.nextInt(CONTROL_VALUES.length)];
+                int groupStart = random.nextInt(4) * GroupMatcher.WIDTH;
+                byte tag = CONTROL_VALUES[2 + random.nextInt(CONTROL_VALUES.length - 2)];
+                int tags = 0;
+                int candidates = 0;
+                for (int offset = matcher.nextMatch(control, groupStart, tag, 0); offset < GroupMatcher.WIDTH;
+                     offset = matcher.nextMatch(control, groupStart, tag, offset + 1))
+                    candidates |= 1 << offset;
+                boolean empty = false;
+                int firstFree = GroupMatcher.WIDTH;
+                for (int i = GroupMatcher.WIDTH - 1; i >= 0; i--) {
+                    byte b = control[groupStart + i];
+                    tags |= b == tag ? 1 << i : 0;
+                    empty |= b == GroupMatcher.EMPTY;
+                    firstFree = b < 0 ? i : firstFree;
+                }
+                assertEquals(tags, candidates & tags);
+                if (matcher instanceof VectorGroupMatcher)
+                    assertEquals(tags, candidates);
+                assertEquals(empty, matcher.hasEmpty(control, groupStart));
+                assertEquals(firstFree, matcher.firstFree(control, groupStart));
+                assertEquals(GroupMatcher.WIDTH, matcher.nextMatch(control, groupStart, tag, GroupMatcher.WIDTH));
+            }
+        }
+    }
+
+    @Test
+    void givenVectorModuleResolved_onSelect_returnsVectorMatcher() {
+        assertTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        assertTrue(GroupMatcher.select() instanceof VectorGroupMatcher);
+        assertTrue(SwissCustomMap.isVectorized());
+    }
+
+    @Test
+    void givenScalarProperty_onSelect_returnsSwarMatcher() {
+        System.setProperty("custommap.swiss.scalar", "true");
+        try {
+            assertTrue(GroupMatcher.select() instanceof SwarGroupMatcher);
+        } finally {
+            System.clearProperty("custommap.swiss.scalar");
+        }
+    }
+}
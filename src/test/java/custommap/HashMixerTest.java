@@ -0,0 +1,45 @@
+package custommap;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashMixerTest {
+
+    @Test
+    void givenSpread_onMix_matchesHashMapSpreading() {
+        int h = "CustomMap".hashCode();
+        assertEquals(h ^ (h >>> 16), HashMixer.SPREAD.mix(h, 12345));
+    }
+
+    @Test
+    void givenClusteredHashCodes_onMixWithMurmur3_usesFarMoreBucketsThanSpread() {
+        int mask = 1023;
+        Set<Integer> spreadBuckets = new HashSet<>();
+        Set<Integer> murmurBuckets = new HashSet<>();
+        for (int i = 0; i < 1024; i++) {
+            spreadBuckets.add(HashMixer.SPREAD.mix(i * 1024, 0) & mask);
+            murmurBuckets.add(HashMixer.MURMUR3.mix(i * 1024, 0) & mask);
+        }
+        assertEquals(16, spreadBuckets.size());
+        assertTrue(murmurBuckets.size() > 600);
+    }
+
+    @Test
+    void givenSeeded_onMixWithDifferentSeeds_producesDifferentHashes() {
+        assertEquals(HashMixer.SEEDED.mix(42, 7), HashMixer.SEEDED.mix(42, 7));
+        assertNotEquals(HashMixer.SEEDED.mix(42, 7), HashMixer.SEEDED.mix(42, 8));
+        assertEquals(HashMixer.MURMUR3.mix(42, 0), HashMixer.SEEDED.mix(42, 0));
+    }
+
+    @Test
+    void givenUnseededMixers_onNewSeed_returnZero() {
+        assertEquals(0, HashMixer.SPREAD.newSeed());
+        assertEquals(0, HashMixer.MURMUR3.newSeed());
+    }
+}
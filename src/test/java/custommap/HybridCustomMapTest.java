@@ -0,0 +1,126 @@
+package custommap;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HybridCustomMapTest {
+
+    private static byte[] payload(int length, int seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void givenEmptyMap_onGet_returnsNull() {
+        HybridCustomMap<String> map = new HybridCustomMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("abc"));
+        assertEquals(-1, map.getInto("abc", ByteBuffer.allocate(8)));
+        assertEquals(0, map.offHeapBytes());
+    }
+
+    @Test
+    void givenPayloads_onGetInto_copiesIntoBufferAndAdvancesPosition() {
+        HybridCustomMap<String> map = new HybridCustomMap<>();
+        map.put("a", new byte[]{1, 2, 3});
+        map.put("empty", new byte[0]);
+        ByteBuffer destination = ByteBuffer.allocateDirect(8);
+        destination.put((byte) 9);
+        assertEquals(3, map.getInto("a", destination));
+        assertEquals(4, destination.position());
+        assertEquals(0, map.getInto("empty", destination));
+        destination.flip();
+        byte[] read = new byte[4];
+        destination.get(read);
+        assertArrayEquals(new byte[]{9, 1, 2, 3}, read);
+        assertThrows(BufferOverflowException.class, () -> map.getInto("a", ByteBuffer.allocate(2)));
+        assertArrayEquals(new byte[0], map.get("empty"));
+    }
+
+    @Test
+    void givenManyPayloadSizes_onPutAndGet_roundTripsEveryPayload() {
+        HybridCustomMap<Integer> map = new HybridCustomMap<>();
+        Random random = new Random(11);
+        Map<Integer, Integer> lengths = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            int length = random.nextInt(5_000);
+            lengths.put(i, length);
+            assertNull(map.put(i, payload(length, i)));
+        }
+        map.put(-1, payload(3 << 20, -1));
+        assertEquals(5_001, map.size());
+        lengths.forEach((key, length) -> assertArrayEquals(payload(length, key), map.get(key)));
+        assertArrayEquals(payload(3 << 20, -1), map.get(-1));
+        int count = 0;
+        for (Map.Entry<Integer, byte[]> entry : map.entrySet()) {
+            assertEquals(entry.getKey() < 0 ? 3 << 20 : lengths.get(entry.getKey()), entry.getValue().length);
+            count++;
+        }
+        assertEquals(5_001, count);
+    }
+
+    @Test
+    void givenFreedSlots_onPut_reusesThemBeforeGrowingTheSlab() {
+        HybridCustomMap<Integer> map = new HybridCustomMap<>();
+        for (int i = 0; i < 1_000; i++)
+            map.put(i, payload(1_000, i));
+        long reserved = map.offHeapBytes();
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 1_000; i++)
+                assertArrayEquals(round == 0 ? payload(1_000, i) : payload(900, i + round - 1), map.remove(i));
+            for (int i = 0; i < 1_000; i++)
+                map.put(i, payload(900, i + round));
+        }
+        assertEquals(reserved, map.offHeapBytes());
+        assertArrayEquals(payload(900, 5 + 9), map.get(5));
+    }
+
+    @Test
+    void givenExistingKey_onPutOfDifferentSize_replacesPayload() {
+        HybridCustomMap<String> map = new HybridCustomMap<>();
+        map.put("key", payload(10, 1));
+        assertArrayEquals(payload(10, 1), map.put("key", payload(5_000, 2)));
+        assertArrayEquals(payload(5_000, 2), map.put("key", ByteBuffer.wrap(payload(2 << 20, 3))));
+        assertArrayEquals(payload(2 << 20, 3), map.put("key", payload(12, 4)));
+        assertArrayEquals(payload(12, 4), map.get("key"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void givenIteratorRemove_onEntrySet_removesMapping() {
+        HybridCustomMap<String> map = new HybridCustomMap<>();
+        map.put("a", new byte[]{1});
+        map.put("b", new byte[]{2});
+        Iterator<Map.Entry<String, byte[]>> iterator = map.entrySet().iterator();
+        String removed = iterator.next().getKey();
+        iterator.remove();
+        assertFalse(map.containsKey(removed));
+        assertEquals(1, map.size());
+        map.clear();
+        assertEquals(0, map.offHeapBytes());
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void givenNullArguments_onPut_throwsNullPointerException() {
+        HybridCustomMap<String> map = new HybridCustomMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(null, new byte[0]));
+        assertThrows(NullPointerException.class, () -> map.put("a", (byte[]) null));
+        assertThrows(NullPointerException.class, () -> map.get(null));
+        assertThrows(IllegalArgumentException.class, () -> new HybridCustomMap<String>(-1));
+    }
+}
@@ -0,0 +1,113 @@
+package custommap;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedCustomMapTest {
+
+    private static <K, V> MappedCustomMap<K, V> roundTrip(Map<K, V> map, CustomMapCodec<K> keyCodec,
+                                                          CustomMapCodec<V> valueCodec) throws IOException {
+        Path file = Files.createTempFile("mapped-custom-map", ".bin");
+        file.toFile().deleteOnExit();
+        MappedCustomMap.write(map, file, keyCodec, valueCodec);
+        return MappedCustomMap.open(file, keyCodec, valueCodec);
+    }
+
+    @Test
+    void givenEmptyMap_onOpen_returnsEmptyMap() throws IOException {
+        MappedCustomMap<String, String> mapped = roundTrip(new CustomMap<>(), CustomMapCodec.STRING,
+                CustomMapCodec.STRING);
+        assertTrue(mapped.isEmpty());
+        assertNull(mapped.get("abc"));
+        assertFalse(mapped.containsKey("abc"));
+        assertEquals("{}", mapped.toString());
+    }
+
+    @Test
+    void givenLargeMap_onOpen_containsEveryMappingAndNoOthers() throws IOException {
+        CustomMap<Long, String> map = new CustomMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 50_000; i++)
+            map.put(random.nextLong(), "Value" + i);
+        MappedCustomMap<Long, String> mapped = roundTrip(map, CustomMapCodec.LONG, CustomMapCodec.STRING);
+        assertEquals(map.size(), mapped.size());
+        map.forEach((key, value) -> assertEquals(value, mapped.get(key)));
+        for (int i = 0; i < 10_000; i++)
+            assertFalse(mapped.containsKey(random.nextLong()));
+        assertEquals(map, mapped);
+        assertEquals(mapped, map);
+        assertEquals(map.hashCode(), mapped.hashCode());
+    }
+
+    @Test
+    void givenKeysWithIdenticalHashCodes_onOpen_keepsAllMappings() throws IOException {
+        CustomMap<String, Integer> map = new CustomMap<>();
+        String[] colliding = {"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB"};
+        for (int i = 0; i < colliding.length; i++)
+            map.put(colliding[i], i);
+        MappedCustomMap<String, Integer> mapped = roundTrip(map, CustomMapCodec.STRING, CustomMapCodec.INTEGER);
+        for (int i = 0; i < colliding.length; i++)
+            assertEquals(i, mapped.get(colliding[i]));
+        assertEquals(-1, mapped.getOrDefault("AaAaAa", -1));
+    }
+
+    @Test
+    void givenMapWithNullValue_onOpen_distinguishesNullFromAbsent() throws IOException {
+        CustomMap<String, String> map = new CustomMap<>();
+        map.put("present", null);
+        map.put("other", "value");
+        MappedCustomMap<String, String> mapped = roundTrip(map, CustomMapCodec.STRING, CustomMapCodec.STRING);
+        assertTrue(mapped.containsKey("present"));
+        assertNull(mapped.getOrDefault("present", "default"));
+        assertEquals("default", mapped.getOrDefault("absent", "default"));
+        Map<String, String> seen = new HashMap<>();
+        mapped.forEach(seen::put);
+        assertEquals(map, seen);
+    }
+
+    @Test
+    void givenMappedEntry_onRepeatedGetValue_decodesValueOnce() throws IOException {
+        CustomMap<String, String> map = new CustomMap<>();
+        map.put("key", "value");
+        map.put("absent", null);
+        MappedCustomMap<String, String> mapped = roundTrip(map, CustomMapCodec.STRING, CustomMapCodec.STRING);
+        for (Map.Entry<String, String> entry : mapped.entrySet()) {
+            assertSame(entry.getValue(), entry.getValue());
+            assertEquals(map.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    @Test
+    void givenMappedMap_onMutation_throwsUnsupportedOperationException() throws IOException {
+        MappedCustomMap<String, String> mapped = roundTrip(Map.of("a", "1"), CustomMapCodec.STRING,
+                CustomMapCodec.STRING);
+        assertThrows(UnsupportedOperationException.class, () -> mapped.put("b", "2"));
+        assertThrows(UnsupportedOperationException.class, () -> mapped.remove("a"));
+        assertThrows(UnsupportedOperationException.class, mapped::clear);
+        assertThrows(UnsupportedOperationException.class, () -> mapped.entrySet().iterator().next().setValue("x"));
+        assertThrows(NullPointerException.class, () -> mapped.get(null));
+    }
+
+    @Test
+    void givenFileWithoutHeader_onOpen_throwsStreamCorruptedException() throws IOException {
+        Path file = Files.createTempFile("mapped-custom-map", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, new byte[64]);
+        assertThrows(StreamCorruptedException.class,
+                () -> MappedCustomMap.open(file, CustomMapCodec.STRING, CustomMapCodec.STRING));
+    }
+}
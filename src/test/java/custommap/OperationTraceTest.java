@@ -0,0 +1,106 @@
+package custommap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationTraceTest {
+
+    @TempDir
+    Path directory;
+
+    private static RecordingCustomMap<Integer, Integer> recordRandomWorkload(int operations) {
+        RecordingCustomMap<Integer, Integer> map = new RecordingCustomMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < operations; i++) {
+            int key = random.nextInt(1_000);
+            switch (random.nextInt(5)) {
+                case 0 -> map.put(key, i);
+                case 1 -> map.remove(key);
+                case 2 -> map.containsKey(key);
+                case 3 -> map.putIfAbsent(key, i);
+                default -> map.get(key);
+            }
+        }
+        return map;
+    }
+
+    @Test
+    void givenTrace_onWriteAndRead_roundTrips() throws IOException {
+        OperationTrace trace = recordRandomWorkload(10_000).trace();
+        Path file = directory.resolve("workload.trace");
+        trace.write(file);
+        OperationTrace read = OperationTrace.read(file);
+
+        assertEquals(trace.size(), read.size());
+        assertEquals(trace.keyCount(), read.keyCount());
+        for (int i = 0; i < trace.size(); i++) {
+            assertEquals(trace.operation(i), read.operation(i));
+            assertEquals(trace.keyId(i), read.keyId(i));
+        }
+        for (int id = 0; id < trace.keyCount(); id++)
+            assertEquals(trace.keyHash(id), read.keyHash(id));
+        assertEquals(trace.toString(), read.toString());
+    }
+
+    @Test
+    void givenTrace_onWrite_encodesCompactly() throws IOException {
+        OperationTrace trace = recordRandomWorkload(10_000).trace();
+        Path file = directory.resolve("workload.trace");
+        trace.write(file);
+        assertTrue(Files.size(file) <= 16 + 4L * trace.keyCount() + 2L * trace.size());
+    }
+
+    @Test
+    void givenTrace_onReplay_returnsSameHitsForEveryMap() {
+        RecordingCustomMap<Integer, Integer> recorded = recordRandomWorkload(10_000);
+        OperationTrace trace = recorded.trace();
+        Map<Object, Object> customMap = new CustomMap<>();
+        Map<Object, Object> hashMap = new HashMap<>();
+        int hits = trace.replay(customMap);
+
+        assertEquals(hits, trace.replay(hashMap));
+        assertEquals(hits, trace.replay(new SwissCustomMap<>()));
+        assertEquals(recorded.size(), customMap.size());
+        assertEquals(customMap, hashMap);
+    }
+
+    @Test
+    void givenCollidingKeys_onReplay_keepsKeysDistinct() {
+        RecordingCustomMap<String, Integer> map = new RecordingCustomMap<>();
+        map.put("Aa", 1);
+        map.put("BB", 2);
+        Map<Object, Object> replayed = new CustomMap<>();
+        map.trace().replay(replayed);
+
+        assertEquals("Aa".hashCode(), map.trace().keyHash(1));
+        assertEquals(2, replayed.size());
+    }
+
+    @Test
+    void givenNonTraceFile_onRead_throwsIOException() throws IOException {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> OperationTrace.read(file));
+    }
+
+    @Test
+    void givenTruncatedFile_onRead_throwsIOException() throws IOException {
+        Path file = directory.resolve("workload.trace");
+        recordRandomWorkload(1_000).trace().write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThrows(IOException.class, () -> OperationTrace.read(file));
+    }
+}
@@ -0,0 +1,137 @@
+package custommap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentCustomMapTest {
+
+    @Test
+    void givenEmptyMap_onGet_returnsNull() {
+        PersistentCustomMap<String, String> map = PersistentCustomMap.empty();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("abc"));
+        assertFalse(map.containsKey("abc"));
+        assertSame(map, map.without("abc"));
+    }
+
+    @Test
+    void givenMap_onWith_returnsNewMapAndLeavesOriginalUnchanged() {
+        PersistentCustomMap<String, Integer> empty = PersistentCustomMap.empty();
+        PersistentCustomMap<String, Integer> one = empty.with("a", 1);
+        PersistentCustomMap<String, Integer> two = one.with("b", 2);
+        PersistentCustomMap<String, Integer> replaced = two.with("a", 10);
+        assertEquals(0, empty.size());
+        assertEquals(Map.of("a", 1), one);
+        assertEquals(Map.of("a", 1, "b", 2), two);
+        assertEquals(Map.of("a", 10, "b", 2), replaced);
+        assertSame(two, two.with("b", 2));
+    }
+
+    @Test
+    void givenMap_onWithout_returnsNewMapAndLeavesOriginalUnchanged() {
+        PersistentCustomMap<String, Integer> map = PersistentCustomMap.<String, Integer>empty().with("a", 1).with("b", 2);
+        PersistentCustomMap<String, Integer> removed = map.without("a");
+        assertEquals(Map.of("b", 2), removed);
+        assertEquals(Map.of("a", 1, "b", 2), map);
+        assertSame(removed, removed.without("a"));
+        assertTrue(removed.without("b").isEmpty());
+    }
+
+    @Test
+    void givenRandomOperations_onWithAndWithout_matchesHashMapAndPreservesEveryVersion() {
+        Random random = new Random(11);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentCustomMap<Integer, Integer> map = PersistentCustomMap.empty();
+        PersistentCustomMap<Integer, Integer> checkpoint = map;
+        Map<Integer, Integer> expectedCheckpoint = Map.of();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(3000);
+            if (random.nextBoolean()) {
+                map = map.with(key, i);
+                expected.put(key, i);
+            } else {
+                map = map.without(key);
+                expected.remove(key);
+            }
+            if (i == 25_000) {
+                checkpoint = map;
+                expectedCheckpoint = new HashMap<>(expected);
+            }
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expectedCheckpoint, checkpoint);
+    }
+
+    @Test
+    void givenKeysWithIdenticalHashCodes_onWithAndWithout_keepsThemApart() {
+        PersistentCustomMap<String, Integer> map = PersistentCustomMap.<String, Integer>empty()
+                .with("Aa", 1).with("BB", 2).with("AaAa", 3).with("BBBB", 4);
+        assertEquals(1, map.get("Aa"));
+        assertEquals(2, map.get("BB"));
+        PersistentCustomMap<String, Integer> removed = map.without("Aa");
+        assertNull(removed.get("Aa"));
+        assertEquals(2, removed.get("BB"));
+        assertEquals(1, map.get("Aa"));
+        assertTrue(removed.without("BB").containsKey("AaAa"));
+    }
+
+    @Test
+    void givenTransient_onSnapshot_returnsImmutableViewWhileEditingContinues() {
+        PersistentCustomMap.Transient<Integer, String> editor = PersistentCustomMap.<Integer, String>empty().asTransient();
+        for (int i = 0; i < 1000; i++)
+            editor.put(i, "v" + i);
+        PersistentCustomMap<Integer, String> snapshot = editor.snapshot();
+        for (int i = 0; i < 1000; i += 2)
+            editor.remove(i);
+        assertEquals("v1", editor.put(1, "new"));
+        PersistentCustomMap<Integer, String> later = editor.snapshot();
+        assertEquals(1000, snapshot.size());
+        assertEquals("v0", snapshot.get(0));
+        assertEquals("v1", snapshot.get(1));
+        assertEquals(500, later.size());
+        assertNull(later.get(0));
+        assertEquals("new", later.get(1));
+    }
+
+    @Test
+    void givenTransient_afterPersistent_throwsIllegalStateException() {
+        PersistentCustomMap.Transient<String, String> editor = PersistentCustomMap.<String, String>empty().asTransient();
+        assertNull(editor.put("a", "1"));
+        assertEquals("1", editor.put("a", "2"));
+        PersistentCustomMap<String, String> result = editor.persistent();
+        assertEquals(Map.of("a", "2"), result);
+        assertThrows(IllegalStateException.class, () -> editor.put("b", "3"));
+        assertThrows(IllegalStateException.class, editor::snapshot);
+    }
+
+    @Test
+    void givenPersistentMap_onAsTransientEdits_isUnaffected() {
+        PersistentCustomMap<String, String> map = PersistentCustomMap.<String, String>empty().with("a", "1");
+        PersistentCustomMap.Transient<String, String> editor = map.asTransient();
+        editor.put("a", "2");
+        editor.put("b", "3");
+        assertEquals("2", editor.remove("a"));
+        assertEquals(Map.of("a", "1"), map);
+        assertEquals(1, editor.size());
+    }
+
+    @Test
+    void givenMap_onMutatorsAndNullKeys_throws() {
+        PersistentCustomMap<String, String> map = PersistentCustomMap.<String, String>empty().with("a", "1");
+        assertThrows(UnsupportedOperationException.class, () -> map.put("b", "2"));
+        assertThrows(UnsupportedOperationException.class, () -> map.remove("a"));
+        assertThrows(NullPointerException.class, () -> map.with(null, "1"));
+        assertThrows(NullPointerException.class, () -> map.get(null));
+    }
+}
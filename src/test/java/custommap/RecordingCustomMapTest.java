@@ -0,0 +1,82 @@
+package custommap;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordingCustomMapTest {
+
+    @Test
+    void givenOperations_onTrace_recordsOperationsAndKeyIdsInOrder() {
+        RecordingCustomMap<String, Integer> map = new RecordingCustomMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        map.get("a");
+        map.containsKey("c");
+        map.putIfAbsent("b", 3);
+        map.getOrDefault("d", 0);
+        map.remove("a");
+        map.clear();
+
+        OperationTrace trace = map.trace();
+        assertEquals(8, trace.size());
+        assertEquals(4, trace.keyCount());
+        OperationTrace.Operation[] expectedOperations = {
+                OperationTrace.Operation.PUT, OperationTrace.Operation.PUT, OperationTrace.Operation.GET,
+                OperationTrace.Operation.CONTAINS_KEY, OperationTrace.Operation.PUT_IF_ABSENT,
+                OperationTrace.Operation.GET, OperationTrace.Operation.REMOVE, OperationTrace.Operation.CLEAR};
+        int[] expectedIds = {0, 1, 0, 2, 1, 3, 0, 0};
+        for (int i = 0; i < trace.size(); i++) {
+            assertEquals(expectedOperations[i], trace.operation(i));
+            assertEquals(expectedIds[i], trace.keyId(i));
+        }
+        assertEquals("c".hashCode(), trace.keyHash(2));
+    }
+
+    @Test
+    void givenDelegatedMap_onOperations_behavesLikeCustomMap() {
+        RecordingCustomMap<String, Integer> map = new RecordingCustomMap<>();
+        assertEquals(null, map.put("a", 1));
+        assertEquals(1, map.put("a", 2));
+        assertEquals(2, map.get("a"));
+        assertTrue(map.containsKey("a"));
+        assertEquals(1, map.size());
+        assertEquals(Map.of("a", 2), map);
+        assertEquals(2, map.remove("a"));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void givenInheritedMethods_onCompute_recordsUnderlyingOperations() {
+        RecordingCustomMap<String, Integer> map = new RecordingCustomMap<>();
+        map.merge("a", 1, Integer::sum);
+        map.putAll(Map.of("b", 2));
+
+        OperationTrace trace = map.trace();
+        assertEquals(OperationTrace.Operation.GET, trace.operation(0));
+        assertEquals(OperationTrace.Operation.PUT, trace.operation(1));
+        assertEquals(OperationTrace.Operation.PUT, trace.operation(2));
+        assertEquals(1, trace.keyId(2));
+    }
+
+    @Test
+    void givenNullKey_onPut_throwsAndRecordsNothing() {
+        RecordingCustomMap<String, Integer> map = new RecordingCustomMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        assertEquals(0, map.trace().size());
+    }
+
+    @Test
+    void givenEntrySet_onModification_throwsUnsupportedOperationException() {
+        RecordingCustomMap<String, Integer> map = new RecordingCustomMap<>();
+        map.put("a", 1);
+        assertThrows(UnsupportedOperationException.class, () -> map.entrySet().clear());
+        assertThrows(UnsupportedOperationException.class, () -> map.keySet().remove("a"));
+        assertFalse(map.isEmpty());
+    }
+}
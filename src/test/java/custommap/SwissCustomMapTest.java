@@ -0,0 +1,123 @@
+package custommap;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SwissCustomMapTest {
+
+    @Test
+    void givenEmptyMap_onGet_returnsNull() {
+        SwissCustomMap<String, String> map = new SwissCustomMap<>();
+        assertNull(map.get("abc"));
+        assertFalse(map.containsKey("abc"));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void givenMap_onNullKey_throwsNullPointerException() {
+        SwissCustomMap<String, String> map = new SwissCustomMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(null, "abc"));
+        assertThrows(NullPointerException.class, () -> map.get(null));
+        assertThrows(NullPointerException.class, () -> map.remove(null));
+    }
+
+    @Test
+    void givenNegativeCapacity_onConstruct_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new SwissCustomMap<>(-1));
+    }
+
+    @Test
+    void givenMap_onPutExistingKey_returnsPreviousValueAndKeepsSize() {
+        SwissCustomMap<String, Integer> map = new SwissCustomMap<>();
+        assertNull(map.put("abc", 1));
+        assertEquals(1, map.put("abc", 2));
+        assertEquals(2, map.get("abc"));
+        assertEquals(1, map.size());
+        assertNull(map.put("def", null));
+        assertTrue(map.containsKey("def"));
+        assertNull(map.get("def"));
+    }
+
+    @Test
+    void givenRandomOperations_onMap_matchesHashMap() {
+        SwissCustomMap<Integer, Integer> map = new SwissCustomMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5000);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.put(key, i), map.put(key, i));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+    }
+
+    @Test
+    void givenKeysWithEqualHashCodes_onPutAndRemove_keepsAllMappings() {
+        SwissCustomMap<String, Integer> map = new SwissCustomMap<>();
+        String[] keys = {"Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa"};
+        for (int i = 0; i < keys.length; i++)
+            map.put(keys[i], i);
+        for (int i = 0; i < keys.length; i++)
+            assertEquals(i, map.get(keys[i]));
+        assertEquals(0, map.remove("Aa"));
+        assertNull(map.get("Aa"));
+        assertEquals(1, map.get("BB"));
+    }
+
+    @Test
+    void givenChurningSmallMap_onManyInsertsAndRemoves_doesNotGrowOrLoseEntries() {
+        SwissCustomMap<Integer, Integer> map = new SwissCustomMap<>(8);
+        for (int i = 0; i < 100_000; i++) {
+            map.put(i, i);
+            if (i >= 4)
+                assertEquals(i - 4, map.remove(i - 4));
+        }
+        assertEquals(4, map.size());
+        for (int i = 99_996; i < 100_000; i++)
+            assertEquals(i, map.get(i));
+    }
+
+    @Test
+    void givenMap_onEntryIteratorRemoveAndSetValue_updatesMap() {
+        SwissCustomMap<Integer, String> map = new SwissCustomMap<>();
+        for (int i = 0; i < 100; i++)
+            map.put(i, "v" + i);
+        Iterator<Map.Entry<Integer, String>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, String> entry = iterator.next();
+            if (entry.getKey() % 2 == 0)
+                iterator.remove();
+            else
+                entry.setValue("odd");
+        }
+        assertEquals(50, map.size());
+        assertNull(map.get(2));
+        assertEquals("odd", map.get(3));
+        assertThrows(IllegalStateException.class, iterator::remove);
+    }
+
+    @Test
+    void givenMap_onClear_isEmptyAndReusable() {
+        SwissCustomMap<Integer, Integer> map = new SwissCustomMap<>(Map.of(1, 1, 2, 2));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        map.put(3, 3);
+        assertEquals(Map.of(3, 3), map);
+    }
+}
@@ -0,0 +1,139 @@
+package custommap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TieredCustomMapTest {
+
+    @TempDir
+    Path directory;
+
+    private TieredCustomMap<Integer, String> open(long byteBudget) throws IOException {
+        return TieredCustomMap.open(directory.resolve("segment.bin"), byteBudget, CustomMapCodec.STRING,
+                (key, value) -> 100);
+    }
+
+    @Test
+    void givenMapUnderBudget_onPut_keepsEverythingResident() throws IOException {
+        try (TieredCustomMap<Integer, String> map = open(10_000)) {
+            for (int i = 0; i < 100; i++)
+                map.put(i, "Value" + i);
+            assertEquals(100, map.residentSize());
+            assertEquals(0, map.spilledSize());
+            assertEquals(0, Files.size(directory.resolve("segment.bin")));
+        }
+    }
+
+    @Test
+    void givenMapOverBudget_onPut_spillsAndFaultsValuesBack() throws IOException {
+        try (TieredCustomMap<Integer, String> map = open(10_000)) {
+            Map<Integer, String> expected = new HashMap<>();
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, "Value" + i);
+                expected.put(i, "Value" + i);
+            }
+            assertEquals(10_000, map.size());
+            assertTrue(map.residentSize() <= 100);
+            assertTrue(map.spilledSize() >= 9_900);
+            assertEquals("Value1234", map.get(1234));
+            assertTrue(map.containsKey(9_999));
+            assertFalse(map.containsKey(10_000));
+            assertNull(map.get(-1));
+            assertEquals(expected, map);
+            assertEquals(expected, new HashMap<>(map));
+        }
+    }
+
+    @Test
+    void givenRecentlyReadKey_onSpill_getsSecondChance() throws IOException {
+        try (TieredCustomMap<Integer, String> map = open(1_000)) {
+            for (int i = 0; i < 10; i++)
+                map.put(i, "Value" + i);
+            for (int round = 0; round < 20; round++) {
+                map.get(0);
+                map.put(100 + round, "Filler");
+            }
+            assertEquals(20 + 10, map.size());
+            assertEquals("Value0", map.get(0));
+        }
+    }
+
+    @Test
+    void givenHotKeysInEarlyBuckets_onRepeatedSpills_evictsColdKeysInLaterBuckets() throws IOException {
+        try (TieredCustomMap<Integer, String> map = open(6_400)) {
+            for (int i = 100; i < 128; i++)
+                map.put(i, "Cold" + i);
+            for (int i = 0; i < 36; i++)
+                map.put(i, "Hot" + i);
+            for (int round = 0; round < 40; round++) {
+                for (int i = 0; i < 36; i++)
+                    assertEquals("Hot" + i, map.get(i));
+                map.put(40 + round, "Filler");
+            }
+            for (int i = 0; i < 36; i++)
+                assertTrue(map.isResident(i));
+            for (int i = 100; i < 128; i++)
+                assertFalse(map.isResident(i));
+            assertEquals("Cold127", map.get(127));
+        }
+    }
+
+    @Test
+    void givenRandomOperations_onTieredMap_matchesHashMap() throws IOException {
+        try (TieredCustomMap<Integer, String> map = open(2_000)) {
+            Map<Integer, String> expected = new HashMap<>();
+            Random random = new Random(7);
+            for (int i = 0; i < 50_000; i++) {
+                int key = random.nextInt(2_000);
+                switch (random.nextInt(4)) {
+                    case 0 -> assertEquals(expected.put(key, "V" + i), map.put(key, "V" + i));
+                    case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                    case 2 -> assertEquals(expected.put(key, null), map.put(key, null));
+                    default -> assertEquals(expected.get(key), map.get(key));
+                }
+            }
+            assertEquals(expected, map);
+        }
+    }
+
+    @Test
+    void givenDeadRecords_onCompaction_shrinksSegmentFile() throws IOException {
+        Path segment = directory.resolve("segment.bin");
+        try (TieredCustomMap<Integer, String> map = open(0)) {
+            String large = "x".repeat(1_000);
+            for (int i = 0; i < 3_000; i++)
+                map.put(i, large + i);
+            long before = Files.size(segment);
+            for (int i = 0; i < 2_900; i++)
+                assertEquals(large + i, map.remove(i));
+            assertTrue(Files.size(segment) < before / 2);
+            for (int i = 2_900; i < 3_000; i++)
+                assertEquals(large + i, map.get(i));
+        }
+        assertFalse(Files.exists(segment));
+    }
+
+    @Test
+    void givenClosedMap_onPut_throwsIllegalStateException() throws IOException {
+        TieredCustomMap<Integer, String> map = open(100);
+        map.close();
+        map.close();
+        assertThrows(IllegalStateException.class, () -> map.put(1, "a"));
+        assertThrows(NullPointerException.class, () -> map.get(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> TieredCustomMap.open(directory.resolve("other.bin"), -1, CustomMapCodec.STRING));
+    }
+}
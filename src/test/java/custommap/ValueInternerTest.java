@@ -0,0 +1,30 @@
+package custommap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ValueInternerTest {
+
+    @Test
+    void givenEqualInstances_onIntern_returnsFirstInstance() {
+        ValueInterner<String> interner = new ValueInterner<>();
+        String first = new String("abc");
+        String second = new String("abc");
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(second));
+        assertNull(interner.intern(null));
+        assertEquals(1, interner.poolSize());
+    }
+
+    @Test
+    void givenValueTypes_onEstimateBytes_countsObjectAndBackingArray() {
+        assertEquals(24 + 24, ValueInterner.estimateBytes("1234567"));
+        assertEquals(24 + 32, ValueInterner.estimateBytes("1234567890123456"));
+        assertEquals(24, ValueInterner.estimateBytes(1L));
+        assertEquals(16, ValueInterner.estimateBytes(1));
+    }
+}